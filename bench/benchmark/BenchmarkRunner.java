@@ -0,0 +1,128 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal benchmark harness. Every benchmark is warmed up first, then measured
+ * in several timed iterations. The harness reports the average time per
+ * operation and the number of bytes allocated per operation, read from the
+ * thread allocation counter of the JVM.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class BenchmarkRunner {
+	/**
+	 * Time of the warmup in nanoseconds.
+	 */
+	private final long warmupNanos;
+
+	/**
+	 * Number of measured iterations.
+	 */
+	private final int iterations;
+
+	/**
+	 * Time of a single measured iteration in nanoseconds.
+	 */
+	private final long iterationNanos;
+
+	/**
+	 * Only benchmarks with names containing this text are run.
+	 */
+	private final String filter;
+
+	/**
+	 * Sink for the values returned by the operations, so the JIT can't remove
+	 * them.
+	 */
+	private static volatile long sink;
+
+	/**
+	 * JVM thread bean used for the allocation counter.
+	 */
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * Creates a new harness.
+	 *
+	 * @param warmupMillis    Time of the warmup in milliseconds.
+	 * @param iterations      Number of measured iterations.
+	 * @param iterationMillis Time of a single measured iteration in milliseconds.
+	 * @param filter          Only benchmarks with names containing this text are
+	 *                        run. Empty text runs all of them.
+	 */
+	public BenchmarkRunner(int warmupMillis, int iterations, int iterationMillis, String filter) {
+		this.warmupNanos = warmupMillis * 1_000_000L;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1_000_000L;
+		this.filter = filter;
+	}
+
+	/**
+	 * Prints the header of the results table.
+	 */
+	public void printHeader() {
+		System.out.println(String.format("%-40s %14s %12s %12s", "Benchmark", "ns/op", "error", "B/op"));
+	}
+
+	/**
+	 * Runs and reports a benchmark.
+	 *
+	 * @param name      Name of the benchmark.
+	 * @param operation The measured operation. Its result is consumed by the
+	 *                  harness.
+	 */
+	public void run(String name, LongSupplier operation) {
+		if (!name.contains(filter))
+			return;
+		int batch = 1;
+		long start = System.nanoTime();
+		while (System.nanoTime() - start < warmupNanos) {
+			long batchStart = System.nanoTime();
+			runBatch(operation, batch);
+			if (System.nanoTime() - batchStart < 10_000 && batch < (1 << 24))
+				batch *= 2;
+		}
+		double[] nanosPerOp = new double[iterations];
+		long operations = 0;
+		long allocated = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < iterations; i++) {
+			long count = 0;
+			long iterationStart = System.nanoTime();
+			long elapsed;
+			do {
+				runBatch(operation, batch);
+				count += batch;
+				elapsed = System.nanoTime() - iterationStart;
+			} while (elapsed < iterationNanos);
+			nanosPerOp[i] = (double) elapsed / count;
+			operations += count;
+		}
+		allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+		double mean = 0;
+		for (double v : nanosPerOp)
+			mean += v;
+		mean /= iterations;
+		double variance = 0;
+		for (double v : nanosPerOp)
+			variance += (v - mean) * (v - mean);
+		double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+		System.out.println(String.format("%-40s %14.2f %12.2f %12.2f", name, mean, error,
+				(double) allocated / operations));
+	}
+
+	/**
+	 * Runs the operation a number of times.
+	 *
+	 * @param operation The operation.
+	 * @param count     Number of runs.
+	 */
+	private static void runBatch(LongSupplier operation, int count) {
+		long sum = 0;
+		for (int i = 0; i < count; i++)
+			sum += operation.getAsLong();
+		sink += sum;
+	}
+}
@@ -0,0 +1,389 @@
+package benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import ai.BoardBatch;
+import ai.FeatureExtractor;
+import ai.HeuristicEvaluator;
+import ai.PlacementGenerator;
+import ai.PlacementSearch;
+import ai.Placements;
+import ai.TranspositionTable;
+import game.Board;
+import game.BoardHistory;
+import game.GameState;
+import game.Grid;
+import game.Palette;
+import game.StandardTetrominos;
+import game.Tetromino;
+import game.TetrominoSpawner;
+import properties.GameSettings;
+import properties.GraphicsSettings;
+import simulation.VecEnv;
+
+/**
+ * Benchmarks of the game engine hot paths.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see benchmark.BenchmarkRunner
+ */
+public class EngineBenchmarks {
+	/**
+	 * Palette index used for the garbage tiles.
+	 */
+	private static final byte GARBAGE = Palette.indexOf(java.awt.Color.gray);
+
+	/**
+	 * Counter alternating the direction of the repeated moves.
+	 */
+	private static int counter;
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args Optional filter, only benchmarks with names containing it are
+	 *             run.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		BenchmarkRunner runner = new BenchmarkRunner(1000, 5, 500, args.length > 0 ? args[0] : "");
+		runner.printHeader();
+		removeFullRows(runner);
+		spawner(runner);
+		tetromino(runner);
+		step(runner);
+		vecEnv(runner);
+		save(runner);
+		history(runner);
+		placements(runner);
+		search(runner);
+		features(runner);
+		draw(runner);
+	}
+
+	/**
+	 * Fills the rows at the bottom of the board with garbage. Every garbage row has
+	 * a single hole, the rows listed in <code>fullRows</code> have none.
+	 *
+	 * @param board    The board.
+	 * @param garbage  Number of rows to fill, counted from the bottom.
+	 * @param fullRows Rows without a hole.
+	 * @param seed     Seed of the hole positions.
+	 * @return The board.
+	 */
+	private static Board garbage(Board board, int garbage, int[] fullRows, long seed) {
+		Random random = new Random(seed);
+		for (int y = board.getHeight() - garbage; y < board.getHeight(); y++) {
+			int hole = random.nextInt(board.getWidth());
+			for (int x = 0; x < board.getWidth(); x++) {
+				if (x != hole)
+					board.fill(x, y, GARBAGE);
+			}
+		}
+		for (int y : fullRows) {
+			for (int x = 0; x < board.getWidth(); x++)
+				board.fill(x, y, GARBAGE);
+		}
+		return board;
+	}
+
+	/**
+	 * Benchmarks of {@link game.Grid#removeFullRows()}. Every operation restores
+	 * the board first, the cost of restoring alone is reported as
+	 * <code>removeFullRows/restoreOnly</code>.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void removeFullRows(BenchmarkRunner runner) {
+		int w = GameSettings.GRID_WIDTH, h = GameSettings.GRID_HEIGHT;
+		Board board = Grid.getBoard();
+		Board template = garbage(new Board(w, h), 8, new int[0], 1);
+		runner.run("removeFullRows/restoreOnly", () -> {
+			board.copyFrom(template);
+			return board.getRow(h - 1);
+		});
+		for (int full = 0; full <= 4; full++) {
+			int[] rows = new int[full];
+			for (int i = 0; i < full; i++)
+				rows[i] = h - 1 - 2 * i;
+			Board filled = garbage(new Board(w, h), 8, rows, 1);
+			runner.run("removeFullRows/" + full + "rows", () -> {
+				board.copyFrom(filled);
+				return Grid.removeFullRows();
+			});
+		}
+		Board stack = garbage(new Board(w, h), h - 2, new int[] { 3, 7, 12, 18 }, 2);
+		runner.run("removeFullRows/tallStack4rows", () -> {
+			board.copyFrom(stack);
+			return Grid.removeFullRows();
+		});
+		Board tall = new Board(w, 1000);
+		Board tallStack = garbage(new Board(w, 1000), 990, new int[] { 999, 998, 997, 996 }, 3);
+		runner.run("removeFullRows/tallBoard1000x4rows", () -> {
+			tall.copyFrom(tallStack);
+			return tall.removeFullRows();
+		});
+		Grid.initTiles();
+	}
+
+	/**
+	 * Benchmarks of the {@link game.TetrominoSpawner} moves on a board with
+	 * garbage at the bottom.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void spawner(BenchmarkRunner runner) {
+		GameState state = GameState.getDefault();
+		StandardTetrominos.addTo(state);
+		state.setSeed(0);
+		Grid.initTiles();
+		garbage(Grid.getBoard(), 6, new int[0], 4);
+		TetrominoSpawner.generateNextTetromino();
+		TetrominoSpawner.spawnTetromino();
+		TetrominoSpawner.moveDown(true);
+		runner.run("TetrominoSpawner.moveSpawned", () -> {
+			return TetrominoSpawner.moveSpawned((counter++ & 1) == 0 ? -1 : 1, 0, true) ? 1 : 0;
+		});
+		runner.run("TetrominoSpawner.rotateSpawned", () -> {
+			return TetrominoSpawner.rotateSpawned((counter++ & 1) == 0) ? 1 : 0;
+		});
+		runner.run("TetrominoSpawner.skipDown", () -> {
+			int y = TetrominoSpawner.getSpawnedY();
+			TetrominoSpawner.skipDown(true);
+			int dropped = TetrominoSpawner.getSpawnedY() - y;
+			TetrominoSpawner.moveSpawned(0, -dropped, false);
+			return dropped;
+		});
+		runner.run("TetrominoSpawner.hover", () -> {
+			TetrominoSpawner.hover();
+			return TetrominoSpawner.getHoverY();
+		});
+	}
+
+	/**
+	 * Benchmarks of the {@link game.Tetromino} operations.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void tetromino(BenchmarkRunner runner) {
+		Tetromino[] tetrominos = StandardTetrominos.create();
+		runner.run("Tetromino.rotate", () -> {
+			Tetromino t = tetrominos[counter++ % tetrominos.length];
+			return t.rotate(true).rotate(false).getRotation();
+		});
+		runner.run("Tetromino.copy", () -> {
+			return tetrominos[counter++ % tetrominos.length].copy().getRotation();
+		});
+	}
+
+	/**
+	 * Benchmark of a steady-state game tick: the spawned tetromino is dropped and
+	 * {@link game.GameState#step()} locks it, removes full rows and spawns the
+	 * next one. A lost game is continued on a cleared board.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void step(BenchmarkRunner runner) {
+		GameState state = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		StandardTetrominos.addTo(state);
+		state.setSeed(0);
+		runner.run("GameState.step", () -> {
+			int move = counter++ % 5;
+			if (move < 2)
+				state.moveSpawned(move * 2 - 1, 0, true);
+			else if (move == 2)
+				state.rotateSpawned(true);
+			else if (move == 3)
+				state.skipDown(true);
+			if (!state.step())
+				state.getBoard().clear();
+			return state.getPoints();
+		});
+	}
+
+	/**
+	 * Benchmark of {@link simulation.VecEnv#step(int[])} with 64 games on the
+	 * common pool and random actions.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void vecEnv(BenchmarkRunner runner) {
+		int count = 64;
+		VecEnv env = new VecEnv(count, ByteBuffer.allocateDirect(count * VecEnv.getObservationSize(
+				GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT)));
+		long[] seeds = new long[count];
+		for (int i = 0; i < count; i++)
+			seeds[i] = i;
+		env.reset(seeds);
+		int[][] actions = new int[256][count];
+		Random random = new Random(0);
+		for (int[] step : actions) {
+			for (int i = 0; i < count; i++)
+				step[i] = random.nextInt(VecEnv.ACTION_COUNT);
+		}
+		runner.run("VecEnv.step64", () -> {
+			env.step(actions[counter++ & 255]);
+			return env.getGame(0).getPoints();
+		});
+	}
+
+	/**
+	 * Benchmarks of saving and restoring a game in the middle of play, into a
+	 * buffer and by copying it in memory.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void save(BenchmarkRunner runner) {
+		GameState state = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		StandardTetrominos.addTo(state);
+		state.setSeed(0);
+		garbage(state.getBoard(), 8, new int[0], 5);
+		for (int i = 0; i < 10; i++)
+			state.step();
+		GameState copy = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(state.getSerializedSize());
+		runner.run("GameState.writeTo", () -> {
+			buffer.clear();
+			state.writeTo(buffer);
+			return buffer.position();
+		});
+		runner.run("GameState.readFrom", () -> {
+			buffer.rewind();
+			copy.readFrom(buffer);
+			return copy.getPoints();
+		});
+		runner.run("GameState.copyFrom", () -> {
+			copy.copyFrom(state);
+			return copy.getSpawnedY();
+		});
+	}
+
+	/**
+	 * Benchmarks of {@link game.BoardHistory}: recording every tick of a game and
+	 * rewinding it to a recorded tick.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void history(BenchmarkRunner runner) {
+		GameState state = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		StandardTetrominos.addTo(state);
+		state.setSeed(0);
+		BoardHistory history = new BoardHistory(4096, GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		runner.run("BoardHistory.record", () -> {
+			if ((counter++ & 3) == 0)
+				state.moveSpawned((counter & 4) == 0 ? -1 : 1, 0, true);
+			if (!state.tick())
+				state.getBoard().clear();
+			history.record(state);
+			return history.size();
+		});
+		GameState rewound = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		runner.run("BoardHistory.restore", () -> {
+			history.restore(rewound, counter++ % history.size());
+			return rewound.getPoints();
+		});
+	}
+
+	/**
+	 * Benchmarks of {@link ai.PlacementGenerator} for every standard tetromino in
+	 * turn on a board with garbage at the bottom, and of a perft of depth 3.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void placements(BenchmarkRunner runner) {
+		Board board = garbage(new Board(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT), 6, new int[0], 6);
+		Tetromino[] pieces = StandardTetrominos.create();
+		PlacementGenerator generator = new PlacementGenerator();
+		Placements placements = new Placements();
+		runner.run("PlacementGenerator.generate", () -> {
+			Tetromino piece = pieces[counter++ % pieces.length];
+			return generator.generate(board, piece, GameState.getSpawnX(piece, board.getWidth()),
+					GameState.getSpawnY(piece), placements);
+		});
+		Tetromino[] sequence = { pieces[0], pieces[3], pieces[5] };
+		runner.run("PlacementGenerator.perft3", () -> {
+			return (int) generator.perft(board, sequence, 3);
+		});
+	}
+
+	/**
+	 * Benchmarks of {@link ai.HeuristicEvaluator}, of
+	 * {@link ai.PlacementSearch} placing one and two tetrominos without a time
+	 * limit, on a board with garbage at the bottom, and of a store and a lookup
+	 * of a random position in a {@link ai.TranspositionTable} larger than the
+	 * caches.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void search(BenchmarkRunner runner) {
+		GameState state = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		StandardTetrominos.addTo(state);
+		state.setSeed(1);
+		state.setPreviews(1);
+		garbage(state.getBoard(), 6, new int[0], 6);
+		state.step();
+		HeuristicEvaluator evaluator = HeuristicEvaluator.standard();
+		runner.run("HeuristicEvaluator.evaluate", () -> {
+			return (int) evaluator.evaluate(state.getBoard(), 1);
+		});
+		PlacementSearch search = new PlacementSearch(evaluator);
+		for (int depth = 1; depth <= 2; depth++) {
+			search.setMaxDepth(depth);
+			runner.run("PlacementSearch.depth" + depth, () -> {
+				return search.search(state, Long.MAX_VALUE).getRotation();
+			});
+		}
+		TranspositionTable table = new TranspositionTable(1 << 20);
+		Random random = new Random(1);
+		runner.run("TranspositionTable.put+get", () -> {
+			long key = random.nextLong();
+			table.put(key, 2, 1.0);
+			return (int) table.get(key ^ 1, 2);
+		});
+	}
+
+	/**
+	 * Benchmarks of the scalar {@link ai.FeatureExtractor} and of the fastest
+	 * one available on a batch of 1024 boards with garbage at the bottom. The
+	 * vector extractor is only available with
+	 * <code>--add-modules jdk.incubator.vector</code>.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void features(BenchmarkRunner runner) {
+		BoardBatch batch = new BoardBatch(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT, 1024);
+		Board board = new Board(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		for (int i = 0; i < batch.getCapacity(); i++) {
+			board.clear();
+			batch.add(garbage(board, i % 12, new int[0], i));
+		}
+		for (FeatureExtractor extractor : new FeatureExtractor[] { FeatureExtractor.scalar(),
+				FeatureExtractor.create() }) {
+			runner.run("FeatureExtractor." + extractor.getName() + "x1024", () -> {
+				extractor.extract(batch);
+				return batch.getHoles(counter++ & 1023);
+			});
+		}
+	}
+
+	/**
+	 * Benchmark of {@link game.Grid#draw(Graphics2D, int, int, int, int)} into an
+	 * offscreen image of the game window size.
+	 *
+	 * @param runner The harness.
+	 */
+	private static void draw(BenchmarkRunner runner) {
+		BufferedImage image = new BufferedImage(GraphicsSettings.GAME_WINDOW_WIDTH,
+				GraphicsSettings.GAME_WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		runner.run("Grid.draw", () -> {
+			Grid.draw(g, GraphicsSettings.GAME_GRID_OFFSET_X, GraphicsSettings.GAME_GRID_OFFSET_Y,
+					GraphicsSettings.GAME_GRID_WIDTH, GraphicsSettings.GAME_GRID_HEIGHT);
+			return image.getRGB(GraphicsSettings.GAME_GRID_OFFSET_X + 5, GraphicsSettings.GAME_GRID_OFFSET_Y + 5);
+		});
+		g.dispose();
+	}
+}
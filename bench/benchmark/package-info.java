@@ -0,0 +1,5 @@
+/**
+ * Package containing benchmarks of the game engine.
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+package benchmark;
\ No newline at end of file
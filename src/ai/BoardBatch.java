@@ -0,0 +1,204 @@
+package ai;
+
+import game.Board;
+
+/**
+ * Block of boards of the same size laid out as a structure of arrays, with the
+ * features computed for them by a {@link ai.FeatureExtractor}. The occupancy
+ * masks of row y of all of the boards are stored next to each other, at
+ * <code>y * capacity + index</code>, so the extractor can process many boards
+ * with every instruction. The features are laid out the same way, the height
+ * of column x of a board is at <code>x * capacity + index</code>.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class BoardBatch {
+	/**
+	 * Number of columns of the boards.
+	 */
+	private final int width;
+
+	/**
+	 * Number of rows of the boards.
+	 */
+	private final int height;
+
+	/**
+	 * Maximum number of boards.
+	 */
+	private final int capacity;
+
+	/**
+	 * Number of boards.
+	 */
+	private int size;
+
+	/**
+	 * Occupancy masks of the rows.
+	 */
+	final int[] rows;
+
+	/**
+	 * Column heights.
+	 */
+	final int[] columnHeights;
+
+	/**
+	 * Numbers of empty tiles with an occupied tile above.
+	 */
+	final int[] holes;
+
+	/**
+	 * Numbers of row transitions.
+	 */
+	final int[] rowTransitions;
+
+	/**
+	 * Sums of the well depths.
+	 */
+	final int[] wells;
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param width    Number of columns of the boards, at most
+	 *                 {@link game.Board#MAX_WIDTH}.
+	 * @param height   Number of rows of the boards.
+	 * @param capacity Maximum number of boards.
+	 * @throws IllegalArgumentException when the dimensions are not supported.
+	 */
+	public BoardBatch(int width, int height, int capacity) {
+		if (width <= 0 || width > Board.MAX_WIDTH || height <= 0 || capacity <= 0)
+			throw new IllegalArgumentException(
+					"Unsupported batch of " + capacity + " boards " + width + "x" + height + ".");
+		this.width = width;
+		this.height = height;
+		this.capacity = capacity;
+		rows = new int[height * capacity];
+		columnHeights = new int[width * capacity];
+		holes = new int[capacity];
+		rowTransitions = new int[capacity];
+		wells = new int[capacity];
+	}
+
+	/**
+	 * @return number of columns of the boards
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return number of rows of the boards
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return maximum number of boards
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of boards
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all of the boards.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Adds an empty board.
+	 *
+	 * @return Index of the board.
+	 * @throws IllegalStateException when the batch is full.
+	 */
+	public int add() {
+		if (size == capacity)
+			throw new IllegalStateException("The batch is full.");
+		for (int y = 0; y < height; y++)
+			rows[y * capacity + size] = 0;
+		return size++;
+	}
+
+	/**
+	 * Adds a copy of the board's tiles.
+	 *
+	 * @param board Board of the batch's size.
+	 * @return Index of the board.
+	 * @throws IllegalArgumentException when the board differs in size.
+	 * @throws IllegalStateException    when the batch is full.
+	 */
+	public int add(Board board) {
+		if (board.getWidth() != width || board.getHeight() != height)
+			throw new IllegalArgumentException("Board differs in size from the batch.");
+		int index = add();
+		for (int y = 0; y < height; y++)
+			rows[y * capacity + index] = board.getRow(y);
+		return index;
+	}
+
+	/**
+	 * @param index Index of the board.
+	 * @param y     Row index.
+	 * @return the occupancy mask of the row
+	 */
+	public int getRow(int index, int y) {
+		return rows[y * capacity + index];
+	}
+
+	/**
+	 * @param index Index of the board.
+	 * @param y     Row index.
+	 * @param mask  Occupancy mask of the row, bits beyond the width are ignored.
+	 */
+	public void setRow(int index, int y, int mask) {
+		rows[y * capacity + index] = width == Board.MAX_WIDTH ? mask : mask & (1 << width) - 1;
+	}
+
+	/**
+	 * @param index Index of the board.
+	 * @param x     Column index.
+	 * @return number of rows between the bottom of the board and the top edge of
+	 *         the highest occupied tile in the column
+	 */
+	public int getColumnHeight(int index, int x) {
+		return columnHeights[x * capacity + index];
+	}
+
+	/**
+	 * @param index Index of the board.
+	 * @return number of empty tiles with an occupied tile above
+	 */
+	public int getHoles(int index) {
+		return holes[index];
+	}
+
+	/**
+	 * @param index Index of the board.
+	 * @return number of horizontally neighbouring tiles of which one is occupied
+	 *         and the other empty, summed over all of the rows. The walls count
+	 *         as occupied tiles.
+	 */
+	public int getRowTransitions(int index) {
+		return rowTransitions[index];
+	}
+
+	/**
+	 * @param index Index of the board.
+	 * @return sum of the depths of the columns lower than both of their
+	 *         neighbours. The walls count as columns of the board's height.
+	 */
+	public int getWells(int index) {
+		return wells[index];
+	}
+}
@@ -0,0 +1,81 @@
+package ai;
+
+import game.GameState;
+import simulation.BatchSimulator;
+import simulation.Policy;
+
+/**
+ * Policy putting every spawned tetromino at the placement chosen by a
+ * {@link ai.PlacementSearch}. The game is set to keep as many previews in its
+ * queue as the search can use.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class BotPolicy implements Policy {
+	/**
+	 * The search choosing the placements.
+	 */
+	private final PlacementSearch search;
+
+	/**
+	 * Time budget of a single search, in nanoseconds.
+	 */
+	private final long budgetNanos;
+
+	/**
+	 * Number of the spawned tetromino the last decision was made for.
+	 */
+	private int decidedFor;
+
+	/**
+	 * Creates the policy.
+	 *
+	 * @param search      The search choosing the placements.
+	 * @param budgetNanos Time budget of a single search, in nanoseconds.
+	 */
+	public BotPolicy(PlacementSearch search, long budgetNanos) {
+		this.search = search;
+		this.budgetNanos = budgetNanos;
+	}
+
+	@Override
+	public void start(GameState state, long seed) {
+		state.setPreviews(search.getMaxDepth() - 1);
+		decidedFor = 0;
+	}
+
+	@Override
+	public void act(GameState state) {
+		if (!state.isAnySpawned() || state.getPieces() == decidedFor)
+			return;
+		SearchResult result = search.search(state, budgetNanos);
+		if (result.isFound())
+			state.applyPlacement(result.getRotation(), result.getX(), result.getY());
+		decidedFor = state.getPieces();
+	}
+
+	/**
+	 * Simulates a batch of games played by the policy with the standard
+	 * evaluator and prints the results.
+	 *
+	 * @param args Number of games, base seed, number of tetrominos to place per
+	 *             search, time budget per tetromino in milliseconds and maximum
+	 *             number of tetrominos per game. All are optional.
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		long budgetNanos = (long) ((args.length > 3 ? Double.parseDouble(args[3]) : 10) * 1e6);
+		int maxPieces = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+		HeuristicEvaluator evaluator = HeuristicEvaluator.standard();
+		BatchSimulator simulator = new BatchSimulator(() -> {
+			PlacementSearch search = new PlacementSearch(evaluator);
+			search.setMaxDepth(depth);
+			search.setTranspositionTable(new TranspositionTable(1 << 16));
+			return new BotPolicy(search, budgetNanos);
+		}, games, seed);
+		simulator.setMaxPieces(maxPieces);
+		System.out.println(simulator.run());
+	}
+}
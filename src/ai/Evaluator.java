@@ -0,0 +1,22 @@
+package ai;
+
+import game.Board;
+
+/**
+ * Scores the boards the search reaches, the higher the better. The search calls
+ * an evaluator from several threads at once, so it mustn't keep any mutable
+ * state.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see ai.PlacementSearch
+ */
+public interface Evaluator {
+	/**
+	 * Scores a board reached by placing tetrominos.
+	 *
+	 * @param board The board after the full rows were removed.
+	 * @param lines Number of rows removed on the way to the board.
+	 * @return The score.
+	 */
+	double evaluate(Board board, int lines);
+}
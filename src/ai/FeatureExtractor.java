@@ -0,0 +1,227 @@
+package ai;
+
+import java.util.SplittableRandom;
+
+import game.Board;
+import game.GameState;
+import game.StandardTetrominos;
+import simulation.RandomPolicy;
+
+/**
+ * Computes the features of a {@link ai.BoardBatch}: the column heights, holes,
+ * row transitions and wells of every board. {@link ai.FeatureExtractor#create()}
+ * picks the vector implementation when the <code>jdk.incubator.vector</code>
+ * module is available, e.g. with
+ * <code>--add-modules jdk.incubator.vector</code>, and the scalar one
+ * otherwise. Both give exactly the same results as
+ * {@link ai.FeatureExtractor#reference(Board, int[])}.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public abstract class FeatureExtractor {
+	/**
+	 * Name of the vector implementation, loaded by reflection.
+	 */
+	private static final String VECTOR_EXTRACTOR = "ai.VectorFeatureExtractor";
+
+	/**
+	 * Creates the fastest extractor available.
+	 *
+	 * @return The vector extractor or the scalar one if the vector API is
+	 *         missing.
+	 */
+	public static FeatureExtractor create() {
+		try {
+			return (FeatureExtractor) Class.forName(VECTOR_EXTRACTOR).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return scalar();
+		}
+	}
+
+	/**
+	 * Creates the extractor processing one board at a time.
+	 *
+	 * @return The extractor.
+	 */
+	public static FeatureExtractor scalar() {
+		return new ScalarFeatureExtractor();
+	}
+
+	/**
+	 * @return name of the implementation
+	 */
+	public abstract String getName();
+
+	/**
+	 * Computes the features of all of the boards in the batch.
+	 *
+	 * @param batch The batch.
+	 */
+	public void extract(BoardBatch batch) {
+		extract(batch, 0, batch.size());
+	}
+
+	/**
+	 * Computes the features of a range of boards in the batch.
+	 *
+	 * @param batch The batch.
+	 * @param from  Index of the first board.
+	 * @param to    Index after the last board.
+	 */
+	public abstract void extract(BoardBatch batch, int from, int to);
+
+	/**
+	 * Computes the features of a board tile by tile. This is the reference the
+	 * extractors are checked against.
+	 *
+	 * @param board The board.
+	 * @param out   Array receiving the column heights followed by the holes, row
+	 *              transitions and wells, at least <code>width + 3</code> long.
+	 */
+	public static void reference(Board board, int[] out) {
+		int width = board.getWidth();
+		int height = board.getHeight();
+		int holes = 0;
+		for (int x = 0; x < width; x++) {
+			int top = 0;
+			while (top < height && !board.isOccupied(x, top))
+				top++;
+			out[x] = height - top;
+			for (int y = top; y < height; y++) {
+				if (!board.isOccupied(x, y))
+					holes++;
+			}
+		}
+		int transitions = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = -1; x < width; x++) {
+				boolean left = x < 0 || board.isOccupied(x, y);
+				boolean right = x + 1 >= width || board.isOccupied(x + 1, y);
+				if (left != right)
+					transitions++;
+			}
+		}
+		int wells = 0;
+		for (int x = 0; x < width; x++) {
+			int left = x > 0 ? out[x - 1] : height;
+			int right = x < width - 1 ? out[x + 1] : height;
+			if (Math.min(left, right) > out[x])
+				wells += Math.min(left, right) - out[x];
+		}
+		out[width] = holes;
+		out[width + 1] = transitions;
+		out[width + 2] = wells;
+	}
+
+	/**
+	 * Checks the extractor against {@link ai.FeatureExtractor#reference}.
+	 *
+	 * @param boards Boards of the same size.
+	 * @return Number of boards with a different feature.
+	 */
+	public int check(Board[] boards) {
+		BoardBatch batch = new BoardBatch(boards[0].getWidth(), boards[0].getHeight(), boards.length);
+		for (Board board : boards)
+			batch.add(board);
+		extract(batch);
+		int width = batch.getWidth();
+		int[] expected = new int[width + 3];
+		int mismatches = 0;
+		for (int i = 0; i < boards.length; i++) {
+			reference(boards[i], expected);
+			boolean same = expected[width] == batch.getHoles(i) && expected[width + 1] == batch.getRowTransitions(i)
+					&& expected[width + 2] == batch.getWells(i);
+			for (int x = 0; x < width && same; x++)
+				same = expected[x] == batch.getColumnHeight(i, x);
+			if (!same)
+				mismatches++;
+		}
+		return mismatches;
+	}
+
+	/**
+	 * Creates boards of the given size: boards of random games played by
+	 * {@link simulation.RandomPolicy}, one per tetromino, and boards with random
+	 * tiles.
+	 *
+	 * @param width  Number of columns.
+	 * @param height Number of rows.
+	 * @param count  Number of boards.
+	 * @param seed   Seed of the games and tiles.
+	 * @return The boards.
+	 */
+	static Board[] randomBoards(int width, int height, int count, long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		Board[] boards = new Board[count];
+		GameState state = null;
+		RandomPolicy policy = new RandomPolicy();
+		for (int i = 0; i < count; i++) {
+			Board board = new Board(width, height);
+			if (i % 2 == 0) {
+				int density = random.nextInt(1, 8);
+				for (int y = random.nextInt(height); y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						if (random.nextInt(8) < density)
+							board.fill(x, y, (byte) 1);
+					}
+				}
+			} else {
+				if (state == null) {
+					state = new GameState(width, height);
+					StandardTetrominos.addTo(state);
+					state.setSeed(random.nextLong());
+					policy.start(state, random.nextLong());
+				}
+				int pieces = state.getPieces();
+				do {
+					policy.act(state);
+					if (!state.step())
+						state = null;
+				} while (state != null && state.getPieces() == pieces);
+				if (state != null)
+					board.copyFrom(state.getBoard());
+			}
+			boards[i] = board;
+		}
+		return boards;
+	}
+
+	/**
+	 * Checks the scalar extractor and the fastest available one against the
+	 * reference on boards of several sizes, then times both on a batch of
+	 * standard boards in the current thread and prints the boards per second.
+	 *
+	 * @param args Number of boards per batch and number of timed repetitions.
+	 *             Both are optional.
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		FeatureExtractor[] extractors = { scalar(), create() };
+		int[][] sizes = { { 10, 20 }, { 4, 5 }, { 7, 40 }, { 30, 63 }, { 32, 100 } };
+		for (int[] size : sizes) {
+			Board[] boards = randomBoards(size[0], size[1], 1001, size[0] * 1000 + size[1]);
+			for (FeatureExtractor extractor : extractors) {
+				System.out.println(String.format("%s %dx%d: %d mismatches in %d boards", extractor.getName(), size[0],
+						size[1], extractor.check(boards), boards.length));
+			}
+		}
+		Board[] boards = randomBoards(10, 20, count, 1);
+		BoardBatch batch = new BoardBatch(10, 20, count);
+		for (Board board : boards)
+			batch.add(board);
+		double scalarRate = 0;
+		for (FeatureExtractor extractor : extractors) {
+			for (int i = 0; i < repetitions / 4; i++)
+				extractor.extract(batch);
+			long start = System.nanoTime();
+			for (int i = 0; i < repetitions; i++)
+				extractor.extract(batch);
+			double rate = (double) count * repetitions / (System.nanoTime() - start) * 1e9;
+			if (scalarRate == 0)
+				scalarRate = rate;
+			System.out.println(String.format("%s: %.1f M boards/s, %.2fx scalar", extractor.getName(), rate / 1e6,
+					rate / scalarRate));
+		}
+	}
+}
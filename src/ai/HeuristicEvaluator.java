@@ -0,0 +1,163 @@
+package ai;
+
+import java.util.Arrays;
+
+import game.Board;
+
+/**
+ * Evaluator scoring a board by a weighted sum of its features: the aggregate
+ * height of the columns, the holes, the bumpiness, the wells and the removed
+ * rows.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class HeuristicEvaluator implements Evaluator {
+	/**
+	 * Index of the sum of the column heights.
+	 */
+	public static final int AGGREGATE_HEIGHT = 0;
+
+	/**
+	 * Index of the number of empty tiles with an occupied tile above.
+	 */
+	public static final int HOLES = 1;
+
+	/**
+	 * Index of the sum of the height differences of neighbouring columns.
+	 */
+	public static final int BUMPINESS = 2;
+
+	/**
+	 * Index of the sum of the well depths, i.e. how far every column is below
+	 * both of its neighbours. The board edges count as walls.
+	 */
+	public static final int WELLS = 3;
+
+	/**
+	 * Index of the number of removed rows.
+	 */
+	public static final int LINES = 4;
+
+	/**
+	 * Number of features.
+	 */
+	public static final int FEATURES = 5;
+
+	/**
+	 * Weights of the features.
+	 */
+	private final double[] weights;
+
+	/**
+	 * Creates the evaluator.
+	 *
+	 * @param weights Weights of the features, indexed by the feature constants.
+	 * @throws IllegalArgumentException when the number of weights is wrong.
+	 */
+	public HeuristicEvaluator(double... weights) {
+		if (weights.length != FEATURES)
+			throw new IllegalArgumentException("Expected " + FEATURES + " weights, got " + weights.length);
+		this.weights = weights.clone();
+	}
+
+	/**
+	 * Creates the evaluator with weights that play well on the standard board.
+	 *
+	 * @return The evaluator.
+	 */
+	public static HeuristicEvaluator standard() {
+		return new HeuristicEvaluator(-0.510066, -0.35663, -0.184483, -0.05, 0.760666);
+	}
+
+	/**
+	 * @return copy of the weights of the features
+	 */
+	public double[] getWeights() {
+		return weights.clone();
+	}
+
+	@Override
+	public double evaluate(Board board, int lines) {
+		return weights[AGGREGATE_HEIGHT] * aggregateHeight(board) + weights[HOLES] * holes(board)
+				+ weights[BUMPINESS] * bumpiness(board) + weights[WELLS] * wells(board) + weights[LINES] * lines;
+	}
+
+	/**
+	 * Computes the features of a board.
+	 *
+	 * @param board  The board.
+	 * @param lines  Number of rows removed on the way to the board.
+	 * @param out    Array the features are written to.
+	 * @param offset Index in <code>out</code> of the first feature.
+	 */
+	public static void features(Board board, int lines, double[] out, int offset) {
+		out[offset + AGGREGATE_HEIGHT] = aggregateHeight(board);
+		out[offset + HOLES] = holes(board);
+		out[offset + BUMPINESS] = bumpiness(board);
+		out[offset + WELLS] = wells(board);
+		out[offset + LINES] = lines;
+	}
+
+	/**
+	 * @param board The board.
+	 * @return sum of the column heights
+	 */
+	public static int aggregateHeight(Board board) {
+		int sum = 0;
+		for (int x = 0; x < board.getWidth(); x++)
+			sum += board.getColumnHeight(x);
+		return sum;
+	}
+
+	/**
+	 * Counts the holes row by row: a tile is a hole when it's empty and any row
+	 * above has an occupied tile in its column.
+	 *
+	 * @param board The board.
+	 * @return number of empty tiles with an occupied tile above
+	 */
+	public static int holes(Board board) {
+		int covered = 0;
+		int holes = 0;
+		for (int y = 0; y < board.getHeight(); y++) {
+			int row = board.getRow(y);
+			holes += Integer.bitCount(covered & ~row);
+			covered |= row;
+		}
+		return holes;
+	}
+
+	/**
+	 * @param board The board.
+	 * @return sum of the height differences of neighbouring columns
+	 */
+	public static int bumpiness(Board board) {
+		int sum = 0;
+		for (int x = 1; x < board.getWidth(); x++)
+			sum += Math.abs(board.getColumnHeight(x) - board.getColumnHeight(x - 1));
+		return sum;
+	}
+
+	/**
+	 * @param board The board.
+	 * @return sum of the depths of the columns lower than both of their
+	 *         neighbours
+	 */
+	public static int wells(Board board) {
+		int width = board.getWidth();
+		int sum = 0;
+		for (int x = 0; x < width; x++) {
+			int left = x > 0 ? board.getColumnHeight(x - 1) : board.getHeight();
+			int right = x < width - 1 ? board.getColumnHeight(x + 1) : board.getHeight();
+			int depth = Math.min(left, right) - board.getColumnHeight(x);
+			if (depth > 0)
+				sum += depth;
+		}
+		return sum;
+	}
+
+	@Override
+	public String toString() {
+		return "HeuristicEvaluator" + Arrays.toString(weights);
+	}
+}
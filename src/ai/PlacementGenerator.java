@@ -0,0 +1,511 @@
+package ai;
+
+import game.Board;
+import game.GameState;
+import game.StandardTetrominos;
+import game.Tetromino;
+import game.TetrominoShape;
+import properties.GameSettings;
+
+/**
+ * Finds every placement at which a tetromino can come to rest, starting from its
+ * position and moving it only left, right, down and by rotating it in place, so
+ * tucks and spins under overhangs are found too. The search is a breadth-first
+ * search over the (x, y, rotation) states done a whole row at a time: the
+ * states of a row and rotation are the bits of a long, the visited set is one
+ * such bitset per row and rotation. As the tetromino never moves up, the rows
+ * are visited once from the top, every row is closed under horizontal moves and
+ * rotations and then moved one row down. Rotations covering the same tiles,
+ * e.g. the four rotations of O, are reported once. A generator keeps its
+ * buffers between calls and is not thread safe.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class PlacementGenerator {
+	/**
+	 * Number of rotations of a shape.
+	 */
+	private static final int ROTATIONS = TetrominoShape.ROTATIONS;
+
+	/**
+	 * For every rotation and row, bit x - {@link ai.PlacementGenerator#xLo} is set
+	 * if the tetromino fits at x.
+	 */
+	private long[] free = new long[0];
+
+	/**
+	 * For every rotation and row, the visited states.
+	 */
+	private long[] reach = new long[0];
+
+	/**
+	 * For every rotation and row, the states in which the tetromino can't move
+	 * down.
+	 */
+	private long[] rest = new long[0];
+
+	/**
+	 * Smallest x coordinate of the tetromino center in the last search.
+	 */
+	private int xLo;
+
+	/**
+	 * Smallest y coordinate of the tetromino center in the last search.
+	 */
+	private int yLo;
+
+	/**
+	 * Number of rows of the bitsets in the last search.
+	 */
+	private int rows;
+
+	/**
+	 * Number of x coordinates of the tetromino center in the last search.
+	 */
+	private int span;
+
+	/**
+	 * First row of the bitsets visited in the last search.
+	 */
+	private int firstRow;
+
+	/**
+	 * Last row of the bitsets visited in the last search.
+	 */
+	private int lastRow;
+
+	/**
+	 * Shape whose rotations were compared last.
+	 */
+	private TetrominoShape symmetryShape;
+
+	/**
+	 * For every rotation, the smallest rotation covering the same tiles.
+	 */
+	private final int[] canonical = new int[ROTATIONS];
+
+	/**
+	 * Placements of every level of {@link ai.PlacementGenerator#perft}.
+	 */
+	private Placements[] perftPlacements = new Placements[0];
+
+	/**
+	 * Boards of every level of {@link ai.PlacementGenerator#perft}.
+	 */
+	private Board[] perftBoards = new Board[0];
+
+	/**
+	 * Finds the placements of the game's spawned tetromino.
+	 *
+	 * @param state The game.
+	 * @param out   List the placements are written to, cleared first.
+	 * @return Number of placements, 0 if no tetromino is spawned.
+	 */
+	public int generate(GameState state, Placements out) {
+		Tetromino piece = state.getSpawned();
+		if (piece == null) {
+			out.clear();
+			return 0;
+		}
+		return generate(state.getBoard(), piece, state.getSpawnedX(), state.getSpawnedY(), out);
+	}
+
+	/**
+	 * Finds the placements of a tetromino on the board.
+	 *
+	 * @param board The board.
+	 * @param piece The tetromino in its starting rotation.
+	 * @param x     Starting x coordinate of the tetromino center.
+	 * @param y     Starting y coordinate of the tetromino center.
+	 * @param out   List the placements are written to, cleared first, ordered by
+	 *              rotation, y and x.
+	 * @return Number of placements, 0 if the tetromino doesn't fit at its start.
+	 */
+	public int generate(Board board, Tetromino piece, int x, int y, Placements out) {
+		out.clear();
+		int count = search(board, piece, x, y);
+		if (count == 0)
+			return 0;
+		for (int r = 0; r < ROTATIONS; r++) {
+			for (int yi = firstRow; yi <= lastRow; yi++) {
+				for (long bits = rest[r * rows + yi]; bits != 0; bits &= bits - 1)
+					out.add(xLo + Long.numberOfTrailingZeros(bits), yLo + yi, r);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the placements of a tetromino on the board without listing them.
+	 *
+	 * @param board The board.
+	 * @param piece The tetromino in its starting rotation.
+	 * @param x     Starting x coordinate of the tetromino center.
+	 * @param y     Starting y coordinate of the tetromino center.
+	 * @return Number of placements, 0 if the tetromino doesn't fit at its start.
+	 */
+	public int count(Board board, Tetromino piece, int x, int y) {
+		return search(board, piece, x, y);
+	}
+
+	/**
+	 * Fills {@link ai.PlacementGenerator#rest} with the placements.
+	 *
+	 * @param board  The board.
+	 * @param piece  The tetromino in its starting rotation.
+	 * @param startX Starting x coordinate of the tetromino center.
+	 * @param startY Starting y coordinate of the tetromino center.
+	 * @return Number of placements.
+	 * @throws IllegalArgumentException when the positions of the tetromino don't
+	 *                                  fit into a long.
+	 */
+	private int search(Board board, Tetromino piece, int startX, int startY) {
+		TetrominoShape shape = piece.getShape();
+		int size = shape.getSize();
+		if (size == 0)
+			return 0;
+		int width = board.getWidth(), height = board.getHeight();
+		int xHi = Integer.MIN_VALUE, yHi = Integer.MIN_VALUE;
+		xLo = Integer.MAX_VALUE;
+		yLo = Integer.MAX_VALUE;
+		for (int r = 0; r < ROTATIONS; r++) {
+			xLo = Math.min(xLo, -shape.getMinX(r));
+			xHi = Math.max(xHi, width - 1 - shape.getMaxX(r));
+			yLo = Math.min(yLo, -shape.getMinY(r));
+			yHi = Math.max(yHi, height - 1 - shape.getMaxY(r));
+		}
+		if (xHi - xLo >= Long.SIZE)
+			throw new IllegalArgumentException("Tetromino positions don't fit into a long.");
+		rows = yHi - yLo + 1;
+		span = xHi - xLo + 1;
+		int startRow = startY - yLo;
+		int startBit = startX - xLo;
+		if (rows <= 0 || startRow < 0 || startRow >= rows || startBit < 0 || startBit > xHi - xLo)
+			return 0;
+		if (free.length < ROTATIONS * rows) {
+			free = new long[ROTATIONS * rows];
+			reach = new long[ROTATIONS * rows];
+			rest = new long[ROTATIONS * rows];
+		}
+		int stackTop = height;
+		for (int x = 0; x < width; x++)
+			stackTop = Math.min(stackTop, height - board.getColumnHeight(x));
+		for (int r = 0; r < ROTATIONS; r++)
+			fits(board, shape, r, stackTop);
+		int start = piece.getRotation() * rows + startRow;
+		if ((free[start] >>> startBit & 1) == 0)
+			return 0;
+		for (int r = 0; r < ROTATIONS; r++)
+			reach[r * rows + startRow] = 0;
+		reach[start] = 1L << startBit;
+		firstRow = startRow;
+		lastRow = rows - 1;
+		for (int yi = startRow; yi < rows; yi++) {
+			if (yi > startRow) {
+				long any = 0;
+				for (int r = 0; r < ROTATIONS; r++) {
+					int i = r * rows + yi;
+					reach[i] = reach[i - 1] & free[i];
+					any |= reach[i];
+				}
+				if (any == 0) {
+					lastRow = yi - 1;
+					break;
+				}
+			}
+			close(yi);
+		}
+		for (int r = 0; r < ROTATIONS; r++) {
+			int base = r * rows;
+			for (int yi = firstRow; yi <= lastRow; yi++)
+				rest[base + yi] = reach[base + yi] & ~(yi + 1 < rows ? free[base + yi + 1] : 0);
+		}
+		return removeDuplicates(shape);
+	}
+
+	/**
+	 * Fills {@link ai.PlacementGenerator#free} for a rotation. A tile of the
+	 * tetromino in column c of the rotation collides at every left edge p for
+	 * which the board row has bit p + c set, so the colliding left edges of a row
+	 * are the board rows shifted right by the tile columns. Above the stack the
+	 * tetromino fits everywhere.
+	 *
+	 * @param board    The board.
+	 * @param shape    Shape of the tetromino.
+	 * @param rotation Rotation index.
+	 * @param stackTop Index of the highest row with an occupied tile.
+	 */
+	private void fits(Board board, TetrominoShape shape, int rotation, int stackTop) {
+		int minX = shape.getMinX(rotation);
+		int top = -shape.getMinY(rotation);
+		int bottom = board.getHeight() - 1 - shape.getMaxY(rotation);
+		int edges = board.getWidth() - (shape.getMaxX(rotation) - minX);
+		long edgeMask = edges <= 0 ? 0 : edges >= Long.SIZE ? -1L : (1L << edges) - 1;
+		int shift = -minX - xLo;
+		int base = rotation * rows;
+		int size = shape.getSize();
+		int clear = stackTop - 1 - shape.getMaxY(rotation);
+		for (int yi = 0; yi < rows; yi++) {
+			int y = yi + yLo;
+			if (y < top || y > bottom) {
+				free[base + yi] = 0;
+				continue;
+			}
+			if (y <= clear) {
+				free[base + yi] = edgeMask << shift;
+				continue;
+			}
+			long collisions = 0;
+			for (int id = 0; id < size; id++) {
+				long row = board.getRow(y + shape.getTileY(rotation, id)) & 0xFFFFFFFFL;
+				collisions |= row >>> (shape.getTileX(rotation, id) - minX);
+			}
+			free[base + yi] = (~collisions & edgeMask) << shift;
+		}
+	}
+
+	/**
+	 * Closes the visited states of a row under horizontal moves and rotations.
+	 * Only the rotations whose states changed are spread again, a row in which
+	 * every free state is visited is closed already.
+	 *
+	 * @param yi Row of the bitsets.
+	 */
+	private void close(int yi) {
+		boolean closed = true;
+		int changed = 0;
+		for (int r = 0; r < ROTATIONS; r++) {
+			int i = r * rows + yi;
+			closed &= reach[i] == free[i];
+			if (reach[i] != 0)
+				changed |= 1 << r;
+		}
+		if (closed)
+			return;
+		while (changed != 0) {
+			for (int r = 0; r < ROTATIONS; r++) {
+				int i = r * rows + yi;
+				if ((changed >>> r & 1) != 0 && reach[i] != free[i])
+					reach[i] = fill(reach[i], free[i], span);
+			}
+			changed = 0;
+			for (int r = 0; r < ROTATIONS; r++) {
+				int i = r * rows + yi;
+				long neighbours = reach[((r + 1) & (ROTATIONS - 1)) * rows + yi]
+						| reach[((r + ROTATIONS - 1) & (ROTATIONS - 1)) * rows + yi];
+				long next = reach[i] | (neighbours & free[i]);
+				if (next != reach[i]) {
+					reach[i] = next;
+					changed |= 1 << r;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Spreads the states left and right through the free positions, doubling the
+	 * distance in every step. The steps covering boards up to 16 columns wide are
+	 * unrolled.
+	 *
+	 * @param states The states, a subset of the free positions.
+	 * @param free   The free positions.
+	 * @param span   Number of the positions.
+	 * @return States reachable by horizontal moves.
+	 */
+	static long fill(long states, long free, int span) {
+		long left = states, leftFree = free;
+		long right = states, rightFree = free;
+		left |= leftFree & (left << 1);
+		leftFree &= leftFree << 1;
+		right |= rightFree & (right >>> 1);
+		rightFree &= rightFree >>> 1;
+		left |= leftFree & (left << 2);
+		leftFree &= leftFree << 2;
+		right |= rightFree & (right >>> 2);
+		rightFree &= rightFree >>> 2;
+		left |= leftFree & (left << 4);
+		leftFree &= leftFree << 4;
+		right |= rightFree & (right >>> 4);
+		rightFree &= rightFree >>> 4;
+		left |= leftFree & (left << 8);
+		leftFree &= leftFree << 8;
+		right |= rightFree & (right >>> 8);
+		rightFree &= rightFree >>> 8;
+		for (int distance = 16; distance < span; distance <<= 1) {
+			left |= leftFree & (left << distance);
+			leftFree &= leftFree << distance;
+			right |= rightFree & (right >>> distance);
+			rightFree &= rightFree >>> distance;
+		}
+		return left | right;
+	}
+
+	/**
+	 * Removes the placements covering the same tiles as a placement of any
+	 * smaller rotation and counts the rest.
+	 *
+	 * @param shape Shape of the tetromino.
+	 * @return Number of placements.
+	 */
+	private int removeDuplicates(TetrominoShape shape) {
+		if (shape != symmetryShape)
+			compareRotations(shape);
+		int count = 0;
+		for (int r = 0; r < ROTATIONS; r++) {
+			int base = r * rows;
+			for (int c = canonical[r]; c < r; c++) {
+				if (canonical[c] != canonical[r])
+					continue;
+				int dx = shape.getMinX(r) - shape.getMinX(c);
+				int dy = shape.getMinY(r) - shape.getMinY(c);
+				for (int yi = firstRow; yi <= lastRow; yi++) {
+					int yc = yi + dy;
+					if (yc < firstRow || yc > lastRow)
+						continue;
+					long same = rest[c * rows + yc];
+					rest[base + yi] &= ~(dx >= 0 ? same >>> dx : same << -dx);
+				}
+			}
+			for (int yi = firstRow; yi <= lastRow; yi++)
+				count += Long.bitCount(rest[base + yi]);
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the rotations of the shape covering the same tiles.
+	 *
+	 * @param shape The shape.
+	 */
+	private void compareRotations(TetrominoShape shape) {
+		for (int r = 0; r < ROTATIONS; r++) {
+			canonical[r] = r;
+			for (int c = 0; c < r; c++) {
+				if (canonical[c] == c && sameTiles(shape, c, r)) {
+					canonical[r] = c;
+					break;
+				}
+			}
+		}
+		symmetryShape = shape;
+	}
+
+	/**
+	 * Checks whether two rotations cover the same tiles when moved onto each
+	 * other.
+	 *
+	 * @param shape The shape.
+	 * @param a     First rotation.
+	 * @param b     Second rotation.
+	 * @return true if the rotations have the same tiles, false otherwise.
+	 */
+	private static boolean sameTiles(TetrominoShape shape, int a, int b) {
+		int h = shape.getMaxY(a) - shape.getMinY(a);
+		if (h != shape.getMaxY(b) - shape.getMinY(b)
+				|| shape.getMaxX(a) - shape.getMinX(a) != shape.getMaxX(b) - shape.getMinX(b))
+			return false;
+		for (int row = 0; row <= h; row++) {
+			if (shape.getRowMask(a, row) != shape.getRowMask(b, row))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the placements of a sequence of tetrominos. Every tetromino is
+	 * spawned the same way as in the game, put at every placement in turn with
+	 * the full rows removed, and the placements of the next tetromino are
+	 * counted on every resulting board. The count at depth 1 is the number of
+	 * placements of the first tetromino.
+	 *
+	 * @param board    The board, not modified.
+	 * @param sequence Tetrominos to spawn, at least <code>depth</code> of them.
+	 * @param depth    Number of tetrominos to place.
+	 * @return Number of placements of the last tetromino over all of the
+	 *         sequences of placements.
+	 */
+	public long perft(Board board, Tetromino[] sequence, int depth) {
+		if (depth <= 0)
+			return 1;
+		if (perftBoards.length < depth || perftBoards[0].getWidth() != board.getWidth()
+				|| perftBoards[0].getHeight() != board.getHeight()) {
+			perftBoards = new Board[depth];
+			perftPlacements = new Placements[depth];
+			for (int i = 0; i < depth; i++) {
+				perftBoards[i] = new Board(board.getWidth(), board.getHeight());
+				perftPlacements[i] = new Placements();
+			}
+		}
+		return perft(board, sequence, 0, depth);
+	}
+
+	/**
+	 * Counts the placements of the sequence from the given level on.
+	 *
+	 * @param board    Board of the level.
+	 * @param sequence Tetrominos to spawn.
+	 * @param level    Index of the tetromino to place.
+	 * @param depth    Number of tetrominos to place.
+	 * @return Number of placements of the last tetromino.
+	 */
+	private long perft(Board board, Tetromino[] sequence, int level, int depth) {
+		Tetromino piece = sequence[level];
+		int x = GameState.getSpawnX(piece, board.getWidth());
+		int y = GameState.getSpawnY(piece);
+		if (level == depth - 1)
+			return search(board, piece, x, y);
+		Placements placements = perftPlacements[level];
+		Board next = perftBoards[level];
+		generate(board, piece, x, y, placements);
+		long nodes = 0;
+		for (int i = 0; i < placements.size(); i++) {
+			next.copyFrom(board);
+			place(next, piece.getShape(), placements.getRotation(i), placements.getX(i), placements.getY(i));
+			next.removeFullRows();
+			nodes += perft(next, sequence, level + 1, depth);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Writes the tiles of a tetromino into the board.
+	 *
+	 * @param board    The board.
+	 * @param shape    Shape of the tetromino.
+	 * @param rotation Rotation index.
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 */
+	static void place(Board board, TetrominoShape shape, int rotation, int x, int y) {
+		for (int id = 0; id < shape.getSize(); id++)
+			board.fill(x + shape.getTileX(rotation, id), y + shape.getTileY(rotation, id), shape.getTileColor(id));
+	}
+
+	/**
+	 * Prints the perft counts of a random sequence of standard tetrominos on an
+	 * empty board and the placements generated per second.
+	 *
+	 * @param args Optional maximum depth, 4 by default, and seed of the
+	 *             sequence, 0 by default.
+	 */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		GameState state = new GameState(GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT);
+		StandardTetrominos.addTo(state);
+		state.setSeed(seed);
+		Tetromino[] sequence = new Tetromino[depth];
+		for (int i = 0; i < depth; i++) {
+			state.generateNextTetromino();
+			sequence[i] = state.peekQueue(i);
+		}
+		PlacementGenerator generator = new PlacementGenerator();
+		for (int d = 1; d <= depth; d++) {
+			long start = System.nanoTime();
+			long nodes = generator.perft(state.getBoard(), sequence, d);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("depth %d: %d placements, %.3f s, %.1f M placements/s", d, nodes, seconds,
+					nodes / seconds / 1e6));
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import game.Board;
+import game.GameState;
+import game.Tetromino;
+import game.TetrominoShape;
+import game.Zobrist;
+
+/**
+ * Chooses the placement of the spawned tetromino by searching the placements
+ * of it and of the tetrominos waiting in the queue, and scoring the boards at
+ * the end with an {@link ai.Evaluator}. The search deepens one tetromino at a
+ * time while the time budget lasts and answers with the result of the deepest
+ * finished search, so it always answers in time, at worst after looking at the
+ * spawned tetromino alone. When more tetrominos are placed, the placements of
+ * the spawned tetromino are split between the threads of a fork-join pool. A
+ * search called from a fork-join task, e.g. a game simulated on a pool, runs
+ * in the calling thread alone: a worker waiting for its subtasks may run other
+ * tasks of its pool, e.g. whole games, and miss the deadline.
+ * <p>
+ * A search object runs one search at a time.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class PlacementSearch {
+	/**
+	 * Score of a sequence of placements after which a tetromino can't spawn.
+	 */
+	private static final double LOST = -1e12;
+
+	/**
+	 * Number of boards reached between two checks of the deadline.
+	 */
+	private static final int DEADLINE_CHECK_INTERVAL = 64;
+
+	/**
+	 * The evaluator scoring the boards.
+	 */
+	private final Evaluator evaluator;
+
+	/**
+	 * Pool the placements of the spawned tetromino are searched on.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Buffers of every thread searching.
+	 */
+	private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+
+	/**
+	 * Generator of the placements of the spawned tetromino.
+	 */
+	private final PlacementGenerator rootGenerator = new PlacementGenerator();
+
+	/**
+	 * Placements of the spawned tetromino.
+	 */
+	private final Placements rootPlacements = new Placements();
+
+	/**
+	 * Number of boards reached by the current search.
+	 */
+	private final LongAdder nodes = new LongAdder();
+
+	/**
+	 * Table of the scores of searched positions or null if positions aren't
+	 * remembered.
+	 */
+	private TranspositionTable table;
+
+	/**
+	 * Zobrist keys of the tetrominos left to place at every level of the current
+	 * search.
+	 */
+	private long[] sequenceKeys = new long[0];
+
+	/**
+	 * Maximum number of tetrominos to place, the spawned one included.
+	 */
+	private int maxDepth = 3;
+
+	/**
+	 * Scores of the placements of the spawned tetromino in the current search.
+	 */
+	private double[] scores = new double[64];
+
+	/**
+	 * Board of the searched game.
+	 */
+	private Board rootBoard;
+
+	/**
+	 * The spawned tetromino followed by the tetrominos in the queue.
+	 */
+	private Tetromino[] sequence = new Tetromino[0];
+
+	/**
+	 * Time after which the current search is stopped, unless it places the
+	 * spawned tetromino alone.
+	 */
+	private long deadline;
+
+	/**
+	 * Set when the current search ran out of time.
+	 */
+	private volatile boolean timedOut;
+
+	/**
+	 * Creates the search running on the common fork-join pool.
+	 *
+	 * @param evaluator The evaluator scoring the boards.
+	 */
+	public PlacementSearch(Evaluator evaluator) {
+		this(evaluator, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates the search.
+	 *
+	 * @param evaluator The evaluator scoring the boards.
+	 * @param pool      Pool the placements of the spawned tetromino are searched
+	 *                  on.
+	 */
+	public PlacementSearch(Evaluator evaluator, ForkJoinPool pool) {
+		this.evaluator = evaluator;
+		this.pool = pool;
+	}
+
+	/**
+	 * @return maximum number of tetrominos to place, the spawned one included
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @param maxDepth maximum number of tetrominos to place, the spawned one
+	 *                 included, at least 1. The game should keep
+	 *                 <code>maxDepth - 1</code> previews in its queue.
+	 * @see game.GameState#setPreviews(int)
+	 */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = Math.max(1, maxDepth);
+	}
+
+	/**
+	 * @return table of the scores of searched positions or null if positions
+	 *         aren't remembered
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * Sets the table remembering the scores of searched positions, so a position
+	 * reached again by placing the tetrominos in another order, or in the next
+	 * search of the same game, isn't searched again. The table may be shared
+	 * with other searches of games with the same board size and evaluator. The
+	 * evaluator must score boards by their occupied tiles only.
+	 *
+	 * @param table The table or null to search every position.
+	 */
+	public void setTranspositionTable(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Finds the best placement of the game's spawned tetromino. The game isn't
+	 * modified.
+	 *
+	 * @param state       The game.
+	 * @param budgetNanos Time after which the search is stopped, in nanoseconds.
+	 *                    The search placing the spawned tetromino alone is always
+	 *                    finished.
+	 * @return The best placement, {@link ai.SearchResult#NONE} if no tetromino is
+	 *         spawned.
+	 */
+	public SearchResult search(GameState state, long budgetNanos) {
+		long start = System.nanoTime();
+		int count = rootGenerator.generate(state, rootPlacements);
+		if (count == 0)
+			return SearchResult.NONE;
+		int depth = Math.min(maxDepth, 1 + state.getQueueSize());
+		if (sequence.length < depth) {
+			sequence = new Tetromino[depth];
+			sequenceKeys = new long[depth];
+		}
+		sequence[0] = state.getSpawned();
+		for (int i = 1; i < depth; i++)
+			sequence[i] = state.peekQueue(i - 1);
+		if (scores.length < count)
+			scores = new double[rootPlacements.size() * 2];
+		rootBoard = state.getBoard();
+		nodes.reset();
+		if (table != null)
+			table.nextGeneration();
+		deadline = start + budgetNanos;
+		int bestIndex = 0;
+		double bestScore = 0;
+		int finished = 0;
+		for (int d = 1; d <= depth; d++) {
+			timedOut = false;
+			for (int level = 1; level < d; level++) {
+				long key = 0;
+				for (int i = level; i < d; i++)
+					key ^= Zobrist.preview(i - level, sequence[i].getShape());
+				sequenceKeys[level] = key;
+			}
+			if (d == 1 || ForkJoinTask.inForkJoinPool()) {
+				Context context = contexts.get();
+				for (int i = 0; i < count; i++)
+					scoreBranch(context, i, d);
+			} else
+				pool.invoke(new BranchesTask(0, count, d));
+			if (timedOut)
+				break;
+			bestIndex = 0;
+			for (int i = 1; i < count; i++) {
+				if (scores[i] > scores[bestIndex])
+					bestIndex = i;
+			}
+			bestScore = scores[bestIndex];
+			finished = d;
+			if (System.nanoTime() - start >= budgetNanos)
+				break;
+		}
+		rootBoard = null;
+		return new SearchResult(rootPlacements.getX(bestIndex), rootPlacements.getY(bestIndex),
+				rootPlacements.getRotation(bestIndex), bestScore, finished, nodes.sum());
+	}
+
+	/**
+	 * Scores a placement of the spawned tetromino.
+	 *
+	 * @param context Buffers of the thread.
+	 * @param index   Index of the placement.
+	 * @param depth   Number of tetrominos to place.
+	 */
+	private void scoreBranch(Context context, int index, int depth) {
+		context.prepare(rootBoard, depth);
+		Board board = context.boards[0];
+		board.copyFrom(rootBoard);
+		PlacementGenerator.place(board, sequence[0].getShape(), rootPlacements.getRotation(index),
+				rootPlacements.getX(index), rootPlacements.getY(index));
+		int removed = board.removeFullRows();
+		context.nodes = 0;
+		scores[index] = score(context, board, 1, depth, removed);
+		nodes.add(context.nodes);
+	}
+
+	/**
+	 * Scores the best sequence of placements from the given level on.
+	 *
+	 * @param context Buffers of the thread.
+	 * @param board   Board to place the tetromino on.
+	 * @param level   Index of the tetromino to place.
+	 * @param depth   Number of tetrominos to place.
+	 * @param lines   Number of rows removed on the way to the board.
+	 * @return The score.
+	 */
+	private double score(Context context, Board board, int level, int depth, int lines) {
+		context.nodes++;
+		if (depth > 1 && context.nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0)
+			timedOut = true;
+		if (level == depth)
+			return evaluator.evaluate(board, lines);
+		if (timedOut)
+			return LOST;
+		long key = 0;
+		if (table != null) {
+			key = board.getHash() ^ sequenceKeys[level] ^ Zobrist.lines(lines);
+			double stored = table.get(key, depth - level);
+			if (!Double.isNaN(stored))
+				return stored;
+		}
+		Tetromino piece = sequence[level];
+		Placements placements = context.placements[level];
+		int count = context.generator.generate(board, piece, GameState.getSpawnX(piece, board.getWidth()),
+				GameState.getSpawnY(piece), placements);
+		TetrominoShape shape = piece.getShape();
+		Board next = context.boards[level];
+		double best = LOST;
+		for (int i = 0; i < count; i++) {
+			next.copyFrom(board);
+			PlacementGenerator.place(next, shape, placements.getRotation(i), placements.getX(i), placements.getY(i));
+			int removed = next.removeFullRows();
+			best = Math.max(best, score(context, next, level + 1, depth, lines + removed));
+		}
+		if (table != null && !timedOut)
+			table.put(key, depth - level, best);
+		return best;
+	}
+
+	/**
+	 * Task scoring a range of the placements of the spawned tetromino, split in
+	 * halves down to single placements.
+	 */
+	private class BranchesTask extends RecursiveAction {
+		/**
+		 * Version of the serialized form.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Index of the first placement.
+		 */
+		private final int from;
+
+		/**
+		 * Index after the last placement.
+		 */
+		private final int to;
+
+		/**
+		 * Number of tetrominos to place.
+		 */
+		private final int depth;
+
+		/**
+		 * Creates the task.
+		 *
+		 * @param from  Index of the first placement.
+		 * @param to    Index after the last placement.
+		 * @param depth Number of tetrominos to place.
+		 */
+		BranchesTask(int from, int to, int depth) {
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new BranchesTask(from, middle, depth), new BranchesTask(middle, to, depth));
+				return;
+			}
+			scoreBranch(contexts.get(), from, depth);
+		}
+	}
+
+	/**
+	 * Buffers of a searching thread, kept between searches.
+	 */
+	private static class Context {
+		/**
+		 * The placement generator.
+		 */
+		private final PlacementGenerator generator = new PlacementGenerator();
+
+		/**
+		 * Boards with the tetromino of every level placed.
+		 */
+		private Board[] boards = new Board[0];
+
+		/**
+		 * Placements of the tetromino of every level.
+		 */
+		private Placements[] placements = new Placements[0];
+
+		/**
+		 * Number of boards reached since the last reset.
+		 */
+		private long nodes;
+
+		/**
+		 * Makes sure there are buffers for the given board size and depth.
+		 *
+		 * @param board Board of the searched game.
+		 * @param depth Number of tetrominos to place.
+		 */
+		void prepare(Board board, int depth) {
+			if (boards.length >= depth && boards[0].getWidth() == board.getWidth()
+					&& boards[0].getHeight() == board.getHeight())
+				return;
+			boards = new Board[depth];
+			placements = new Placements[depth];
+			for (int i = 0; i < depth; i++) {
+				boards[i] = new Board(board.getWidth(), board.getHeight());
+				placements[i] = new Placements();
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Reusable list of tetromino placements, i.e. rotations and positions at which
+ * a tetromino comes to rest. The arrays grow when needed and are kept between
+ * uses, so filling the list again doesn't allocate.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see ai.PlacementGenerator
+ */
+public class Placements {
+	/**
+	 * X coordinates of the tetromino center.
+	 */
+	private int[] xs = new int[64];
+
+	/**
+	 * Y coordinates of the tetromino center.
+	 */
+	private int[] ys = new int[64];
+
+	/**
+	 * Rotation indices.
+	 */
+	private int[] rotations = new int[64];
+
+	/**
+	 * Number of placements.
+	 */
+	private int size;
+
+	/**
+	 * @return number of placements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all of the placements.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Adds a placement.
+	 *
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 * @param rotation Rotation index.
+	 */
+	public void add(int x, int y, int rotation) {
+		if (size == xs.length) {
+			xs = Arrays.copyOf(xs, size * 2);
+			ys = Arrays.copyOf(ys, size * 2);
+			rotations = Arrays.copyOf(rotations, size * 2);
+		}
+		xs[size] = x;
+		ys[size] = y;
+		rotations[size] = rotation;
+		size++;
+	}
+
+	/**
+	 * @param index Index of the placement.
+	 * @return the x coordinate of the tetromino center
+	 */
+	public int getX(int index) {
+		return xs[index];
+	}
+
+	/**
+	 * @param index Index of the placement.
+	 * @return the y coordinate of the tetromino center
+	 */
+	public int getY(int index) {
+		return ys[index];
+	}
+
+	/**
+	 * @param index Index of the placement.
+	 * @return the rotation index
+	 */
+	public int getRotation(int index) {
+		return rotations[index];
+	}
+}
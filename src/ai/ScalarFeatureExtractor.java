@@ -0,0 +1,52 @@
+package ai;
+
+/**
+ * Feature extractor processing one board at a time, with the rows of a board
+ * handled as bit masks. Used when the vector API is not available.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+final class ScalarFeatureExtractor extends FeatureExtractor {
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void extract(BoardBatch batch, int from, int to) {
+		int width = batch.getWidth();
+		int height = batch.getHeight();
+		int capacity = batch.getCapacity();
+		int[] rows = batch.rows;
+		int[] heights = batch.columnHeights;
+		long walls = 1L | 1L << (width + 1);
+		long pairs = (1L << (width + 1)) - 1;
+		for (int i = from; i < to; i++) {
+			for (int x = 0; x < width; x++)
+				heights[x * capacity + i] = 0;
+			int seen = 0;
+			int holes = 0;
+			int transitions = 0;
+			for (int y = 0; y < height; y++) {
+				int row = rows[y * capacity + i];
+				holes += Integer.bitCount(seen & ~row);
+				for (int top = row & ~seen; top != 0; top &= top - 1)
+					heights[Integer.numberOfTrailingZeros(top) * capacity + i] = height - y;
+				seen |= row;
+				long tiles = (row & 0xFFFFFFFFL) << 1 | walls;
+				transitions += Long.bitCount((tiles ^ tiles >>> 1) & pairs);
+			}
+			int wells = 0;
+			for (int x = 0; x < width; x++) {
+				int left = x > 0 ? heights[(x - 1) * capacity + i] : height;
+				int right = x < width - 1 ? heights[(x + 1) * capacity + i] : height;
+				int depth = Math.min(left, right) - heights[x * capacity + i];
+				if (depth > 0)
+					wells += depth;
+			}
+			batch.holes[i] = holes;
+			batch.rowTransitions[i] = transitions;
+			batch.wells[i] = wells;
+		}
+	}
+}
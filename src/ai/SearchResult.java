@@ -0,0 +1,119 @@
+package ai;
+
+/**
+ * Placement chosen by the search for the spawned tetromino.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see ai.PlacementSearch
+ */
+public class SearchResult {
+	/**
+	 * Result of a search that found no placement.
+	 */
+	public static final SearchResult NONE = new SearchResult(0, 0, 0, Double.NEGATIVE_INFINITY, 0, 0);
+
+	/**
+	 * X coordinate of the tetromino center.
+	 */
+	private final int x;
+
+	/**
+	 * Y coordinate of the tetromino center.
+	 */
+	private final int y;
+
+	/**
+	 * Rotation index.
+	 */
+	private final int rotation;
+
+	/**
+	 * Score of the best board reachable from the placement.
+	 */
+	private final double score;
+
+	/**
+	 * Number of tetrominos the finished search placed.
+	 */
+	private final int depth;
+
+	/**
+	 * Number of boards reached by the search.
+	 */
+	private final long nodes;
+
+	/**
+	 * Creates the result.
+	 *
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 * @param rotation Rotation index.
+	 * @param score    Score of the best board reachable from the placement.
+	 * @param depth    Number of tetrominos the finished search placed.
+	 * @param nodes    Number of boards reached by the search.
+	 */
+	public SearchResult(int x, int y, int rotation, double score, int depth, long nodes) {
+		this.x = x;
+		this.y = y;
+		this.rotation = rotation;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * @return true if a placement was found, false otherwise
+	 */
+	public boolean isFound() {
+		return depth > 0;
+	}
+
+	/**
+	 * @return the x coordinate of the tetromino center
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * @return the y coordinate of the tetromino center
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * @return the rotation index
+	 */
+	public int getRotation() {
+		return rotation;
+	}
+
+	/**
+	 * @return score of the best board reachable from the placement
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * @return number of tetrominos the deepest finished search placed
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return number of boards reached by all of the searches, the unfinished
+	 *         one included
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("x %d, y %d, rotation %d, score %.3f, depth %d, %d nodes", x, y, rotation, score, depth,
+				nodes);
+	}
+}
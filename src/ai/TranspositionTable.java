@@ -0,0 +1,233 @@
+package ai;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of the scores of searched positions, shared by the
+ * search threads without locks. Every entry is three words: the key xored
+ * with the other two, the score, and the number of tetrominos searched below
+ * the position together with the search generation the entry was stored in.
+ * A reader computes the key back from all three words, so an entry torn by a
+ * concurrent write doesn't match its key and is treated as a miss.
+ * <p>
+ * Entries are grouped in buckets of two. A new entry replaces an entry with
+ * the same key, otherwise the entry of an older generation, otherwise the
+ * entry searched to a smaller depth, otherwise the second entry of the bucket.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Zobrist
+ */
+public class TranspositionTable {
+	/**
+	 * Number of words of an entry.
+	 */
+	private static final int WORDS = 3;
+
+	/**
+	 * Bit set in the depth and generation word of every stored entry, so that
+	 * the word is never 0.
+	 */
+	private static final long VALID = 1L << 63;
+
+	/**
+	 * Words of the entries.
+	 */
+	private final AtomicLongArray words;
+
+	/**
+	 * Mask selecting the first entry of a bucket from a key.
+	 */
+	private final int bucketMask;
+
+	/**
+	 * Lookups that found the position.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Lookups that didn't find the position.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Stored entries.
+	 */
+	private final LongAdder stores = new LongAdder();
+
+	/**
+	 * Stored entries that replaced an entry of another position.
+	 */
+	private final LongAdder replacements = new LongAdder();
+
+	/**
+	 * Current search generation, in the lowest 16 bits.
+	 */
+	private volatile int generation;
+
+	/**
+	 * Creates an empty table.
+	 *
+	 * @param entries Number of entries, rounded up to a power of two, at least 2.
+	 *                Every entry takes 24 bytes.
+	 */
+	public TranspositionTable(int entries) {
+		int size = Math.max(2, Integer.highestOneBit(Math.max(1, entries - 1)) << 1);
+		words = new AtomicLongArray(WORDS * size);
+		bucketMask = (size - 1) & ~1;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int getCapacity() {
+		return words.length() / WORDS;
+	}
+
+	/**
+	 * Starts a new search generation. Entries of the older generations are still
+	 * found, but are replaced first.
+	 */
+	public void nextGeneration() {
+		generation = (generation + 1) & 0xFFFF;
+	}
+
+	/**
+	 * Looks a position up.
+	 *
+	 * @param key   Hash of the position.
+	 * @param depth Number of tetrominos searched below the position.
+	 * @return Score of the position or NaN if it isn't stored with the depth.
+	 */
+	public double get(long key, int depth) {
+		int entry = (int) key & bucketMask;
+		for (int i = entry; i < entry + 2; i++) {
+			long check = words.getOpaque(WORDS * i);
+			long score = words.getOpaque(WORDS * i + 1);
+			long meta = words.getOpaque(WORDS * i + 2);
+			if ((check ^ score ^ meta) == key && meta != 0 && getDepth(meta) == depth) {
+				hits.increment();
+				return Double.longBitsToDouble(score);
+			}
+		}
+		misses.increment();
+		return Double.NaN;
+	}
+
+	/**
+	 * Stores the score of a position.
+	 *
+	 * @param key   Hash of the position.
+	 * @param depth Number of tetrominos searched below the position, at most 255.
+	 * @param score The score.
+	 */
+	public void put(long key, int depth, double score) {
+		int gen = generation;
+		long bits = Double.doubleToRawLongBits(score);
+		long meta = VALID | (long) gen << 8 | depth & 0xFF;
+		int entry = (int) key & bucketMask;
+		int victim = -1;
+		for (int i = entry; i < entry + 2 && victim < 0; i++) {
+			if (getKey(i) == key)
+				victim = i;
+		}
+		for (int i = entry; i < entry + 2 && victim < 0; i++) {
+			if (words.getOpaque(WORDS * i + 2) == 0)
+				victim = i;
+		}
+		if (victim < 0) {
+			long first = words.getOpaque(WORDS * entry + 2);
+			long second = words.getOpaque(WORDS * entry + WORDS + 2);
+			if (getGeneration(first) != gen && getGeneration(second) == gen
+					|| getGeneration(first) == getGeneration(second) && getDepth(first) < getDepth(second))
+				victim = entry;
+			else
+				victim = entry + 1;
+			replacements.increment();
+		}
+		words.setOpaque(WORDS * victim, key ^ bits ^ meta);
+		words.setOpaque(WORDS * victim + 1, bits);
+		words.setOpaque(WORDS * victim + 2, meta);
+		stores.increment();
+	}
+
+	/**
+	 * Removes all of the entries and resets the counters.
+	 */
+	public void clear() {
+		for (int i = 0; i < words.length(); i++)
+			words.setOpaque(i, 0);
+		hits.reset();
+		misses.reset();
+		stores.reset();
+		replacements.reset();
+	}
+
+	/**
+	 * @param index Index of the entry.
+	 * @return key the entry was stored with, garbage if the entry is torn
+	 */
+	private long getKey(int index) {
+		return words.getOpaque(WORDS * index) ^ words.getOpaque(WORDS * index + 1) ^ words.getOpaque(WORDS * index + 2);
+	}
+
+	/**
+	 * @param meta Depth and generation word of an entry.
+	 * @return number of tetrominos searched below the position
+	 */
+	private static int getDepth(long meta) {
+		return (int) meta & 0xFF;
+	}
+
+	/**
+	 * @param meta Depth and generation word of an entry.
+	 * @return search generation the entry was stored in
+	 */
+	private static int getGeneration(long meta) {
+		return (int) (meta >>> 8) & 0xFFFF;
+	}
+
+	/**
+	 * @return number of lookups that found the position
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return number of lookups that didn't find the position
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return number of stored entries
+	 */
+	public long getStores() {
+		return stores.sum();
+	}
+
+	/**
+	 * @return number of stored entries that replaced an entry of another
+	 *         position
+	 */
+	public long getReplacements() {
+		return replacements.sum();
+	}
+
+	/**
+	 * @return share of the lookups that found the position
+	 */
+	public double getHitRate() {
+		long h = getHits();
+		long total = h + getMisses();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %d hits, %d misses (%.1f%% hit rate), %d stores, %d replacements",
+				getCapacity(), getHits(), getMisses(), 100 * getHitRate(), getStores(), getReplacements());
+	}
+}
@@ -0,0 +1,138 @@
+package ai;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Feature extractor processing as many boards at once as there are int lanes
+ * in the widest vector of the CPU, with the <code>jdk.incubator.vector</code>
+ * API. Every lane holds the rows of one board. The column heights are counted
+ * by adding the mask of the columns reached so far to bit-sliced counters, so
+ * all of the columns are counted with a few instructions per row.
+ * <p>
+ * The class is loaded by reflection, so the rest of the package works without
+ * the incubator module. Boards wider than 30 columns or with more than 63 rows
+ * don't fit the lanes and are handled by the scalar extractor, as are the
+ * boards left over after the last full vector.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+final class VectorFeatureExtractor extends FeatureExtractor {
+	/**
+	 * Shape of the vectors.
+	 */
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	/**
+	 * Widest board that fits the lanes with both walls.
+	 */
+	private static final int MAX_WIDTH = 30;
+
+	/**
+	 * Highest board the bit-sliced counters can count.
+	 */
+	private static final int MAX_HEIGHT = 63;
+
+	/**
+	 * Extractor of the boards the lanes can't hold.
+	 */
+	private final ScalarFeatureExtractor scalar = new ScalarFeatureExtractor();
+
+	@Override
+	public String getName() {
+		return "vector" + SPECIES.length();
+	}
+
+	@Override
+	public void extract(BoardBatch batch, int from, int to) {
+		if (batch.getWidth() > MAX_WIDTH || batch.getHeight() > MAX_HEIGHT) {
+			scalar.extract(batch, from, to);
+			return;
+		}
+		int end = from + SPECIES.loopBound(to - from);
+		for (int i = from; i < end; i += SPECIES.length())
+			extract(batch, i);
+		scalar.extract(batch, end, to);
+	}
+
+	/**
+	 * Computes the features of a vector of boards.
+	 *
+	 * @param batch The batch.
+	 * @param from  Index of the first board.
+	 */
+	private static void extract(BoardBatch batch, int from) {
+		int width = batch.getWidth();
+		int height = batch.getHeight();
+		int capacity = batch.getCapacity();
+		int[] rows = batch.rows;
+		IntVector zero = IntVector.zero(SPECIES);
+		IntVector walls = IntVector.broadcast(SPECIES, 1 | 1 << (width + 1));
+		IntVector pairs = IntVector.broadcast(SPECIES, (1 << (width + 1)) - 1);
+		IntVector seen = zero;
+		IntVector holes = zero;
+		IntVector transitions = zero;
+		IntVector c0 = zero, c1 = zero, c2 = zero, c3 = zero, c4 = zero, c5 = zero;
+		for (int y = 0; y < height; y++) {
+			IntVector row = IntVector.fromArray(SPECIES, rows, y * capacity + from);
+			holes = holes.add(bitCount(seen.and(row.not())));
+			seen = seen.or(row);
+			IntVector carry = seen;
+			IntVector next = c0.and(carry);
+			c0 = c0.lanewise(VectorOperators.XOR, carry);
+			carry = next;
+			next = c1.and(carry);
+			c1 = c1.lanewise(VectorOperators.XOR, carry);
+			carry = next;
+			next = c2.and(carry);
+			c2 = c2.lanewise(VectorOperators.XOR, carry);
+			carry = next;
+			next = c3.and(carry);
+			c3 = c3.lanewise(VectorOperators.XOR, carry);
+			carry = next;
+			next = c4.and(carry);
+			c4 = c4.lanewise(VectorOperators.XOR, carry);
+			c5 = c5.lanewise(VectorOperators.XOR, next);
+			IntVector tiles = row.lanewise(VectorOperators.LSHL, 1).or(walls);
+			transitions = transitions.add(bitCount(tiles.lanewise(VectorOperators.XOR,
+					tiles.lanewise(VectorOperators.LSHR, 1)).and(pairs)));
+		}
+		int[] heights = batch.columnHeights;
+		for (int x = 0; x < width; x++) {
+			IntVector h = c0.lanewise(VectorOperators.LSHR, x).and(1)
+					.or(c1.lanewise(VectorOperators.LSHR, x).and(1).lanewise(VectorOperators.LSHL, 1))
+					.or(c2.lanewise(VectorOperators.LSHR, x).and(1).lanewise(VectorOperators.LSHL, 2))
+					.or(c3.lanewise(VectorOperators.LSHR, x).and(1).lanewise(VectorOperators.LSHL, 3))
+					.or(c4.lanewise(VectorOperators.LSHR, x).and(1).lanewise(VectorOperators.LSHL, 4))
+					.or(c5.lanewise(VectorOperators.LSHR, x).and(1).lanewise(VectorOperators.LSHL, 5));
+			h.intoArray(heights, x * capacity + from);
+		}
+		IntVector wall = IntVector.broadcast(SPECIES, height);
+		IntVector wells = zero;
+		IntVector left = wall;
+		IntVector middle = IntVector.fromArray(SPECIES, heights, from);
+		for (int x = 0; x < width; x++) {
+			IntVector right = x < width - 1 ? IntVector.fromArray(SPECIES, heights, (x + 1) * capacity + from) : wall;
+			wells = wells.add(left.min(right).sub(middle).max(zero));
+			left = middle;
+			middle = right;
+		}
+		holes.intoArray(batch.holes, from);
+		transitions.intoArray(batch.rowTransitions, from);
+		wells.intoArray(batch.wells, from);
+	}
+
+	/**
+	 * Counts the set bits of every lane.
+	 *
+	 * @param v The vector.
+	 * @return Vector of the numbers of set bits.
+	 */
+	private static IntVector bitCount(IntVector v) {
+		v = v.sub(v.lanewise(VectorOperators.LSHR, 1).and(0x55555555));
+		v = v.and(0x33333333).add(v.lanewise(VectorOperators.LSHR, 2).and(0x33333333));
+		v = v.add(v.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F);
+		return v.mul(0x01010101).lanewise(VectorOperators.LSHR, 24);
+	}
+}
@@ -0,0 +1,490 @@
+package ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import game.Board;
+import game.GameState;
+import simulation.BatchSimulator;
+import simulation.SimulationResult;
+
+/**
+ * Tunes the weights of the {@link ai.HeuristicEvaluator} with the cross-entropy
+ * method. Every generation samples candidate weights from a normal
+ * distribution, plays the same seeded games with every candidate and moves the
+ * distribution to the mean and deviation of the candidates with the best mean
+ * fitness. A small extra deviation, shrinking over the first generations, keeps
+ * the distribution from collapsing too early.
+ * <p>
+ * The fitness of a game is its points: one for every locked tetromino, so a
+ * candidate surviving longer scores more, and 4, 16, 64 or 256 for removing 1
+ * to 4 rows at once. The rows removed alone don't tell the candidates apart
+ * once most of them survive to the maximum number of tetrominos, because they
+ * all remove about 0.4 rows per tetromino; the points prefer the ones removing
+ * more rows at once. Ties are broken by the aggregate height of the final
+ * stack, subtracted as a fraction of the board below one point, so a lower
+ * stack wins.
+ * <p>
+ * The games of all the candidates of a generation are played in parallel on a
+ * fork-join pool, one game per task, so idle threads steal the games of the
+ * others. The searches of a game run in the thread playing it, so they never
+ * pick up other games while waiting for their own subtasks. The distribution
+ * and the best weights found can be saved into a checkpoint after every
+ * generation and the run resumed from it.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class WeightTuner {
+	/**
+	 * First bytes of a checkpoint file.
+	 */
+	private static final int CHECKPOINT_MAGIC = 0x54554E45;
+
+	/**
+	 * Version of the checkpoint format.
+	 */
+	private static final int CHECKPOINT_VERSION = 3;
+
+	/**
+	 * Deviation of the weights in the first generation.
+	 */
+	private static final double INITIAL_DEVIATION = 0.5;
+
+	/**
+	 * Extra deviation added to the weights in the first generation.
+	 */
+	private static final double NOISE = 0.1;
+
+	/**
+	 * Number of generations over which the extra deviation shrinks to zero.
+	 */
+	private static final int NOISE_GENERATIONS = 50;
+
+	/**
+	 * Pool the games are played on.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Number of candidates in a generation.
+	 */
+	private final int population;
+
+	/**
+	 * Number of games played by every candidate.
+	 */
+	private final int games;
+
+	/**
+	 * Seed from which the seeds of the games and of the candidates are derived.
+	 */
+	private final long baseSeed;
+
+	/**
+	 * Number of best candidates the next distribution is computed from.
+	 */
+	private int elite;
+
+	/**
+	 * Number of tetrominos placed per search.
+	 */
+	private int depth = 1;
+
+	/**
+	 * Number of spawned tetrominos after which a game is stopped.
+	 */
+	private int maxPieces = 1000;
+
+	/**
+	 * Number of finished generations.
+	 */
+	private int generation;
+
+	/**
+	 * Mean of the weights.
+	 */
+	private final double[] mean;
+
+	/**
+	 * Deviation of every weight.
+	 */
+	private final double[] deviation = new double[HeuristicEvaluator.FEATURES];
+
+	/**
+	 * Weights of the best candidate so far.
+	 */
+	private double[] bestWeights;
+
+	/**
+	 * Mean fitness of the best candidate so far.
+	 */
+	private double bestFitness = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Creates a tuner starting at the standard weights.
+	 *
+	 * @param population Number of candidates in a generation.
+	 * @param games      Number of games played by every candidate.
+	 * @param baseSeed   Seed from which the seeds of the games and of the
+	 *                   candidates are derived.
+	 * @param pool       Pool the games are played on.
+	 * @throws IllegalArgumentException when the population has fewer than 2
+	 *                                  candidates or there are no games.
+	 */
+	public WeightTuner(int population, int games, long baseSeed, ForkJoinPool pool) {
+		if (population < 2 || games < 1)
+			throw new IllegalArgumentException("At least 2 candidates and 1 game are needed.");
+		this.population = population;
+		this.games = games;
+		this.baseSeed = baseSeed;
+		this.pool = pool;
+		elite = Math.max(2, population / 10);
+		mean = HeuristicEvaluator.standard().getWeights();
+		bestWeights = mean.clone();
+		Arrays.fill(deviation, INITIAL_DEVIATION);
+	}
+
+	/**
+	 * @param elite number of best candidates the next distribution is computed
+	 *              from
+	 * @throws IllegalArgumentException when it isn't between 1 and the
+	 *                                  population.
+	 */
+	public void setElite(int elite) {
+		if (elite < 1 || elite > population)
+			throw new IllegalArgumentException("Elite must be between 1 and " + population + ".");
+		this.elite = elite;
+	}
+
+	/**
+	 * @param depth number of tetrominos placed per search
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * @param maxPieces number of spawned tetrominos after which a game is stopped
+	 */
+	public void setMaxPieces(int maxPieces) {
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * @return number of finished generations
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return the mean of the weights
+	 */
+	public double[] getMean() {
+		return mean.clone();
+	}
+
+	/**
+	 * @return the weights of the best candidate so far
+	 */
+	public double[] getBestWeights() {
+		return bestWeights.clone();
+	}
+
+	/**
+	 * @return the mean fitness of the best candidate so far
+	 */
+	public double getBestFitness() {
+		return bestFitness;
+	}
+
+	/**
+	 * Samples the candidates of the next generation, plays their games and moves
+	 * the distribution towards the best of them.
+	 *
+	 * @return The results of all the games of the generation.
+	 */
+	public SimulationResult step() {
+		double[][] candidates = sample();
+		int[] points = new int[population * games];
+		int[] lines = new int[population * games];
+		int[] pieces = new int[population * games];
+		double[] scores = new double[population * games];
+		long start = System.nanoTime();
+		pool.invoke(new GamesTask(simulators(candidates), 0, population * games, points, lines, pieces, scores));
+		SimulationResult result = new SimulationResult(points, lines, pieces, System.nanoTime() - start);
+		double[] fitness = new double[population];
+		for (int i = 0; i < scores.length; i++)
+			fitness[i / games] += scores[i];
+		Integer[] order = new Integer[population];
+		for (int c = 0; c < population; c++) {
+			fitness[c] /= games;
+			order[c] = c;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+		if (fitness[order[0]] > bestFitness) {
+			bestFitness = fitness[order[0]];
+			bestWeights = candidates[order[0]];
+		}
+		double noise = NOISE * Math.max(0, 1 - (double) generation / NOISE_GENERATIONS);
+		for (int w = 0; w < mean.length; w++) {
+			double sum = 0;
+			for (int e = 0; e < elite; e++)
+				sum += candidates[order[e]][w];
+			mean[w] = sum / elite;
+			double variance = 0;
+			for (int e = 0; e < elite; e++) {
+				double d = candidates[order[e]][w] - mean[w];
+				variance += d * d;
+			}
+			deviation[w] = Math.sqrt(variance / elite + noise * noise);
+		}
+		generation++;
+		return result;
+	}
+
+	/**
+	 * Samples the candidates of the current generation. The samples depend only
+	 * on the seed, the generation and the distribution, so a resumed run samples
+	 * the same candidates.
+	 *
+	 * @return The weights of every candidate.
+	 */
+	private double[][] sample() {
+		Random random = new Random(BatchSimulator.gameSeed(~baseSeed, generation));
+		double[][] candidates = new double[population][mean.length];
+		for (double[] candidate : candidates) {
+			for (int w = 0; w < mean.length; w++)
+				candidate[w] = mean[w] + deviation[w] * random.nextGaussian();
+		}
+		return candidates;
+	}
+
+	/**
+	 * Creates the simulators of the candidates.
+	 *
+	 * @param candidates The weights of every candidate.
+	 * @return Simulator playing the games of every candidate.
+	 */
+	private BatchSimulator[] simulators(double[][] candidates) {
+		BatchSimulator[] simulators = new BatchSimulator[candidates.length];
+		for (int c = 0; c < candidates.length; c++) {
+			HeuristicEvaluator evaluator = new HeuristicEvaluator(candidates[c]);
+			simulators[c] = new BatchSimulator(() -> {
+				PlacementSearch search = new PlacementSearch(evaluator);
+				search.setMaxDepth(depth);
+				return new BotPolicy(search, Long.MAX_VALUE);
+			}, games, baseSeed);
+			simulators[c].setMaxPieces(maxPieces);
+		}
+		return simulators;
+	}
+
+	/**
+	 * Scores a finished game: its points less the aggregate height of the final
+	 * stack as a fraction of the board, which is below one point.
+	 *
+	 * @param state The finished game.
+	 * @return The fitness.
+	 */
+	static double fitness(GameState state) {
+		Board board = state.getBoard();
+		return state.getPoints()
+				- (double) HeuristicEvaluator.aggregateHeight(board) / (board.getWidth() * board.getHeight() + 1);
+	}
+
+	/**
+	 * Saves the settings the games are played with, the generation, the
+	 * distribution and the best weights. The file is written next to the
+	 * checkpoint and moved over it, so a run stopped while saving keeps the
+	 * previous checkpoint.
+	 *
+	 * @param path The checkpoint file.
+	 * @throws IOException when the file can't be written.
+	 */
+	public void save(Path path) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(CHECKPOINT_VERSION);
+			out.writeLong(baseSeed);
+			out.writeInt(population);
+			out.writeInt(games);
+			out.writeInt(depth);
+			out.writeInt(maxPieces);
+			out.writeInt(generation);
+			out.writeInt(mean.length);
+			for (int w = 0; w < mean.length; w++) {
+				out.writeDouble(mean[w]);
+				out.writeDouble(deviation[w]);
+				out.writeDouble(bestWeights[w]);
+			}
+			out.writeDouble(bestFitness);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Restores the generation, the distribution and the best weights saved by
+	 * {@link ai.WeightTuner#save(Path)}.
+	 *
+	 * @param path The checkpoint file.
+	 * @throws IOException when the file can't be read, isn't a checkpoint or was
+	 *                     saved by a tuner with a different seed, population,
+	 *                     number of games, search depth or maximum number of
+	 *                     tetrominos per game, whose fitness isn't comparable.
+	 */
+	public void load(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+				throw new IOException(path + " isn't a tuner checkpoint.");
+			if (in.readLong() != baseSeed || in.readInt() != population || in.readInt() != games)
+				throw new IOException(path + " was saved with a different seed, population or number of games.");
+			if (in.readInt() != depth || in.readInt() != maxPieces)
+				throw new IOException(path + " was saved with a different search depth or game length.");
+			int savedGeneration = in.readInt();
+			if (in.readInt() != mean.length)
+				throw new IOException(path + " has a different number of weights.");
+			double[] savedBest = new double[mean.length];
+			for (int w = 0; w < mean.length; w++) {
+				mean[w] = in.readDouble();
+				deviation[w] = in.readDouble();
+				savedBest[w] = in.readDouble();
+			}
+			bestFitness = in.readDouble();
+			bestWeights = savedBest;
+			generation = savedGeneration;
+		}
+	}
+
+	/**
+	 * Task playing a range of the games of all the candidates, split in halves
+	 * down to single games. Game <code>i</code> is game <code>i % games</code> of
+	 * candidate <code>i / games</code>.
+	 */
+	private class GamesTask extends RecursiveAction {
+		/**
+		 * Version of the serialized form.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Simulator of every candidate.
+		 */
+		private final BatchSimulator[] simulators;
+
+		/**
+		 * Index of the first game.
+		 */
+		private final int from;
+
+		/**
+		 * Index after the last game.
+		 */
+		private final int to;
+
+		/**
+		 * Points of every game.
+		 */
+		private final int[] points;
+
+		/**
+		 * Rows removed in every game.
+		 */
+		private final int[] lines;
+
+		/**
+		 * Tetrominos spawned in every game.
+		 */
+		private final int[] pieces;
+
+		/**
+		 * Fitness of every game.
+		 */
+		private final double[] scores;
+
+		/**
+		 * Creates the task.
+		 *
+		 * @param simulators Simulator of every candidate.
+		 * @param from       Index of the first game.
+		 * @param to         Index after the last game.
+		 * @param points     Points of every game.
+		 * @param lines      Rows removed in every game.
+		 * @param pieces     Tetrominos spawned in every game.
+		 * @param scores     Fitness of every game.
+		 */
+		GamesTask(BatchSimulator[] simulators, int from, int to, int[] points, int[] lines, int[] pieces,
+				double[] scores) {
+			this.simulators = simulators;
+			this.from = from;
+			this.to = to;
+			this.points = points;
+			this.lines = lines;
+			this.pieces = pieces;
+			this.scores = scores;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				GameState state = simulators[from / games].simulate(BatchSimulator.gameSeed(baseSeed, from % games));
+				points[from] = state.getPoints();
+				lines[from] = state.getLines();
+				pieces[from] = state.getPieces();
+				scores[from] = fitness(state);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new GamesTask(simulators, from, middle, points, lines, pieces, scores),
+					new GamesTask(simulators, middle, to, points, lines, pieces, scores));
+		}
+	}
+
+	/**
+	 * Tunes the weights and prints the best weights and the throughput of every
+	 * generation. When the checkpoint file exists, the run is resumed from it.
+	 *
+	 * @param args Checkpoint file, number of generations to run, candidates per
+	 *             generation, games per candidate, base seed, maximum number of
+	 *             tetrominos per game and number of threads. All are optional.
+	 * @throws IOException when the checkpoint can't be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		Path checkpoint = Paths.get(args.length > 0 ? args[0] : "tuner.bin");
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int population = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		int games = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+		int maxPieces = args.length > 5 ? Integer.parseInt(args[5]) : 500;
+		int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		WeightTuner tuner = new WeightTuner(population, games, seed, pool);
+		tuner.setMaxPieces(maxPieces);
+		if (Files.exists(checkpoint)) {
+			tuner.load(checkpoint);
+			System.out.println("resumed after generation " + tuner.getGeneration());
+		}
+		for (int i = 0; i < generations; i++) {
+			SimulationResult result = tuner.step();
+			tuner.save(checkpoint);
+			System.out.println(String.format(
+					"generation %d: points per game %.2f, lines per game %.2f, best %.2f %s, mean %s, %.1f games/s, %.1f pieces/s",
+					tuner.getGeneration(), result.getMeanPoints(), result.getMeanLines(), tuner.getBestFitness(),
+					Arrays.toString(tuner.getBestWeights()), Arrays.toString(tuner.getMean()),
+					result.getGamesPerSecond(), result.getPiecesPerSecond()));
+		}
+		pool.shutdown();
+	}
+}
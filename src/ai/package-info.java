@@ -0,0 +1,5 @@
+/**
+ * Package containing the computer player: placement generation, board evaluation and search.
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+package ai;
\ No newline at end of file
@@ -0,0 +1,275 @@
+package game;
+
+/**
+ * Delayed auto shift and auto repeat of the held movement keys. A pressed left
+ * or right key moves the tetromino once, after the shift delay it starts moving
+ * it again at the repeat rate until the key is released. When both are held the
+ * one pressed last wins, releasing it restarts the delay of the other one. A
+ * held down key moves the tetromino down at the soft drop rate without any
+ * delay. A rate of 0 moves the tetromino as far as it
+ * can go at once. The moves are scheduled from the timestamps of the key
+ * events, so the number of moves depends only on how long a key is held, not on
+ * when {@link game.AutoShift#update(GameState, long)} is called. Repeated
+ * presses of a held key, e.g. by the operating system's key repeat, are
+ * ignored.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Command
+ */
+public class AutoShift {
+	/**
+	 * Delay in nanoseconds between the press of a horizontal key and the first
+	 * repeated move.
+	 */
+	private final long delayNanos;
+
+	/**
+	 * Time in nanoseconds between two repeated horizontal moves.
+	 */
+	private final long repeatNanos;
+
+	/**
+	 * Time in nanoseconds between two soft drop moves.
+	 */
+	private final long softDropNanos;
+
+	/**
+	 * Determines whether the left key is held.
+	 */
+	private boolean leftHeld;
+
+	/**
+	 * Determines whether the right key is held.
+	 */
+	private boolean rightHeld;
+
+	/**
+	 * Determines whether the down key is held.
+	 */
+	private boolean downHeld;
+
+	/**
+	 * The repeated horizontal move, null if no horizontal key is held.
+	 */
+	private Command shift;
+
+	/**
+	 * Time of the press of the key of the repeated horizontal move.
+	 */
+	private long shiftStart;
+
+	/**
+	 * Number of repeated horizontal moves already scheduled since the press.
+	 */
+	private long shiftMoves;
+
+	/**
+	 * Time of the press of the down key.
+	 */
+	private long dropStart;
+
+	/**
+	 * Number of soft drop moves already scheduled since the press.
+	 */
+	private long dropMoves;
+
+	/**
+	 * Number of performed repeated moves.
+	 */
+	private long repeats;
+
+	/**
+	 * Sum of the delays in nanoseconds between the scheduled and the actual time
+	 * of the performed repeated moves.
+	 */
+	private long totalLagNanos;
+
+	/**
+	 * The greatest delay in nanoseconds between the scheduled and the actual time
+	 * of a repeated move.
+	 */
+	private long maxLagNanos;
+
+	/**
+	 * Creates the auto shift with no keys held.
+	 *
+	 * @param delayMicros     Delay in microseconds between the press of a
+	 *                        horizontal key and the first repeated move.
+	 * @param repeatMicros    Time in microseconds between two repeated horizontal
+	 *                        moves, 0 for moving all the way at once.
+	 * @param softDropMicros  Time in microseconds between two soft drop moves, 0
+	 *                        for moving all the way down at once.
+	 */
+	public AutoShift(long delayMicros, long repeatMicros, long softDropMicros) {
+		this.delayNanos = delayMicros * 1000;
+		this.repeatNanos = repeatMicros * 1000;
+		this.softDropNanos = softDropMicros * 1000;
+	}
+
+	/**
+	 * Applies the command to the game, tracking the presses and releases of the
+	 * movement keys. The repeated moves due before a press or release are
+	 * performed first. Other commands are passed to
+	 * {@link game.GameState#execute(Command)}.
+	 *
+	 * @param state          The game.
+	 * @param command        The command.
+	 * @param timestampNanos Value of {@link java.lang.System#nanoTime()} at which
+	 *                       the key was pressed or released.
+	 * @return true if the tetromino moved, false otherwise.
+	 */
+	public boolean handle(GameState state, Command command, long timestampNanos) {
+		switch (command) {
+		case MOVE_LEFT:
+		case MOVE_RIGHT:
+		case MOVE_DOWN:
+		case RELEASE_LEFT:
+		case RELEASE_RIGHT:
+		case RELEASE_DOWN:
+			update(state, timestampNanos);
+			break;
+		default:
+			break;
+		}
+		switch (command) {
+		case MOVE_LEFT:
+			if (leftHeld)
+				return false;
+			leftHeld = true;
+			startShift(Command.MOVE_LEFT, timestampNanos);
+			return state.execute(command);
+		case MOVE_RIGHT:
+			if (rightHeld)
+				return false;
+			rightHeld = true;
+			startShift(Command.MOVE_RIGHT, timestampNanos);
+			return state.execute(command);
+		case MOVE_DOWN:
+			if (downHeld)
+				return false;
+			downHeld = true;
+			dropStart = timestampNanos;
+			dropMoves = 0;
+			return state.execute(command);
+		case RELEASE_LEFT:
+			leftHeld = false;
+			if (shift == Command.MOVE_LEFT)
+				startShift(rightHeld ? Command.MOVE_RIGHT : null, timestampNanos);
+			return false;
+		case RELEASE_RIGHT:
+			rightHeld = false;
+			if (shift == Command.MOVE_RIGHT)
+				startShift(leftHeld ? Command.MOVE_LEFT : null, timestampNanos);
+			return false;
+		case RELEASE_DOWN:
+			downHeld = false;
+			return false;
+		default:
+			return state.execute(command);
+		}
+	}
+
+	/**
+	 * Starts the delay of the repeated horizontal move.
+	 *
+	 * @param command        The move, null if no horizontal key is held.
+	 * @param timestampNanos Time of the key event.
+	 */
+	private void startShift(Command command, long timestampNanos) {
+		shift = command;
+		shiftStart = timestampNanos;
+		shiftMoves = 0;
+	}
+
+	/**
+	 * Performs the repeated moves scheduled up to the given time.
+	 *
+	 * @param state    The game.
+	 * @param nowNanos Current value of {@link java.lang.System#nanoTime()}.
+	 * @return number of performed moves.
+	 */
+	public int update(GameState state, long nowNanos) {
+		int moved = 0;
+		if (shift != null && nowNanos - shiftStart >= delayNanos) {
+			long firstDue = shiftStart + delayNanos;
+			if (repeatNanos == 0) {
+				moved += repeat(state, shift, Long.MAX_VALUE, shiftMoves == 0 ? firstDue : nowNanos, 0, nowNanos);
+				shiftMoves = 1;
+			} else {
+				long due = (nowNanos - firstDue) / repeatNanos + 1;
+				moved += repeat(state, shift, due - shiftMoves, firstDue + shiftMoves * repeatNanos, repeatNanos,
+						nowNanos);
+				shiftMoves = due;
+			}
+		}
+		if (downHeld && nowNanos - dropStart >= softDropNanos) {
+			if (softDropNanos == 0) {
+				moved += repeat(state, Command.MOVE_DOWN, Long.MAX_VALUE, dropMoves == 0 ? dropStart : nowNanos, 0,
+						nowNanos);
+				dropMoves = 1;
+			} else {
+				long due = (nowNanos - dropStart) / softDropNanos;
+				moved += repeat(state, Command.MOVE_DOWN, due - dropMoves,
+						dropStart + (dropMoves + 1) * softDropNanos, softDropNanos, nowNanos);
+				dropMoves = due;
+			}
+		}
+		return moved;
+	}
+
+	/**
+	 * Performs a number of repeated moves, stopping at the first one that fails.
+	 *
+	 * @param state       The game.
+	 * @param command     The move.
+	 * @param count       Number of moves.
+	 * @param firstDue    Scheduled time of the first move.
+	 * @param periodNanos Time between two scheduled moves.
+	 * @param nowNanos    Current time.
+	 * @return number of performed moves.
+	 */
+	private int repeat(GameState state, Command command, long count, long firstDue, long periodNanos,
+			long nowNanos) {
+		int moved = 0;
+		while (moved < count && state.execute(command)) {
+			long lag = nowNanos - (firstDue + moved * periodNanos);
+			totalLagNanos += lag;
+			if (lag > maxLagNanos)
+				maxLagNanos = lag;
+			moved++;
+		}
+		repeats += moved;
+		return moved;
+	}
+
+	/**
+	 * Releases all of the keys.
+	 */
+	public void reset() {
+		leftHeld = rightHeld = downHeld = false;
+		shift = null;
+	}
+
+	/**
+	 * @return number of performed repeated moves
+	 */
+	public long getRepeats() {
+		return repeats;
+	}
+
+	/**
+	 * @return mean delay in nanoseconds between the scheduled and the actual time
+	 *         of the repeated moves, 0 if there were none
+	 */
+	public double getMeanLagNanos() {
+		return repeats == 0 ? 0 : (double) totalLagNanos / repeats;
+	}
+
+	/**
+	 * @return the greatest delay in nanoseconds between the scheduled and the
+	 *         actual time of a repeated move
+	 */
+	public long getMaxLagNanos() {
+		return maxLagNanos;
+	}
+}
@@ -0,0 +1,556 @@
+package game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bitboard representation of the grid. Every row is stored as a single int
+ * mask where bit x is set if the tile in column x is occupied. A parallel array
+ * holds the palette index of every tile's color. The board also keeps a
+ * column index: an occupancy bitset and the height of every column, updated
+ * whenever the tiles change, so the distance a tile can fall is found with a
+ * few array lookups. Every change increases the version of the board and
+ * stamps the changed rows with it, so a renderer can tell which rows it has to
+ * draw again.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Palette
+ */
+public class Board {
+	/**
+	 * Maximum number of columns that fit into a row mask.
+	 */
+	public static final int MAX_WIDTH = 32;
+
+	/**
+	 * Number of columns.
+	 */
+	private final int width;
+
+	/**
+	 * Number of rows.
+	 */
+	private final int height;
+
+	/**
+	 * Row mask with all of the columns occupied.
+	 */
+	private final int fullRowMask;
+
+	/**
+	 * Occupancy masks of the rows. Row 0 is the top row.
+	 */
+	private final int[] rows;
+
+	/**
+	 * Palette indices of the tiles, stored row by row.
+	 */
+	private final byte[] colors;
+
+	/**
+	 * Number of longs used for the occupancy bitset of a single column.
+	 */
+	private final int columnWords;
+
+	/**
+	 * Occupancy bitsets of the columns. Bit y of column x is stored in
+	 * columns[x * columnWords + y / 64].
+	 */
+	private final long[] columns;
+
+	/**
+	 * Heights of the columns, i.e. number of rows between the bottom of the board
+	 * and the top edge of the highest occupied tile in the column.
+	 */
+	private final int[] heights;
+
+	/**
+	 * Version of the board, increased on every change.
+	 */
+	private long version;
+
+	/**
+	 * Version of the board at the last change of every row.
+	 */
+	private final long[] rowVersions;
+
+	/**
+	 * Zobrist hash of the occupied tiles, unless it's stale.
+	 */
+	private long hash;
+
+	/**
+	 * Set when rows were moved since the hash was computed, the hash is then
+	 * computed again when it's needed.
+	 */
+	private boolean hashStale;
+
+	/**
+	 * Creates a new empty board.
+	 *
+	 * @param width  Number of columns, at most {@link game.Board#MAX_WIDTH}.
+	 * @param height Number of rows.
+	 * @throws IllegalArgumentException when the dimensions are not supported.
+	 */
+	public Board(int width, int height) {
+		if (width <= 0 || width > MAX_WIDTH || height <= 0)
+			throw new IllegalArgumentException("Unsupported board size " + width + "x" + height + ".");
+		this.width = width;
+		this.height = height;
+		this.fullRowMask = width == MAX_WIDTH ? -1 : (1 << width) - 1;
+		this.rows = new int[height];
+		this.colors = new byte[width * height];
+		this.columnWords = (height + 63) >>> 6;
+		this.columns = new long[width * columnWords];
+		this.heights = new int[width];
+		this.rowVersions = new long[height];
+	}
+
+	/**
+	 * @return the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the row mask with all of the columns occupied
+	 */
+	public int getFullRowMask() {
+		return fullRowMask;
+	}
+
+	/**
+	 * @return the version of the board, increased on every change
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the version of the board at the last change of the row.
+	 *
+	 * @param y Row index.
+	 * @return The version, 0 if the row has never changed.
+	 */
+	public long getRowVersion(int y) {
+		return rowVersions[y];
+	}
+
+	/**
+	 * Increases the version of the board and stamps the rows with it. Used also
+	 * for changes drawn over the board that aren't stored in it, such as the
+	 * spawned tetromino. Rows outside of the board are ignored.
+	 *
+	 * @param from Index of the first changed row.
+	 * @param to   Index of the last changed row.
+	 */
+	public void markRowsChanged(int from, int to) {
+		version++;
+		from = Math.max(from, 0);
+		to = Math.min(to, height - 1);
+		for (int y = from; y <= to; y++)
+			rowVersions[y] = version;
+	}
+
+	/**
+	 * Checks if the position lies within the board.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return true if the position is inside the board, false otherwise.
+	 */
+	public boolean isInside(int x, int y) {
+		return x >= 0 && y >= 0 && x < width && y < height;
+	}
+
+	/**
+	 * Checks if the tile at x, y is occupied. Positions outside of the board are
+	 * treated as occupied.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return true if the tile can't be entered, false otherwise.
+	 */
+	public boolean isOccupied(int x, int y) {
+		if (!isInside(x, y))
+			return true;
+		return (rows[y] & (1 << x)) != 0;
+	}
+
+	/**
+	 * Returns the occupancy mask of the row.
+	 *
+	 * @param y Row index.
+	 * @return Mask with bit x set if the tile in column x is occupied.
+	 */
+	public int getRow(int y) {
+		return rows[y];
+	}
+
+	/**
+	 * Checks if all of the tiles of <code>mask</code> shifted to row
+	 * <code>y</code> are inside the board and empty.
+	 *
+	 * @param y    Row index.
+	 * @param mask Row mask, already shifted to its column.
+	 * @return true if the tiles are free, false otherwise.
+	 */
+	public boolean isFree(int y, int mask) {
+		if (y < 0 || y >= height || (mask & ~fullRowMask) != 0)
+			return false;
+		return (rows[y] & mask) == 0;
+	}
+
+	/**
+	 * Returns the height of the column.
+	 *
+	 * @param x Column index.
+	 * @return Number of rows between the bottom of the board and the top edge of
+	 *         the highest occupied tile in the column.
+	 */
+	public int getColumnHeight(int x) {
+		return heights[x];
+	}
+
+	/**
+	 * Returns the first occupied row in the column at or below the given row.
+	 *
+	 * @param x Column index.
+	 * @param y Row index.
+	 * @return The occupied row or the board height if every tile from row
+	 *         <code>y</code> down is empty.
+	 */
+	public int nextOccupiedRow(int x, int y) {
+		int word = y >>> 6;
+		if (word >= columnWords)
+			return height;
+		int base = x * columnWords;
+		long bits = columns[base + word] & (-1L << (y & 63));
+		while (bits == 0) {
+			if (++word == columnWords)
+				return height;
+			bits = columns[base + word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * Returns the number of empty tiles directly below x, y.
+	 *
+	 * @param x Column index.
+	 * @param y Row index.
+	 * @return How many rows a tile at x, y can fall down.
+	 */
+	public int getDropDistance(int x, int y) {
+		return nextOccupiedRow(x, y + 1) - y - 1;
+	}
+
+	/**
+	 * Returns the palette index of the tile's color.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return Palette index or {@link game.Palette#EMPTY} if the tile is empty.
+	 */
+	public byte getColor(int x, int y) {
+		return colors[y * width + x];
+	}
+
+	/**
+	 * Marks the tile as occupied.
+	 *
+	 * @param x     X coordinate.
+	 * @param y     Y coordinate.
+	 * @param color Palette index of the tile's color.
+	 */
+	public void fill(int x, int y, byte color) {
+		int row = rows[y];
+		rows[y] = row | 1 << x;
+		if (!hashStale)
+			hash ^= Zobrist.row(y, row) ^ Zobrist.row(y, rows[y]);
+		colors[y * width + x] = color;
+		columns[x * columnWords + (y >>> 6)] |= 1L << y;
+		if (height - y > heights[x])
+			heights[x] = height - y;
+		rowVersions[y] = ++version;
+	}
+
+	/**
+	 * Marks the tile as empty.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 */
+	public void clear(int x, int y) {
+		int row = rows[y];
+		rows[y] = row & ~(1 << x);
+		if (!hashStale)
+			hash ^= Zobrist.row(y, row) ^ Zobrist.row(y, rows[y]);
+		colors[y * width + x] = Palette.EMPTY;
+		columns[x * columnWords + (y >>> 6)] &= ~(1L << y);
+		if (height - y == heights[x])
+			heights[x] = height - nextOccupiedRow(x, y);
+		rowVersions[y] = ++version;
+	}
+
+	/**
+	 * Empties the whole board.
+	 */
+	public void clear() {
+		for (int y = 0; y < height; y++)
+			rows[y] = 0;
+		for (int i = 0; i < colors.length; i++)
+			colors[i] = Palette.EMPTY;
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = 0;
+		for (int x = 0; x < width; x++)
+			heights[x] = 0;
+		hash = 0;
+		hashStale = false;
+		markRowsChanged(0, height - 1);
+	}
+
+	/**
+	 * Makes this board an exact copy of the other board.
+	 *
+	 * @param other Board of the same size.
+	 * @throws IllegalArgumentException when the boards differ in size.
+	 */
+	public void copyFrom(Board other) {
+		if (other.width != width || other.height != height)
+			throw new IllegalArgumentException("Boards differ in size.");
+		System.arraycopy(other.rows, 0, rows, 0, height);
+		System.arraycopy(other.colors, 0, colors, 0, colors.length);
+		System.arraycopy(other.columns, 0, columns, 0, columns.length);
+		System.arraycopy(other.heights, 0, heights, 0, width);
+		hash = other.hash;
+		hashStale = other.hashStale;
+		markRowsChanged(0, height - 1);
+	}
+
+	/**
+	 * Replaces the tiles of a row. The column index and heights are updated only
+	 * for the columns whose occupancy changed, an identical row is left as it is.
+	 *
+	 * @param y          Row index.
+	 * @param mask       Occupancy mask of the row.
+	 * @param rowColors  Palette indices of the row's tiles.
+	 * @param colorStart Index of the first tile in <code>rowColors</code>.
+	 */
+	public void setRow(int y, int mask, byte[] rowColors, int colorStart) {
+		mask &= fullRowMask;
+		int changed = rows[y] ^ mask;
+		int start = y * width;
+		if (changed == 0) {
+			boolean same = true;
+			for (int x = 0; x < width && same; x++)
+				same = colors[start + x] == rowColors[colorStart + x];
+			if (same)
+				return;
+		}
+		if (!hashStale)
+			hash ^= Zobrist.row(y, rows[y]) ^ Zobrist.row(y, mask);
+		rows[y] = mask;
+		System.arraycopy(rowColors, colorStart, colors, start, width);
+		for (int bits = changed; bits != 0; bits &= bits - 1) {
+			int x = Integer.numberOfTrailingZeros(bits);
+			columns[x * columnWords + (y >>> 6)] ^= 1L << y;
+			heights[x] = height - nextOccupiedRow(x, 0);
+		}
+		rowVersions[y] = ++version;
+	}
+
+	/**
+	 * Writes the tiles at the buffer's position: the occupancy masks of the rows
+	 * followed by the palette indices of the tiles.
+	 *
+	 * @param buffer Buffer with at least {@link game.Board#getSerializedSize()}
+	 *               bytes remaining.
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		for (int y = 0; y < height; y++)
+			buffer.putInt(rows[y]);
+		buffer.put(colors);
+	}
+
+	/**
+	 * Reads the tiles written by {@link game.Board#writeTo(ByteBuffer)} from the
+	 * buffer's position. The column index and heights are rebuilt from the rows.
+	 *
+	 * @param buffer Buffer holding a board of the same size.
+	 */
+	public void readFrom(ByteBuffer buffer) {
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = 0;
+		for (int y = 0; y < height; y++) {
+			int row = buffer.getInt() & fullRowMask;
+			rows[y] = row;
+			for (int bits = row; bits != 0; bits &= bits - 1)
+				columns[Integer.numberOfTrailingZeros(bits) * columnWords + (y >>> 6)] |= 1L << y;
+		}
+		buffer.get(colors);
+		for (int x = 0; x < width; x++)
+			heights[x] = height - nextOccupiedRow(x, 0);
+		hashStale = true;
+		markRowsChanged(0, height - 1);
+	}
+
+	/**
+	 * @return number of bytes written by {@link game.Board#writeTo(ByteBuffer)}
+	 */
+	public int getSerializedSize() {
+		return 4 * height + colors.length;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the occupied tiles. Boards with the same
+	 * occupied tiles have the same hash, the colors are not taken into account.
+	 * Filling or clearing a tile updates the hash by the keys of its row. Removing
+	 * rows moves every row above them, so the hash is then computed again from
+	 * the rows, but only when it's asked for.
+	 *
+	 * @return The hash.
+	 * @see game.Zobrist
+	 */
+	public long getHash() {
+		if (hashStale) {
+			hash = rowsHash(0, height - 1);
+			hashStale = false;
+		}
+		return hash;
+	}
+
+	/**
+	 * Computes the Zobrist hash of the occupied tiles of a range of rows.
+	 *
+	 * @param from Index of the first row.
+	 * @param to   Index of the last row.
+	 * @return The hash.
+	 */
+	private long rowsHash(int from, int to) {
+		long h = 0;
+		for (int y = from; y <= to; y++)
+			h ^= Zobrist.row(y, rows[y]);
+		return h;
+	}
+
+	/**
+	 * Checks if the row is filled with tiles.
+	 *
+	 * @param y Row index.
+	 * @return true if every tile of the row is occupied, false otherwise.
+	 */
+	public boolean isRowFull(int y) {
+		return rows[y] == fullRowMask;
+	}
+
+	/**
+	 * Removes rows filled with tiles. Rows above a removed row are moved down and
+	 * empty rows are inserted at the top.
+	 *
+	 * @return number of rows removed.
+	 */
+	public int removeFullRows() {
+		return removeFullRows(null);
+	}
+
+	/**
+	 * Removes rows filled with tiles. The full rows are found in a single scan
+	 * from the bottom of the board and the remaining rows are moved down in the
+	 * same pass, every run of rows between two full rows is moved at once. Rows
+	 * above the highest occupied tile are not visited.
+	 *
+	 * @param removedRows Array receiving the indices the removed rows had before
+	 *                    the removal, from the bottom up. May be null or shorter
+	 *                    than the number of removed rows, then only the indices
+	 *                    that fit are stored.
+	 * @return number of rows removed.
+	 */
+	public int removeFullRows(int[] removedRows) {
+		int top = height;
+		for (int x = 0; x < width; x++)
+			top = Math.min(top, height - heights[x]);
+		int rowsRemoved = 0;
+		int lowestRemoved = 0;
+		long removedMask = 0;
+		int y = height - 1;
+		while (y >= top) {
+			if (rows[y] == fullRowMask) {
+				if (rowsRemoved == 0)
+					lowestRemoved = y;
+				if (removedRows != null && rowsRemoved < removedRows.length)
+					removedRows[rowsRemoved] = y;
+				if (columnWords == 1)
+					removedMask |= 1L << y;
+				else
+					removeColumnsRow(y + rowsRemoved);
+				rowsRemoved++;
+				y--;
+				continue;
+			}
+			int runBottom = y;
+			while (y >= top && rows[y] != fullRowMask)
+				y--;
+			if (rowsRemoved > 0) {
+				int runTop = y + 1;
+				int runLength = runBottom - runTop + 1;
+				System.arraycopy(rows, runTop, rows, runTop + rowsRemoved, runLength);
+				System.arraycopy(colors, runTop * width, colors, (runTop + rowsRemoved) * width, runLength * width);
+			}
+		}
+		if (rowsRemoved == 0)
+			return 0;
+		markRowsChanged(top, lowestRemoved);
+		for (y = top; y < top + rowsRemoved; y++)
+			rows[y] = 0;
+		for (int i = top * width; i < (top + rowsRemoved) * width; i++)
+			colors[i] = Palette.EMPTY;
+		hashStale = true;
+		if (columnWords == 1) {
+			for (int x = 0; x < width; x++) {
+				long bits = columns[x];
+				for (long m = removedMask; m != 0; m &= m - 1) {
+					int row = Long.numberOfTrailingZeros(m);
+					bits = (bits & (-1L << row << 1)) | ((bits & ((1L << row) - 1)) << 1);
+				}
+				columns[x] = bits;
+				heights[x] = bits == 0 ? 0 : height - Long.numberOfTrailingZeros(bits);
+			}
+		} else {
+			for (int x = 0; x < width; x++)
+				heights[x] = height - nextOccupiedRow(x, height - heights[x]);
+		}
+		return rowsRemoved;
+	}
+
+	/**
+	 * Removes a row from the column index of a board with more than 64 rows. The
+	 * bits of the rows above it are moved one row down and the top row becomes
+	 * empty. The column heights are not updated.
+	 *
+	 * @param row Index of the row in the column index.
+	 */
+	private void removeColumnsRow(int row) {
+		int word = row >>> 6;
+		int bit = row & 63;
+		long below = bit == 63 ? 0 : -1L << (bit + 1);
+		long above = (1L << bit) - 1;
+		for (int x = 0; x < width; x++) {
+			int base = x * columnWords;
+			long bits = columns[base + word];
+			long carry = word > 0 ? columns[base + word - 1] >>> 63 : 0;
+			columns[base + word] = (bits & below) | ((bits & above) << 1) | carry;
+			for (int w = word - 1; w >= 0; w--) {
+				carry = w > 0 ? columns[base + w - 1] >>> 63 : 0;
+				columns[base + w] = (columns[base + w] << 1) | carry;
+			}
+		}
+	}
+}
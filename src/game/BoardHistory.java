@@ -0,0 +1,508 @@
+package game;
+
+/**
+ * Ring of the most recent states of a game, for rewinding it and for branching
+ * a search from earlier positions. The boards are persistent: the rows are
+ * immutable and kept in a trie with {@link game.BoardHistory#BRANCH} children
+ * per node, a recorded board shares every unchanged row and subtree with the
+ * previous one. Recording a tick in which only the spawned tetromino moved
+ * costs no board memory at all, a locked tetromino copies a single path of the
+ * trie. Any recorded row is read in a fixed number of steps and the entry of a
+ * tick is found in constant time when every tick is recorded.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class BoardHistory {
+	/**
+	 * Number of bits of a row index consumed by a level of the trie.
+	 */
+	private static final int BITS = 3;
+
+	/**
+	 * Number of children of a trie node.
+	 */
+	public static final int BRANCH = 1 << BITS;
+
+	/**
+	 * An immutable row of a recorded board.
+	 */
+	private static final class Row {
+		/**
+		 * Occupancy mask of the row.
+		 */
+		final int mask;
+
+		/**
+		 * Palette indices of the row's tiles.
+		 */
+		final byte[] colors;
+
+		/**
+		 * Creates the row.
+		 *
+		 * @param mask   Occupancy mask of the row.
+		 * @param colors Palette indices of the row's tiles, not copied.
+		 */
+		Row(int mask, byte[] colors) {
+			this.mask = mask;
+			this.colors = colors;
+		}
+	}
+
+	/**
+	 * Number of columns of the recorded boards.
+	 */
+	private final int width;
+
+	/**
+	 * Number of rows of the recorded boards.
+	 */
+	private final int height;
+
+	/**
+	 * Level of the root node, the leaves holding the rows are at level 0.
+	 */
+	private final int rootLevel;
+
+	/**
+	 * Empty row shared by all of the boards.
+	 */
+	private final Row emptyRow;
+
+	/**
+	 * Maximum number of entries.
+	 */
+	private final int capacity;
+
+	/**
+	 * Index of the oldest entry in the ring.
+	 */
+	private int head;
+
+	/**
+	 * Number of entries.
+	 */
+	private int size;
+
+	/**
+	 * Trie roots of the recorded boards.
+	 */
+	private final Object[][] roots;
+
+	/**
+	 * Recorded ticks, increasing from the oldest entry.
+	 */
+	private final long[] ticks;
+
+	/**
+	 * Recorded states of the random number generator.
+	 */
+	private final long[] randomStates;
+
+	/**
+	 * Recorded spawned tetrominos.
+	 */
+	private final Tetromino[] spawned;
+
+	/**
+	 * Recorded x coordinates of the spawned tetrominos.
+	 */
+	private final int[] spawnedX;
+
+	/**
+	 * Recorded y coordinates of the spawned tetrominos.
+	 */
+	private final int[] spawnedY;
+
+	/**
+	 * Recorded queues, shared by the entries with the same queue.
+	 */
+	private final Tetromino[][] queues;
+
+	/**
+	 * Recorded points.
+	 */
+	private final int[] points;
+
+	/**
+	 * Recorded numbers of removed rows.
+	 */
+	private final int[] lines;
+
+	/**
+	 * Recorded numbers of spawned tetrominos.
+	 */
+	private final int[] pieces;
+
+	/**
+	 * Recorded numbers of ticks between two game steps.
+	 */
+	private final int[] gravityTicks;
+
+	/**
+	 * Recorded numbers of ticks since the last game step.
+	 */
+	private final int[] gravityCounters;
+
+	/**
+	 * Trie of the last recorded or restored board.
+	 */
+	private Object[] current;
+
+	/**
+	 * Queue of the last recorded entry.
+	 */
+	private Tetromino[] currentQueue = new Tetromino[0];
+
+	/**
+	 * Board the row versions in {@link game.BoardHistory#rowVersions} belong to.
+	 */
+	private Board board;
+
+	/**
+	 * Versions of the board rows at the time they were compared with
+	 * {@link game.BoardHistory#current}.
+	 */
+	private final long[] rowVersions;
+
+	/**
+	 * Creates an empty history.
+	 *
+	 * @param capacity Maximum number of entries, the oldest entry is dropped when
+	 *                 a new one doesn't fit.
+	 * @param width    Number of columns of the recorded boards.
+	 * @param height   Number of rows of the recorded boards.
+	 * @throws IllegalArgumentException when the capacity is not positive.
+	 */
+	public BoardHistory(int capacity, int width, int height) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("Capacity " + capacity + " is not positive.");
+		this.capacity = capacity;
+		this.width = width;
+		this.height = height;
+		int level = 0;
+		while ((long) BRANCH << (BITS * level) < height)
+			level++;
+		rootLevel = level;
+		emptyRow = new Row(0, new byte[width]);
+		current = emptyTrie(rootLevel);
+		roots = new Object[capacity][];
+		ticks = new long[capacity];
+		randomStates = new long[capacity];
+		spawned = new Tetromino[capacity];
+		spawnedX = new int[capacity];
+		spawnedY = new int[capacity];
+		queues = new Tetromino[capacity][];
+		points = new int[capacity];
+		lines = new int[capacity];
+		pieces = new int[capacity];
+		gravityTicks = new int[capacity];
+		gravityCounters = new int[capacity];
+		rowVersions = new long[height];
+	}
+
+	/**
+	 * Creates a trie of empty rows.
+	 *
+	 * @param level Level of the root.
+	 * @return The root.
+	 */
+	private Object[] emptyTrie(int level) {
+		Object[] node = new Object[BRANCH];
+		Object child = level == 0 ? emptyRow : emptyTrie(level - 1);
+		for (int i = 0; i < BRANCH; i++)
+			node[i] = child;
+		return node;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return maximum number of entries
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Removes all of the entries.
+	 */
+	public void clear() {
+		for (int i = 0; i < capacity; i++) {
+			roots[i] = null;
+			spawned[i] = null;
+			queues[i] = null;
+		}
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the position of the entry in the ring.
+	 *
+	 * @param index Index of the entry, 0 is the oldest one.
+	 * @return The position.
+	 * @throws IndexOutOfBoundsException when there's no such entry.
+	 */
+	private int slot(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Entry " + index + " out of " + size + ".");
+		int slot = head + index;
+		return slot >= capacity ? slot - capacity : slot;
+	}
+
+	/**
+	 * Records the current state of the game as the newest entry. The tetromino
+	 * types and the hover are not recorded. Only the rows whose version changed
+	 * since the last record are compared, a row that differs is copied together
+	 * with its path in the trie.
+	 *
+	 * @param state Game with a board of the recorded size, at a tick not older
+	 *              than the newest entry.
+	 * @throws IllegalArgumentException when the board size differs or the tick is
+	 *                                  older than the newest entry.
+	 */
+	public void record(GameState state) {
+		Board stateBoard = state.getBoard();
+		if (stateBoard.getWidth() != width || stateBoard.getHeight() != height)
+			throw new IllegalArgumentException("Board size differs from the history.");
+		if (size > 0 && state.getTicks() < ticks[slot(size - 1)])
+			throw new IllegalArgumentException("Tick " + state.getTicks() + " is older than the newest entry.");
+		if (board != stateBoard) {
+			board = stateBoard;
+			for (int y = 0; y < height; y++)
+				rowVersions[y] = -1;
+		}
+		current = update(current, rootLevel, 0);
+		int queueSize = state.getQueueSize();
+		boolean sameQueue = currentQueue.length == queueSize;
+		for (int i = 0; i < queueSize && sameQueue; i++)
+			sameQueue = currentQueue[i] == state.peekQueue(i);
+		if (!sameQueue) {
+			currentQueue = new Tetromino[queueSize];
+			for (int i = 0; i < queueSize; i++)
+				currentQueue[i] = state.peekQueue(i);
+		}
+		int slot;
+		if (size == capacity) {
+			slot = head;
+			head = head + 1 == capacity ? 0 : head + 1;
+		} else {
+			size++;
+			slot = slot(size - 1);
+		}
+		roots[slot] = current;
+		ticks[slot] = state.getTicks();
+		randomStates[slot] = state.getRandomState();
+		spawned[slot] = state.getSpawned();
+		spawnedX[slot] = state.getSpawnedX();
+		spawnedY[slot] = state.getSpawnedY();
+		queues[slot] = currentQueue;
+		points[slot] = state.getPoints();
+		lines[slot] = state.getLines();
+		pieces[slot] = state.getPieces();
+		gravityTicks[slot] = state.getGravityTicks();
+		gravityCounters[slot] = state.getGravityCounter();
+	}
+
+	/**
+	 * Returns the node with the changed rows of the board replaced. Unchanged
+	 * nodes are returned as they are.
+	 *
+	 * @param node  The node.
+	 * @param level Level of the node.
+	 * @param first Index of the first row covered by the node.
+	 * @return The node or its updated copy.
+	 */
+	private Object[] update(Object[] node, int level, int first) {
+		Object[] copy = null;
+		int span = 1 << (BITS * level);
+		for (int i = 0; i < BRANCH; i++) {
+			int y = first + i * span;
+			if (y >= height)
+				break;
+			Object child = node[i];
+			Object updated = level == 0 ? update((Row) child, y) : update((Object[]) child, level - 1, y);
+			if (updated != child) {
+				if (copy == null)
+					copy = node.clone();
+				copy[i] = updated;
+			}
+		}
+		return copy == null ? node : copy;
+	}
+
+	/**
+	 * Returns the row of the board if it differs from the recorded one.
+	 *
+	 * @param row Recorded row.
+	 * @param y   Row index.
+	 * @return The recorded row or a new one.
+	 */
+	private Row update(Row row, int y) {
+		long version = board.getRowVersion(y);
+		if (version == rowVersions[y])
+			return row;
+		rowVersions[y] = version;
+		int mask = board.getRow(y);
+		boolean same = mask == row.mask;
+		for (int x = 0; x < width && same; x++)
+			same = board.getColor(x, y) == row.colors[x];
+		if (same)
+			return row;
+		if (mask == 0 && isEmpty(y))
+			return emptyRow;
+		byte[] colors = new byte[width];
+		for (int x = 0; x < width; x++)
+			colors[x] = board.getColor(x, y);
+		return new Row(mask, colors);
+	}
+
+	/**
+	 * @param y Row index.
+	 * @return true if every tile of the board's row has the empty color, false
+	 *         otherwise
+	 */
+	private boolean isEmpty(int y) {
+		for (int x = 0; x < width; x++) {
+			if (board.getColor(x, y) != Palette.EMPTY)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a recorded row.
+	 *
+	 * @param root Root of the trie.
+	 * @param y    Row index.
+	 * @return The row.
+	 */
+	private Row row(Object[] root, int y) {
+		Object[] node = root;
+		for (int level = rootLevel; level > 0; level--)
+			node = (Object[]) node[(y >>> (BITS * level)) & (BRANCH - 1)];
+		return (Row) node[y & (BRANCH - 1)];
+	}
+
+	/**
+	 * Returns the index of the newest entry recorded at or before the tick. When
+	 * every tick is recorded the entry is found directly, otherwise by a binary
+	 * search.
+	 *
+	 * @param tick The tick.
+	 * @return Index of the entry or -1 if the oldest entry is newer.
+	 */
+	public int find(long tick) {
+		if (size == 0 || tick < ticks[head])
+			return -1;
+		long offset = tick - ticks[head];
+		if (offset < size && ticks[slot((int) offset)] == tick)
+			return (int) offset;
+		int low = 0, high = size - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (ticks[slot(mid)] <= tick)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * @param index Index of the entry, 0 is the oldest one.
+	 * @return the tick of the entry
+	 */
+	public long getTick(int index) {
+		return ticks[slot(index)];
+	}
+
+	/**
+	 * @param index Index of the entry, 0 is the oldest one.
+	 * @return the points of the entry
+	 */
+	public int getPoints(int index) {
+		return points[slot(index)];
+	}
+
+	/**
+	 * Returns a row of the recorded board without restoring it.
+	 *
+	 * @param index Index of the entry, 0 is the oldest one.
+	 * @param y     Row index.
+	 * @return Occupancy mask of the row.
+	 */
+	public int getRow(int index, int y) {
+		return row(roots[slot(index)], y).mask;
+	}
+
+	/**
+	 * Returns the color of a recorded tile without restoring the board.
+	 *
+	 * @param index Index of the entry, 0 is the oldest one.
+	 * @param x     X coordinate.
+	 * @param y     Y coordinate.
+	 * @return Palette index of the tile's color.
+	 */
+	public byte getColor(int index, int x, int y) {
+		return row(roots[slot(index)], y).colors[x];
+	}
+
+	/**
+	 * Restores the game to the entry. Only the board rows that differ from the
+	 * entry are written, the entries stay in the history.
+	 *
+	 * @param state Game with a board of the recorded size.
+	 * @param index Index of the entry, 0 is the oldest one.
+	 * @throws IllegalArgumentException when the board size differs.
+	 */
+	public void restore(GameState state, int index) {
+		int slot = slot(index);
+		Board stateBoard = state.getBoard();
+		if (stateBoard.getWidth() != width || stateBoard.getHeight() != height)
+			throw new IllegalArgumentException("Board size differs from the history.");
+		Object[] root = roots[slot];
+		for (int y = 0; y < height; y++) {
+			Row row = row(root, y);
+			stateBoard.setRow(y, row.mask, row.colors, 0);
+		}
+		state.setGravityTicks(gravityTicks[slot]);
+		state.restore(spawned[slot], spawnedX[slot], spawnedY[slot], queues[slot], randomStates[slot], points[slot],
+				lines[slot], pieces[slot], ticks[slot], gravityCounters[slot]);
+		current = root;
+		currentQueue = queues[slot];
+		board = stateBoard;
+		for (int y = 0; y < height; y++)
+			rowVersions[y] = stateBoard.getRowVersion(y);
+	}
+
+	/**
+	 * Rewinds the game to the newest entry recorded at or before the tick and
+	 * drops the newer entries, so the game continues from there.
+	 *
+	 * @param state Game with a board of the recorded size.
+	 * @param tick  The tick.
+	 * @return true if the game was rewound, false if the tick is older than the
+	 *         oldest entry.
+	 */
+	public boolean rewind(GameState state, long tick) {
+		int index = find(tick);
+		if (index < 0)
+			return false;
+		restore(state, index);
+		for (int i = index + 1; i < size; i++) {
+			int slot = slot(i);
+			roots[slot] = null;
+			spawned[slot] = null;
+			queues[slot] = null;
+		}
+		size = index + 1;
+		return true;
+	}
+}
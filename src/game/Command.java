@@ -0,0 +1,73 @@
+package game;
+
+/**
+ * Player's command applied to the spawned tetromino.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.GameState#execute(Command)
+ */
+public enum Command {
+	/**
+	 * Moves the tetromino one tile left. For {@link game.AutoShift} it's also
+	 * the press of the left key.
+	 */
+	MOVE_LEFT,
+
+	/**
+	 * Moves the tetromino one tile right. For {@link game.AutoShift} it's also
+	 * the press of the right key.
+	 */
+	MOVE_RIGHT,
+
+	/**
+	 * Moves the tetromino one tile down. For {@link game.AutoShift} it's also
+	 * the press of the down key.
+	 */
+	MOVE_DOWN,
+
+	/**
+	 * Moves the tetromino all the way down.
+	 */
+	DROP,
+
+	/**
+	 * Rotates the tetromino counterclockwise.
+	 */
+	ROTATE_CCW,
+
+	/**
+	 * Rotates the tetromino clockwise.
+	 */
+	ROTATE_CW,
+
+	/**
+	 * Release of the left key, doesn't move the tetromino.
+	 */
+	RELEASE_LEFT,
+
+	/**
+	 * Release of the right key, doesn't move the tetromino.
+	 */
+	RELEASE_RIGHT,
+
+	/**
+	 * Release of the down key, doesn't move the tetromino.
+	 */
+	RELEASE_DOWN;
+
+	/**
+	 * All of the commands, indexed by their ordinals.
+	 */
+	private static final Command[] VALUES = values();
+
+	/**
+	 * Returns the command with the given ordinal without copying the values
+	 * array.
+	 *
+	 * @param ordinal The ordinal.
+	 * @return The command.
+	 */
+	public static Command get(int ordinal) {
+		return VALUES[ordinal];
+	}
+}
@@ -0,0 +1,18 @@
+package game;
+
+/**
+ * Receiver of the commands drained from a {@link game.CommandQueue}.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.CommandQueue#drain(CommandHandler)
+ */
+public interface CommandHandler {
+	/**
+	 * Called for every drained command, in the order they were offered.
+	 *
+	 * @param command        The command.
+	 * @param timestampNanos Value of {@link java.lang.System#nanoTime()} at which
+	 *                       the command was offered.
+	 */
+	void handle(Command command, long timestampNanos);
+}
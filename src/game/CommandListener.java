@@ -0,0 +1,20 @@
+package game;
+
+/**
+ * Listener notified when a command moves the spawned tetromino of a game, e.g.
+ * for recording replays.
+ * 
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.GameState#addCommandListener(CommandListener)
+ */
+public interface CommandListener {
+	/**
+	 * Called after the command moved the spawned tetromino. Commands that didn't
+	 * change the game are not reported.
+	 * 
+	 * @param state   The game, {@link game.GameState#getTicks()} is the number
+	 *                of ticks performed before the command.
+	 * @param command The command.
+	 */
+	void commandExecuted(GameState state, Command command);
+}
@@ -0,0 +1,134 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer single-consumer ring buffer of timestamped commands.
+ * The producer, e.g. the key handler, offers commands and the consumer, e.g.
+ * the game loop, drains them. Neither side locks or allocates: the slots are
+ * preallocated primitive arrays and the positions are published with ordered
+ * writes. A command offered to a full queue is dropped and counted.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Command
+ */
+public class CommandQueue {
+	/**
+	 * Ordinals of the queued commands.
+	 */
+	private final byte[] commands;
+
+	/**
+	 * Timestamps of the queued commands.
+	 */
+	private final long[] timestamps;
+
+	/**
+	 * Mask of the slot index, the capacity minus one.
+	 */
+	private final int mask;
+
+	/**
+	 * Number of commands taken by the consumer so far.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Number of commands put by the producer so far.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Value of {@link game.CommandQueue#head} last read by the producer.
+	 */
+	private long headCache;
+
+	/**
+	 * Number of commands dropped because the queue was full.
+	 */
+	private volatile long dropped;
+
+	/**
+	 * Creates an empty queue.
+	 *
+	 * @param capacity Maximum number of queued commands, rounded up to a power
+	 *                 of two.
+	 * @throws IllegalArgumentException when the capacity is not positive or too
+	 *                                  big.
+	 */
+	public CommandQueue(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("Unsupported capacity " + capacity + ".");
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		commands = new byte[size];
+		timestamps = new long[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * @return maximum number of queued commands
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Adds a command at the end of the queue. Called by the producer only.
+	 *
+	 * @param command        The command.
+	 * @param timestampNanos Value of {@link java.lang.System#nanoTime()} at which
+	 *                       the command was issued.
+	 * @return true if the command was queued, false if it was dropped because the
+	 *         queue is full.
+	 */
+	public boolean offer(Command command, long timestampNanos) {
+		long t = tail.get();
+		if (t - headCache > mask) {
+			headCache = head.get();
+			if (t - headCache > mask) {
+				dropped++;
+				return false;
+			}
+		}
+		int slot = (int) t & mask;
+		commands[slot] = (byte) command.ordinal();
+		timestamps[slot] = timestampNanos;
+		tail.lazySet(t + 1);
+		return true;
+	}
+
+	/**
+	 * Removes all of the queued commands and passes them to the handler. Commands
+	 * offered during the call may or may not be drained. Called by the consumer
+	 * only.
+	 *
+	 * @param handler Receiver of the commands.
+	 * @return number of drained commands.
+	 */
+	public int drain(CommandHandler handler) {
+		long h = head.get();
+		long t = tail.get();
+		for (long i = h; i < t; i++) {
+			int slot = (int) i & mask;
+			handler.handle(Command.get(commands[slot]), timestamps[slot]);
+		}
+		head.lazySet(t);
+		return (int) (t - h);
+	}
+
+	/**
+	 * @return number of queued commands, exact only when neither side is working
+	 */
+	public int size() {
+		return (int) (tail.get() - head.get());
+	}
+
+	/**
+	 * @return number of commands dropped because the queue was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+}
@@ -0,0 +1,105 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * Random number generator of a game. It's the same linear congruential
+ * generator as {@link java.util.Random} and produces the same numbers for the
+ * same seed, so recorded games play out unchanged, but its state can be read
+ * and restored, so the game can be saved and forked.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+final class GameRandom {
+	/**
+	 * Multiplier of the generator.
+	 */
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+
+	/**
+	 * Addend of the generator.
+	 */
+	private static final long ADDEND = 0xBL;
+
+	/**
+	 * Mask of the 48 bits of the state.
+	 */
+	private static final long MASK = (1L << 48) - 1;
+
+	/**
+	 * Source of the seeds of the generators created without a seed.
+	 */
+	private static final Random seeds = new Random();
+
+	/**
+	 * State of the generator.
+	 */
+	private long state;
+
+	/**
+	 * Creates a generator with a random seed.
+	 */
+	GameRandom() {
+		this(seeds.nextLong());
+	}
+
+	/**
+	 * Creates a generator with the given seed.
+	 *
+	 * @param seed The seed.
+	 */
+	GameRandom(long seed) {
+		setSeed(seed);
+	}
+
+	/**
+	 * Sets the seed the same way as {@link java.util.Random#setSeed(long)}.
+	 *
+	 * @param seed The seed.
+	 */
+	void setSeed(long seed) {
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	/**
+	 * @return the state of the generator
+	 */
+	long getState() {
+		return state;
+	}
+
+	/**
+	 * @param state the state of the generator, only the lowest 48 bits are used
+	 */
+	void setState(long state) {
+		this.state = state & MASK;
+	}
+
+	/**
+	 * Advances the generator.
+	 *
+	 * @param bits Number of bits to return, at most 32.
+	 * @return The highest bits of the new state.
+	 */
+	private int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	/**
+	 * Returns a number from 0 inclusive to the bound exclusive, the same as
+	 * {@link java.util.Random#nextInt(int)}.
+	 *
+	 * @param bound The bound, positive.
+	 * @return The number.
+	 */
+	int nextInt(int bound) {
+		int r = next(31);
+		int m = bound - 1;
+		if ((bound & m) == 0)
+			return (int) ((bound * (long) r) >> 31);
+		for (int u = r; u - (r = u % bound) + m < 0; u = next(31))
+			;
+		return r;
+	}
+}
@@ -0,0 +1,183 @@
+package game;
+
+/**
+ * Copy of everything needed to draw a game: the tile colors with the spawned
+ * tetromino drawn over the board, the tetromino hover, the row versions and the
+ * counters. A snapshot is filled by the thread running the game and read by a
+ * drawing thread, the two never use the same snapshot at once.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.SnapshotBuffer
+ */
+public class GameSnapshot {
+	/**
+	 * Number of columns.
+	 */
+	private final int width;
+
+	/**
+	 * Number of rows.
+	 */
+	private final int height;
+
+	/**
+	 * Palette indices of the tiles, stored row by row, including the tiles of the
+	 * spawned tetromino.
+	 */
+	private final byte[] colors;
+
+	/**
+	 * Tetromino hover masks of the rows.
+	 */
+	private final int[] hover;
+
+	/**
+	 * Version of the game at the last change of every row.
+	 */
+	private final long[] rowVersions;
+
+	/**
+	 * Version of the game.
+	 */
+	private long version;
+
+	/**
+	 * Number of player's points.
+	 */
+	private int points;
+
+	/**
+	 * Number of rows removed.
+	 */
+	private int lines;
+
+	/**
+	 * Number of ticks performed.
+	 */
+	private long ticks;
+
+	/**
+	 * Creates an empty snapshot.
+	 *
+	 * @param width  Number of columns.
+	 * @param height Number of rows.
+	 */
+	public GameSnapshot(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.colors = new byte[width * height];
+		this.hover = new int[height];
+		this.rowVersions = new long[height];
+	}
+
+	/**
+	 * Makes this snapshot a copy of the game. Only the rows whose version differs
+	 * from the one already in the snapshot are copied.
+	 *
+	 * @param state Game with a board of the snapshot's size.
+	 * @throws IllegalArgumentException when the sizes differ.
+	 */
+	public void copyFrom(GameState state) {
+		Board board = state.getBoard();
+		if (board.getWidth() != width || board.getHeight() != height)
+			throw new IllegalArgumentException("Snapshot and board differ in size.");
+		Tetromino spawned = state.getSpawned();
+		for (int y = 0; y < height; y++) {
+			long rowVersion = board.getRowVersion(y);
+			if (rowVersion == rowVersions[y])
+				continue;
+			for (int x = 0; x < width; x++)
+				colors[y * width + x] = board.getColor(x, y);
+			hover[y] = state.getHoverRow(y);
+			rowVersions[y] = rowVersion;
+			if (spawned == null)
+				continue;
+			TetrominoShape shape = spawned.getShape();
+			int rotation = spawned.getRotation();
+			for (int id = 0; id < shape.getSize(); id++) {
+				int x = shape.getTileX(rotation, id) + state.getSpawnedX();
+				if (shape.getTileY(rotation, id) + state.getSpawnedY() == y && x >= 0 && x < width)
+					colors[y * width + x] = shape.getTileColor(id);
+			}
+		}
+		version = board.getVersion();
+		points = state.getPoints();
+		lines = state.getLines();
+		ticks = state.getTicks();
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Returns the palette index of the tile's color.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return Palette index of the spawned tetromino's tile or the board's tile,
+	 *         {@link game.Palette#EMPTY} if the tile is empty.
+	 */
+	public byte getColor(int x, int y) {
+		return colors[y * width + x];
+	}
+
+	/**
+	 * Checks if the tile is hovered by the spawned tetromino.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return true if the tile is hovered, false otherwise.
+	 */
+	public boolean isTetrominoHover(int x, int y) {
+		return (hover[y] & (1 << x)) != 0;
+	}
+
+	/**
+	 * Returns the version of the game at the last change of the row.
+	 *
+	 * @param y Row index.
+	 * @return The version.
+	 */
+	public long getRowVersion(int y) {
+		return rowVersions[y];
+	}
+
+	/**
+	 * @return the version of the game, see {@link game.GameState#getVersion()}
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the number of player's points
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return the number of rows removed
+	 */
+	public int getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return the number of ticks performed
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+}
@@ -0,0 +1,1080 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import properties.GameSettings;
+
+/**
+ * State of a single game: the board, the spawned tetromino, the queue of
+ * tetrominos to spawn, the random number generator and the score. Any number of
+ * games can be run independently, each one in its own GameState object. The
+ * static {@link game.Grid} and {@link game.TetrominoSpawner} classes operate on
+ * the default game.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.GameState#getDefault()
+ */
+public class GameState {
+	/**
+	 * Version of the game rules. It has to be increased with every change that
+	 * makes the same commands and seed play out differently, e.g. a different
+	 * scoring or spawn position, as recorded replays depend on it.
+	 */
+	public static final int ENGINE_VERSION = 1;
+
+	/**
+	 * Magic number at the start of a saved game, "TGS1" in ASCII.
+	 */
+	public static final int SAVE_MAGIC = 0x54475331;
+
+	/**
+	 * Version of the saved game format.
+	 */
+	public static final int SAVE_VERSION = 2;
+
+	/**
+	 * Game used by the static {@link game.Grid} and {@link game.TetrominoSpawner}
+	 * methods.
+	 */
+	private static final GameState defaultState = new GameState(GameSettings.GRID_WIDTH,
+			GameSettings.GRID_HEIGHT);
+
+	/**
+	 * Bitboard holding the locked tiles.
+	 */
+	private final Board board;
+
+	/**
+	 * Row masks of the tiles onto which the spawned tetromino will eventually fall
+	 * down.
+	 */
+	private final int[] hover;
+
+	/**
+	 * First row of {@link game.GameState#hover} that may have marked tiles.
+	 */
+	private int hoverTop;
+
+	/**
+	 * Number of rows from {@link game.GameState#hoverTop} on that may have marked
+	 * tiles, all the other rows have none.
+	 */
+	private int hoverRows;
+
+	/**
+	 * Indices of the rows removed by the last line clear.
+	 */
+	private final int[] removedRows;
+
+	/**
+	 * Listeners notified when full rows are removed.
+	 */
+	private final ArrayList<LineClearListener> lineClearListeners = new ArrayList<>();
+
+	/**
+	 * Listeners notified when a command moves the spawned tetromino.
+	 */
+	private final ArrayList<CommandListener> commandListeners = new ArrayList<>();
+
+	/**
+	 * A list of tetromino shapes that possibly can be spawned.
+	 */
+	private final ArrayList<TetrominoShape> availableTetrominos = new ArrayList<>();
+
+	/**
+	 * Circular buffer of tetrominos to spawn.
+	 */
+	private Tetromino[] queue = new Tetromino[8];
+
+	/**
+	 * Index of the first tetromino in {@link game.GameState#queue}.
+	 */
+	private int queueHead;
+
+	/**
+	 * Number of tetrominos in {@link game.GameState#queue}.
+	 */
+	private int queueSize;
+
+	/**
+	 * Random number generator.
+	 */
+	private final GameRandom random = new GameRandom();
+
+	/**
+	 * Currently spawned tetromino that is moving through the grid or null. The
+	 * spawned tetromino is not a part of the board until it is locked.
+	 */
+	private Tetromino spawned;
+
+	/**
+	 * X coordinate of the spawned tetromino.
+	 */
+	private int spawnedX;
+
+	/**
+	 * Y coordinate of the spawned tetromino.
+	 */
+	private int spawnedY;
+
+	/**
+	 * Y coordinate at which the spawned tetromino would stop if it was moved all
+	 * the way down.
+	 */
+	private int hoverY;
+
+	/**
+	 * Number of player's points acquired in the game.
+	 */
+	private int points;
+
+	/**
+	 * Number of rows removed in the game.
+	 */
+	private int lines;
+
+	/**
+	 * Number of tetrominos spawned in the game.
+	 */
+	private int pieces;
+
+	/**
+	 * Number of ticks performed in the game.
+	 */
+	private long ticks;
+
+	/**
+	 * Number of ticks between two game steps.
+	 */
+	private int gravityTicks = 1;
+
+	/**
+	 * Number of ticks since the last game step.
+	 */
+	private int gravityCounter;
+
+	/**
+	 * Number of tetrominos kept in the queue after a tetromino is spawned.
+	 */
+	private int previews;
+
+	/**
+	 * Creates a new game with an empty board.
+	 *
+	 * @param width  Number of columns of the board.
+	 * @param height Number of rows of the board.
+	 */
+	public GameState(int width, int height) {
+		board = new Board(width, height);
+		hover = new int[height];
+		removedRows = new int[height];
+	}
+
+	/**
+	 * Returns the game used by the static {@link game.Grid} and
+	 * {@link game.TetrominoSpawner} methods.
+	 *
+	 * @return The default game.
+	 */
+	public static GameState getDefault() {
+		return defaultState;
+	}
+
+	/**
+	 * @return the board
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the version of the game's grid. It's increased whenever a tile of
+	 * the board, the spawned tetromino or its hover changes, the rows affected by
+	 * the change are stamped with it in {@link game.Board#getRowVersion(int)}.
+	 * Points are not covered by the version.
+	 *
+	 * @return The version.
+	 */
+	public long getVersion() {
+		return board.getVersion();
+	}
+
+	/**
+	 * Returns the Zobrist hash of the position: the occupied tiles of the board
+	 * and the spawned tetromino's shape, rotation and position. The board part is
+	 * kept up to date by the board itself as tetrominos are locked and rows are
+	 * removed.
+	 *
+	 * @return The hash.
+	 * @see game.Zobrist
+	 */
+	public long getHash() {
+		if (spawned == null)
+			return board.getHash();
+		return board.getHash() ^ Zobrist.piece(spawned.getShape(), spawned.getRotation(), spawnedX, spawnedY);
+	}
+
+	/**
+	 * Adds a new tetromino type that can be possibly spawned. The shape of the
+	 * tetromino is registered in the shape registry.
+	 *
+	 * @param t Tetromino
+	 * @see game.TetrominoShape#register(TetrominoShape)
+	 */
+	public void addTetrominoType(Tetromino t) {
+		if (t == null)
+			return;
+		availableTetrominos.add(TetrominoShape.register(t.getShape()));
+	}
+
+	/**
+	 * Adds a listener notified when full rows are removed from the board.
+	 *
+	 * @param listener The listener.
+	 */
+	public void addLineClearListener(LineClearListener listener) {
+		lineClearListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added with
+	 * {@link game.GameState#addLineClearListener(LineClearListener)}.
+	 *
+	 * @param listener The listener.
+	 */
+	public void removeLineClearListener(LineClearListener listener) {
+		lineClearListeners.remove(listener);
+	}
+
+	/**
+	 * Adds a listener notified when a command moves the spawned tetromino.
+	 *
+	 * @param listener The listener.
+	 */
+	public void addCommandListener(CommandListener listener) {
+		commandListeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener added with
+	 * {@link game.GameState#addCommandListener(CommandListener)}.
+	 *
+	 * @param listener The listener.
+	 */
+	public void removeCommandListener(CommandListener listener) {
+		commandListeners.remove(listener);
+	}
+
+	/**
+	 * Clears the possible tetromino types list.
+	 */
+	public void clearTetrominoTypes() {
+		availableTetrominos.clear();
+	}
+
+	/**
+	 * Sets the random number generator seed.
+	 *
+	 * @param seed seed
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+	}
+
+	/**
+	 * Adds a new tetromino into the queue to spawn.
+	 */
+	public void generateNextTetromino() {
+		if (availableTetrominos.isEmpty())
+			return;
+		if (queueSize == queue.length) {
+			Tetromino[] grown = new Tetromino[queue.length * 2];
+			for (int i = 0; i < queueSize; i++)
+				grown[i] = queue[(queueHead + i) % queue.length];
+			queue = grown;
+			queueHead = 0;
+		}
+		queue[(queueHead + queueSize) % queue.length] = availableTetrominos
+				.get(random.nextInt(availableTetrominos.size())).getState(0);
+		queueSize++;
+	}
+
+	/**
+	 * @return number of tetrominos in the queue
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * Returns a tetromino from the queue without removing it.
+	 *
+	 * @param index Position in the queue, 0 is the next tetromino to spawn.
+	 * @return The tetromino or null if the queue is shorter.
+	 */
+	public Tetromino peekQueue(int index) {
+		if (index < 0 || index >= queueSize)
+			return null;
+		return queue[(queueHead + index) % queue.length];
+	}
+
+	/**
+	 * Checks if the tetromino in the given rotation can be placed on the board at
+	 * x, y. The board is not modified.
+	 *
+	 * @param piece    The tetromino. Only its shape is taken into account.
+	 * @param rotation Rotation index of the shape.
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 * @return true if all of the tetromino tiles lie inside the board on empty
+	 *         tiles, false otherwise.
+	 */
+	public boolean canPlace(Tetromino piece, int rotation, int x, int y) {
+		TetrominoShape shape = piece.getShape();
+		if (shape.getSize() == 0)
+			return true;
+		int left = x + shape.getMinX(rotation);
+		if (left < 0 || x + shape.getMaxX(rotation) >= board.getWidth())
+			return false;
+		int top = y + shape.getMinY(rotation);
+		int rows = shape.getMaxY(rotation) - shape.getMinY(rotation) + 1;
+		for (int r = 0; r < rows; r++) {
+			if (!board.isFree(top + r, shape.getRowMask(rotation, r) << left))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns how many rows the tetromino can fall down from x, y. The distance
+	 * is read from the column index of the board, so the tetromino is not moved
+	 * row by row.
+	 *
+	 * @param piece    The tetromino. Only its shape is taken into account.
+	 * @param rotation Rotation index of the shape.
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center. The tetromino must be
+	 *                 placeable at x, y.
+	 * @return Number of rows the tetromino can move down.
+	 * @see game.Board#getDropDistance(int, int)
+	 */
+	public int getDropDistance(Tetromino piece, int rotation, int x, int y) {
+		TetrominoShape shape = piece.getShape();
+		int left = x + shape.getMinX(rotation);
+		int columns = shape.getMaxX(rotation) - shape.getMinX(rotation) + 1;
+		int distance = board.getHeight();
+		for (int c = 0; c < columns; c++) {
+			int bottom = shape.getColumnBottom(rotation, c);
+			if (bottom != Integer.MIN_VALUE)
+				distance = Math.min(distance, board.getDropDistance(left + c, y + bottom));
+		}
+		return distance;
+	}
+
+	/**
+	 * Spawns a tetromino from the queue and removes it from there.
+	 *
+	 * @return true if the tetromino was successfully spawned, false otherwise.
+	 */
+	public boolean spawnTetromino() {
+		if (queueSize == 0)
+			return false;
+		Tetromino t = queue[queueHead];
+		queue[queueHead] = null;
+		queueHead = (queueHead + 1) % queue.length;
+		queueSize--;
+		int offsetX = getSpawnX(t, board.getWidth());
+		int offsetY = getSpawnY(t);
+		if (!canPlace(t, t.getRotation(), offsetX, offsetY))
+			return false;
+		spawned = t;
+		spawnedX = offsetX;
+		spawnedY = offsetY;
+		markSpawnedChanged();
+		pieces++;
+		hover();
+		return true;
+	}
+
+	/**
+	 * Returns the x coordinate at which the tetromino is spawned, centered on the
+	 * board.
+	 *
+	 * @param t     The tetromino.
+	 * @param width Number of columns of the board.
+	 * @return The x coordinate of the tetromino center.
+	 */
+	public static int getSpawnX(Tetromino t, int width) {
+		TetrominoShape shape = t.getShape();
+		int rotation = t.getRotation();
+		return (width - shape.getMaxX(rotation) - shape.getMinX(rotation)) / 2;
+	}
+
+	/**
+	 * Returns the y coordinate at which the tetromino is spawned, with its top
+	 * tiles in the top row.
+	 *
+	 * @param t The tetromino.
+	 * @return The y coordinate of the tetromino center.
+	 */
+	public static int getSpawnY(Tetromino t) {
+		return -t.getShape().getMinY(t.getRotation());
+	}
+
+	/**
+	 * Checks if there is any spawned tetromino on the board.
+	 *
+	 * @return true if there is tetromino spawned, false otherwise.
+	 */
+	public boolean isAnySpawned() {
+		return spawned != null;
+	}
+
+	/**
+	 * @return the spawned tetromino or null
+	 */
+	public Tetromino getSpawned() {
+		return spawned;
+	}
+
+	/**
+	 * @return the x coordinate of the spawned tetromino
+	 */
+	public int getSpawnedX() {
+		return spawnedX;
+	}
+
+	/**
+	 * @return the y coordinate of the spawned tetromino
+	 */
+	public int getSpawnedY() {
+		return spawnedY;
+	}
+
+	/**
+	 * @return the y coordinate at which the spawned tetromino would stop if it
+	 *         was moved all the way down
+	 */
+	public int getHoverY() {
+		return hoverY;
+	}
+
+	/**
+	 * Moves spawned tetromino in specified direction if only possible.
+	 *
+	 * @param dx          Change in x coordinate direction.
+	 * @param dy          Change in y coordinate direction.
+	 * @param changeHover determines whether or not function should change the
+	 *                    tetromino hover location.
+	 * @return true if tetromino was moved, false otherwise.
+	 */
+	public boolean moveSpawned(int dx, int dy, boolean changeHover) {
+		if (spawned == null || !canPlace(spawned, spawned.getRotation(), spawnedX + dx, spawnedY + dy))
+			return false;
+		markSpawnedChanged();
+		spawnedX += dx;
+		spawnedY += dy;
+		markSpawnedChanged();
+		if (changeHover)
+			hover();
+		return true;
+	}
+
+	/**
+	 * Rotates spawned tetromino in specified direction if only it's possible.
+	 *
+	 * @param counterclockwise direction of rotation.
+	 * @return true if tetromino was rotated, false otherwise.
+	 */
+	public boolean rotateSpawned(boolean counterclockwise) {
+		if (spawned == null)
+			return false;
+		Tetromino rotated = spawned.rotate(counterclockwise);
+		if (!canPlace(rotated, rotated.getRotation(), spawnedX, spawnedY))
+			return false;
+		markSpawnedChanged();
+		spawned = rotated;
+		markSpawnedChanged();
+		hover();
+		return true;
+	}
+
+	/**
+	 * Moves spawned tetromino one tile left.
+	 *
+	 * @return true if tetromino was successfully moved, false otherwise.
+	 */
+	public boolean moveLeft() {
+		return moveSpawned(-1, 0, true);
+	}
+
+	/**
+	 * Moves the spawned tetromino one tile right.
+	 *
+	 * @return true if tetromino was successfully moved, false otherwise.
+	 */
+	public boolean moveRight() {
+		return moveSpawned(1, 0, true);
+	}
+
+	/**
+	 * Moves the spawned tetromino one tile down.
+	 *
+	 * @param changeHover determines whether or not function should change the
+	 *                    tetromino hover location.
+	 *
+	 * @return true if tetromino was successfully moved, false otherwise.
+	 */
+	public boolean moveDown(boolean changeHover) {
+		return moveSpawned(0, 1, changeHover);
+	}
+
+	/**
+	 * Moves the spawned tetromino down until it can't move further down.
+	 *
+	 * @param changeHover determines whether or not function should change the
+	 *                    tetromino hover location.
+	 */
+	public void skipDown(boolean changeHover) {
+		if (spawned == null)
+			return;
+		markSpawnedChanged();
+		spawnedY += getDropDistance(spawned, spawned.getRotation(), spawnedX, spawnedY);
+		markSpawnedChanged();
+		if (changeHover)
+			hover();
+	}
+
+	/**
+	 * Applies the player's command to the spawned tetromino. If the tetromino
+	 * moved, the command listeners are notified.
+	 *
+	 * @param command The command.
+	 * @return true if the tetromino moved, false otherwise.
+	 */
+	public boolean execute(Command command) {
+		boolean moved;
+		switch (command) {
+		case MOVE_LEFT:
+			moved = moveLeft();
+			break;
+		case MOVE_RIGHT:
+			moved = moveRight();
+			break;
+		case MOVE_DOWN:
+			moved = moveDown(true);
+			break;
+		case DROP:
+			int y = spawnedY;
+			skipDown(true);
+			moved = spawned != null && spawnedY != y;
+			break;
+		case ROTATE_CCW:
+			moved = rotateSpawned(true);
+			break;
+		case ROTATE_CW:
+			moved = rotateSpawned(false);
+			break;
+		default:
+			moved = false;
+		}
+		if (moved) {
+			for (int i = 0; i < commandListeners.size(); i++)
+				commandListeners.get(i).commandExecuted(this, command);
+		}
+		return moved;
+	}
+
+	/**
+	 * Puts the spawned tetromino straight at the given rotation and position,
+	 * e.g. a placement found by the computer player. The tetromino isn't locked;
+	 * if it can't move down the next game step locks it.
+	 *
+	 * @param rotation Rotation index.
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 * @return false if no tetromino is spawned or it doesn't fit there, true
+	 *         otherwise.
+	 */
+	public boolean applyPlacement(int rotation, int x, int y) {
+		if (spawned == null || !canPlace(spawned, rotation, x, y))
+			return false;
+		markSpawnedChanged();
+		spawned = spawned.getShape().getState(rotation);
+		spawnedX = x;
+		spawnedY = y;
+		markSpawnedChanged();
+		hover();
+		return true;
+	}
+
+	/**
+	 * Writes the spawned tetromino tiles into the board and removes the spawned
+	 * tetromino.
+	 */
+	public void lockSpawned() {
+		if (spawned == null)
+			return;
+		TetrominoShape shape = spawned.getShape();
+		int rotation = spawned.getRotation();
+		for (int id = 0; id < shape.getSize(); id++) {
+			int x = shape.getTileX(rotation, id) + spawnedX;
+			int y = shape.getTileY(rotation, id) + spawnedY;
+			if (board.isInside(x, y))
+				board.fill(x, y, shape.getTileColor(id));
+		}
+		markSpawnedChanged();
+		spawned = null;
+	}
+
+	/**
+	 * Marks the rows covered by the spawned tetromino as changed.
+	 */
+	private void markSpawnedChanged() {
+		if (spawned == null)
+			return;
+		TetrominoShape shape = spawned.getShape();
+		int rotation = spawned.getRotation();
+		board.markRowsChanged(spawnedY + shape.getMinY(rotation), spawnedY + shape.getMaxY(rotation));
+	}
+
+	/**
+	 * Returns the index of the spawned tetromino tile lying at x, y.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return Index of the tile or -1 if no spawned tetromino tile lies at x, y.
+	 */
+	public int getSpawnedTileAt(int x, int y) {
+		if (spawned == null)
+			return -1;
+		TetrominoShape shape = spawned.getShape();
+		int rotation = spawned.getRotation();
+		for (int id = 0; id < shape.getSize(); id++) {
+			if (shape.getTileX(rotation, id) + spawnedX == x && shape.getTileY(rotation, id) + spawnedY == y)
+				return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Marks the tiles onto which the spawned tetromino will eventually fall down.
+	 * Only the rows of the previous and the new hover are visited, so the cost
+	 * doesn't depend on the board height. Only the rows in which the marked tiles
+	 * differ from the previous ones are marked as changed.
+	 */
+	public void hover() {
+		if (spawned == null || spawned.getShape().getSize() == 0) {
+			clearTetrominoHover();
+			return;
+		}
+		TetrominoShape shape = spawned.getShape();
+		int rotation = spawned.getRotation();
+		hoverY = spawnedY + getDropDistance(spawned, rotation, spawnedX, spawnedY);
+		int top = hoverY + shape.getMinY(rotation);
+		int left = spawnedX + shape.getMinX(rotation);
+		int from = Math.max(0, top);
+		int to = Math.min(hover.length, hoverY + shape.getMaxY(rotation) + 1);
+		for (int y = hoverTop; y < hoverTop + hoverRows; y++) {
+			if ((y < from || y >= to) && hover[y] != 0) {
+				hover[y] = 0;
+				board.markRowsChanged(y, y);
+			}
+		}
+		for (int y = from; y < to; y++) {
+			int row = shape.getRowMask(rotation, y - top) << left;
+			if (row != hover[y]) {
+				hover[y] = row;
+				board.markRowsChanged(y, y);
+			}
+		}
+		hoverTop = from;
+		hoverRows = Math.max(0, to - from);
+	}
+
+	/**
+	 * Checks whether or not some tetromino tile will eventually fall down onto the
+	 * tile at x, y.
+	 *
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return the tetrominoHover of the tile.
+	 */
+	public boolean isTetrominoHover(int x, int y) {
+		if (!board.isInside(x, y))
+			return false;
+		return (hover[y] & (1 << x)) != 0;
+	}
+
+	/**
+	 * Changes the tetrominoHover of the tile at x, y.
+	 *
+	 * @param x              X coordinate.
+	 * @param y              Y coordinate.
+	 * @param tetrominoHover the tetrominoHover to set.
+	 */
+	public void setTetrominoHover(int x, int y, boolean tetrominoHover) {
+		if (!board.isInside(x, y))
+			return;
+		int row = tetrominoHover ? hover[y] | (1 << x) : hover[y] & ~(1 << x);
+		if (row != hover[y]) {
+			hover[y] = row;
+			board.markRowsChanged(y, y);
+		}
+		if (tetrominoHover) {
+			int bottom = hoverRows == 0 ? y + 1 : Math.max(hoverTop + hoverRows, y + 1);
+			hoverTop = hoverRows == 0 ? y : Math.min(hoverTop, y);
+			hoverRows = bottom - hoverTop;
+		}
+	}
+
+	/**
+	 * Clears the tetrominoHover of all the tiles.
+	 */
+	public void clearTetrominoHover() {
+		for (int y = hoverTop; y < hoverTop + hoverRows; y++) {
+			if (hover[y] != 0) {
+				hover[y] = 0;
+				board.markRowsChanged(y, y);
+			}
+		}
+		hoverRows = 0;
+	}
+
+	/**
+	 * Returns the row of the tetromino hover.
+	 *
+	 * @param y Row index.
+	 * @return Mask with bit x set if the tile in column x is hovered.
+	 */
+	int getHoverRow(int y) {
+		return hover[y];
+	}
+
+	/**
+	 * Performs a single tick of the game. A game step is performed every
+	 * {@link game.GameState#getGravityTicks()} ticks.
+	 *
+	 * @return false if the game step of this tick failed to spawn a tetromino
+	 *         i.e. the game is lost, true otherwise.
+	 */
+	public boolean tick() {
+		ticks++;
+		if (++gravityCounter < gravityTicks)
+			return true;
+		gravityCounter = 0;
+		return step();
+	}
+
+	/**
+	 * @return number of ticks performed in the game
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return number of ticks between two game steps
+	 */
+	public int getGravityTicks() {
+		return gravityTicks;
+	}
+
+	/**
+	 * @param gravityTicks number of ticks between two game steps, at least 1
+	 */
+	public void setGravityTicks(int gravityTicks) {
+		this.gravityTicks = Math.max(1, gravityTicks);
+	}
+
+	/**
+	 * @return number of tetrominos kept in the queue after a tetromino is spawned
+	 */
+	public int getPreviews() {
+		return previews;
+	}
+
+	/**
+	 * Sets the number of tetrominos generated ahead and kept in the queue, so
+	 * they can be shown or planned for. The tetrominos are generated in the same
+	 * order either way, so a game with the same seed gets the same sequence.
+	 *
+	 * @param previews number of tetrominos kept in the queue after a tetromino is
+	 *                 spawned, at least 0
+	 */
+	public void setPreviews(int previews) {
+		this.previews = Math.max(0, previews);
+	}
+
+	/**
+	 * Performs a single game step. The spawned tetromino is moved one tile down.
+	 * If it can't move any further it is locked, full rows are removed and points
+	 * are added. If no tetromino is spawned afterwards a new one is generated and
+	 * spawned.
+	 *
+	 * @return false if a new tetromino couldn't be spawned i.e. the game is lost,
+	 *         true otherwise.
+	 */
+	public boolean step() {
+		if (spawned != null && !moveDown(true)) {
+			lockSpawned();
+			int removed = board.removeFullRows(removedRows);
+			if (removed > 0) {
+				for (int i = 0; i < lineClearListeners.size(); i++)
+					lineClearListeners.get(i).rowsRemoved(this, removedRows, removed);
+			}
+			lines += removed;
+			points += 1 << (2 * removed);
+		}
+		if (spawned == null) {
+			generateNextTetromino();
+			while (queueSize <= previews)
+				generateNextTetromino();
+			return spawnTetromino();
+		}
+		return true;
+	}
+
+	/**
+	 * Makes this game an exact copy of the other game: the board, the spawned
+	 * tetromino and its hover, the queue, the tetromino types, the random number
+	 * generator and the counters. The listeners are not copied. Nothing is
+	 * allocated unless the other queue is longer than this one.
+	 *
+	 * @param other Game with a board of the same size.
+	 * @throws IllegalArgumentException when the boards differ in size.
+	 */
+	public void copyFrom(GameState other) {
+		board.copyFrom(other.board);
+		System.arraycopy(other.hover, 0, hover, 0, hover.length);
+		availableTetrominos.clear();
+		for (int i = 0; i < other.availableTetrominos.size(); i++)
+			availableTetrominos.add(other.availableTetrominos.get(i));
+		if (queue.length < other.queueSize)
+			queue = new Tetromino[other.queue.length];
+		for (int i = 0; i < queue.length; i++)
+			queue[i] = i < other.queueSize ? other.queue[(other.queueHead + i) % other.queue.length] : null;
+		queueHead = 0;
+		queueSize = other.queueSize;
+		random.setState(other.random.getState());
+		spawned = other.spawned;
+		spawnedX = other.spawnedX;
+		spawnedY = other.spawnedY;
+		hoverY = other.hoverY;
+		hoverTop = other.hoverTop;
+		hoverRows = other.hoverRows;
+		points = other.points;
+		lines = other.lines;
+		pieces = other.pieces;
+		ticks = other.ticks;
+		gravityTicks = other.gravityTicks;
+		gravityCounter = other.gravityCounter;
+		previews = other.previews;
+	}
+
+	/**
+	 * Creates an exact copy of the game without the listeners.
+	 *
+	 * @return The copy.
+	 * @see game.GameState#copyFrom(GameState)
+	 */
+	public GameState copy() {
+		GameState copy = new GameState(board.getWidth(), board.getHeight());
+		copy.copyFrom(this);
+		return copy;
+	}
+
+	/**
+	 * Returns the number of bytes written by
+	 * {@link game.GameState#writeTo(ByteBuffer)} in the current state.
+	 *
+	 * @return The size.
+	 */
+	public int getSerializedSize() {
+		return 10 + board.getSerializedSize() + 2 + 2 * availableTetrominos.size() + 7 + 2 + 3 * queueSize + 40;
+	}
+
+	/**
+	 * Saves the game at the buffer's position: the board, the tetromino types,
+	 * the spawned tetromino and its position, the queue, the state of the random
+	 * number generator, the counters and the number of previews. Tetrominos are
+	 * stored as ids of their registered shapes, so the game can be read back
+	 * only by a process that registered the shapes in the same order, e.g. with
+	 * {@link game.StandardTetrominos}. The hover is not stored, it's computed
+	 * again when the game is read.
+	 *
+	 * @param buffer Buffer with at least
+	 *               {@link game.GameState#getSerializedSize()} bytes remaining.
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.putInt(SAVE_MAGIC);
+		buffer.putShort((short) SAVE_VERSION);
+		buffer.putShort((short) board.getWidth());
+		buffer.putShort((short) board.getHeight());
+		board.writeTo(buffer);
+		buffer.putShort((short) availableTetrominos.size());
+		for (int i = 0; i < availableTetrominos.size(); i++)
+			buffer.putShort((short) availableTetrominos.get(i).getId());
+		buffer.putShort((short) (spawned == null ? -1 : spawned.getShape().getId()));
+		buffer.put((byte) (spawned == null ? 0 : spawned.getRotation()));
+		buffer.putShort((short) spawnedX);
+		buffer.putShort((short) spawnedY);
+		buffer.putShort((short) queueSize);
+		for (int i = 0; i < queueSize; i++) {
+			Tetromino t = queue[(queueHead + i) % queue.length];
+			buffer.putShort((short) t.getShape().getId());
+			buffer.put((byte) t.getRotation());
+		}
+		buffer.putLong(random.getState());
+		buffer.putInt(points);
+		buffer.putInt(lines);
+		buffer.putInt(pieces);
+		buffer.putLong(ticks);
+		buffer.putInt(gravityTicks);
+		buffer.putInt(gravityCounter);
+		buffer.putInt(previews);
+	}
+
+	/**
+	 * Restores the game saved by {@link game.GameState#writeTo(ByteBuffer)} from
+	 * the buffer's position. The listeners are kept.
+	 *
+	 * @param buffer Buffer holding a saved game with a board of the same size.
+	 * @throws IllegalArgumentException when the buffer doesn't hold a supported
+	 *                                  saved game of this board size or refers to
+	 *                                  an unregistered shape.
+	 */
+	public void readFrom(ByteBuffer buffer) {
+		if (buffer.getInt() != SAVE_MAGIC)
+			throw new IllegalArgumentException("Not a saved game.");
+		int version = buffer.getShort();
+		if (version != SAVE_VERSION)
+			throw new IllegalArgumentException("Unsupported saved game version " + version + ".");
+		int width = buffer.getShort();
+		int height = buffer.getShort();
+		if (width != board.getWidth() || height != board.getHeight())
+			throw new IllegalArgumentException("Saved game board size " + width + "x" + height + " differs.");
+		board.readFrom(buffer);
+		availableTetrominos.clear();
+		int types = buffer.getShort();
+		for (int i = 0; i < types; i++)
+			availableTetrominos.add(getShape(buffer.getShort()));
+		int spawnedId = buffer.getShort();
+		int rotation = buffer.get();
+		spawned = spawnedId < 0 ? null : getShape(spawnedId).getState(rotation);
+		spawnedX = buffer.getShort();
+		spawnedY = buffer.getShort();
+		queueSize = 0;
+		queueHead = 0;
+		int size = buffer.getShort();
+		if (queue.length < size)
+			queue = new Tetromino[Integer.highestOneBit(size) * 2];
+		for (int i = 0; i < queue.length; i++)
+			queue[i] = null;
+		for (int i = 0; i < size; i++)
+			queue[i] = getShape(buffer.getShort()).getState(buffer.get());
+		queueSize = size;
+		random.setState(buffer.getLong());
+		points = buffer.getInt();
+		lines = buffer.getInt();
+		pieces = buffer.getInt();
+		ticks = buffer.getLong();
+		gravityTicks = buffer.getInt();
+		gravityCounter = buffer.getInt();
+		previews = buffer.getInt();
+		hover();
+	}
+
+	/**
+	 * Returns the registered shape of a saved game.
+	 *
+	 * @param id Id of the shape.
+	 * @return The shape.
+	 * @throws IllegalArgumentException when there's no such shape.
+	 */
+	private static TetrominoShape getShape(int id) {
+		if (id < 0 || id >= TetrominoShape.getShapeCount())
+			throw new IllegalArgumentException("Saved game refers to unregistered shape " + id + ".");
+		return TetrominoShape.getShape(id);
+	}
+
+	/**
+	 * @return the state of the random number generator
+	 */
+	long getRandomState() {
+		return random.getState();
+	}
+
+	/**
+	 * @return number of ticks since the last game step
+	 */
+	int getGravityCounter() {
+		return gravityCounter;
+	}
+
+	/**
+	 * Restores everything but the board and the tetromino types. The hover is
+	 * computed again.
+	 *
+	 * @param spawned        The spawned tetromino or null.
+	 * @param spawnedX       X coordinate of the spawned tetromino.
+	 * @param spawnedY       Y coordinate of the spawned tetromino.
+	 * @param queue          Tetrominos to spawn, in order.
+	 * @param randomState    State of the random number generator.
+	 * @param points         Points.
+	 * @param lines          Number of removed rows.
+	 * @param pieces         Number of spawned tetrominos.
+	 * @param ticks          Number of performed ticks.
+	 * @param gravityCounter Number of ticks since the last game step.
+	 */
+	void restore(Tetromino spawned, int spawnedX, int spawnedY, Tetromino[] queue, long randomState, int points,
+			int lines, int pieces, long ticks, int gravityCounter) {
+		markSpawnedChanged();
+		this.spawned = spawned;
+		this.spawnedX = spawnedX;
+		this.spawnedY = spawnedY;
+		markSpawnedChanged();
+		if (this.queue.length < queue.length)
+			this.queue = new Tetromino[Integer.highestOneBit(queue.length) * 2];
+		for (int i = 0; i < this.queue.length; i++)
+			this.queue[i] = i < queue.length ? queue[i] : null;
+		queueHead = 0;
+		queueSize = queue.length;
+		random.setState(randomState);
+		this.points = points;
+		this.lines = lines;
+		this.pieces = pieces;
+		this.ticks = ticks;
+		this.gravityCounter = gravityCounter;
+		hover();
+	}
+
+	/**
+	 * @return the points
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * @param points the points to set
+	 */
+	public void setPoints(int points) {
+		this.points = points;
+	}
+
+	/**
+	 * @return number of rows removed in the game
+	 */
+	public int getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return number of tetrominos spawned in the game
+	 */
+	public int getPieces() {
+		return pieces;
+	}
+}
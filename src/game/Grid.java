@@ -1,52 +1,77 @@
 package game;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
 
-import properties.GameSettings;
-
 /**
  * Class used for both managing and drawing the grid of tiles. All of the fields
- * and methods are static.
+ * and methods are static and operate on the board of the default game. The
+ * state of the grid is kept in a bitboard as palette indices, Tile objects are
+ * only used as a view of single grid positions and are shared by the palette.
  * 
  * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Board
+ * @see game.GameState#getDefault()
  */
 public class Grid {
 	/**
-	 * Two dimensional grid of tiles. Size is determined in GameSettings.
-	 * 
-	 * @see properties.GraphicsSettings#GAME_GRID_WIDTH
-	 * @see properties.GraphicsSettings#GAME_GRID_HEIGHT
-	 * @see game.Tile
+	 * Pre-rendered tiles used for drawing the grid.
 	 */
-	private static Tile[][] tiles = new Tile[GameSettings.GRID_WIDTH][GameSettings.GRID_HEIGHT];
+	private static final TileAtlas atlas = new TileAtlas();
 
 	/**
-	 * Method constructing all the tiles in the grid as empty tiles with null color
-	 * and with no tetromino hover.
-	 * 
-	 * @see game.Tile
-	 * @see game.Tile#Tile(boolean, java.awt.Color, boolean)
+	 * Method marking all the tiles in the grid as empty tiles with null color and
+	 * with no tetromino hover.
 	 */
 	public static void initTiles() {
-		for (int x = 0; x < GameSettings.GRID_WIDTH; x++) {
-			for (int y = 0; y < GameSettings.GRID_HEIGHT; y++) {
-				tiles[x][y] = new Tile(true, null, false);
-			}
-		}
+		GameState.getDefault().getBoard().clear();
+		GameState.getDefault().clearTetrominoHover();
 	}
 
 	/**
-	 * Returns the tile at x, y.
+	 * Returns the bitboard holding the grid tiles.
+	 * 
+	 * @return The board.
+	 */
+	public static Board getBoard() {
+		return GameState.getDefault().getBoard();
+	}
+
+	/**
+	 * Returns the tile at x, y. The tiles of the spawned tetromino are included.
+	 * The returned tile is shared by the palette and can't be changed, use
+	 * {@link game.Grid#setTile(int, int, Tile)} to change the grid.
 	 * 
 	 * @param x X coordinate.
 	 * @param y Y coordinate.
 	 * @return The tile at x, y position or null if there is no tile at position x,
 	 *         y.
+	 * @see game.Grid#setTile(int, int, Tile)
 	 */
 	public static Tile getTile(int x, int y) {
-		if (x < 0 || y < 0 || x >= GameSettings.GRID_WIDTH || y >= GameSettings.GRID_HEIGHT)
+		return getTile(GameState.getDefault(), x, y);
+	}
+
+	/**
+	 * Returns the tile at x, y of the given game. The tiles of the spawned
+	 * tetromino are included. The returned tile is shared by the palette and
+	 * can't be changed.
+	 * 
+	 * @param state The game.
+	 * @param x     X coordinate.
+	 * @param y     Y coordinate.
+	 * @return The tile at x, y position or null if there is no tile at position x,
+	 *         y.
+	 */
+	public static Tile getTile(GameState state, int x, int y) {
+		Board board = state.getBoard();
+		if (!board.isInside(x, y))
 			return null;
-		return tiles[x][y];
+		int spawnedTile = state.getSpawnedTileAt(x, y);
+		if (spawnedTile >= 0)
+			return Palette.getTile(state.getSpawned().getShape().getTileColor(spawnedTile),
+					state.isTetrominoHover(x, y));
+		return Palette.getTile(board.getColor(x, y), state.isTetrominoHover(x, y));
 	}
 
 	/**
@@ -54,12 +79,88 @@ public class Grid {
 	 * 
 	 * @param x X coordinate of the tile to change.
 	 * @param y Y coordinate of the tile to change.
-	 * @param t The new tile.
+	 * @param t The new tile. null is treated as an empty tile.
 	 */
 	public static void setTile(int x, int y, Tile t) {
-		if (x < 0 || y < 0 || x >= GameSettings.GRID_WIDTH || y >= GameSettings.GRID_HEIGHT)
+		Board board = getBoard();
+		if (!board.isInside(x, y))
 			return;
-		tiles[x][y] = t;
+		if (t == null || t.isEmpty())
+			board.clear(x, y);
+		else
+			board.fill(x, y, Palette.indexOf(t.getColor()));
+		setTetrominoHover(x, y, t != null && t.isTetrominoHover());
+	}
+
+	/**
+	 * Checks if the tile at x, y can't be entered by a tetromino. The tiles of the
+	 * spawned tetromino are not taken into account.
+	 * 
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return true if the tile is occupied or lies outside of the grid, false
+	 *         otherwise.
+	 */
+	public static boolean isOccupied(int x, int y) {
+		return getBoard().isOccupied(x, y);
+	}
+
+	/**
+	 * Marks the tile at x, y as not empty and changes its color to
+	 * <code>color</code>.
+	 * 
+	 * @param x     X coordinate.
+	 * @param y     Y coordinate.
+	 * @param color New tile color.
+	 */
+	public static void fillTile(int x, int y, Color color) {
+		Board board = getBoard();
+		if (!board.isInside(x, y))
+			return;
+		board.fill(x, y, Palette.indexOf(color));
+	}
+
+	/**
+	 * Marks the tile at x, y as empty.
+	 * 
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 */
+	public static void clearTile(int x, int y) {
+		Board board = getBoard();
+		if (!board.isInside(x, y))
+			return;
+		board.clear(x, y);
+	}
+
+	/**
+	 * Checks whether or not some tetromino tile will eventually fall down onto the
+	 * tile at x, y.
+	 * 
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return the tetrominoHover of the tile.
+	 */
+	public static boolean isTetrominoHover(int x, int y) {
+		return GameState.getDefault().isTetrominoHover(x, y);
+	}
+
+	/**
+	 * Changes the tetrominoHover of the tile at x, y.
+	 * 
+	 * @param x              X coordinate.
+	 * @param y              Y coordinate.
+	 * @param tetrominoHover the tetrominoHover to set.
+	 */
+	public static void setTetrominoHover(int x, int y, boolean tetrominoHover) {
+		GameState.getDefault().setTetrominoHover(x, y, tetrominoHover);
+	}
+
+	/**
+	 * Clears the tetrominoHover of all the tiles.
+	 */
+	public static void clearTetrominoHover() {
+		GameState.getDefault().clearTetrominoHover();
 	}
 
 	/**
@@ -68,29 +169,7 @@ public class Grid {
 	 * @return number of rows removed.
 	 */
 	public static int removeFullRows() {
-		int rowsRemoved = 0;
-		for (int y = GameSettings.GRID_HEIGHT - 1; y >= 0; y--) {
-			boolean full = true;
-			for (int x = 0; x < GameSettings.GRID_WIDTH; x++) {
-				if (tiles[x][y].isEmpty()) {
-					full = false;
-					break;
-				}
-			}
-			if (full) {
-				rowsRemoved++;
-				for (int yy = y; yy > 0; yy--) {
-					for (int xx = 0; xx < GameSettings.GRID_WIDTH; xx++) {
-						tiles[xx][yy] = tiles[xx][yy - 1];
-					}
-				}
-				for (int xx = 0; xx < GameSettings.GRID_WIDTH; xx++) {
-					tiles[xx][0] = new Tile(true, null, false);
-				}
-				y++;
-			}
-		}
-		return rowsRemoved;
+		return getBoard().removeFullRows();
 	}
 
 	/**
@@ -105,14 +184,101 @@ public class Grid {
 	 * @param height  Distance in pixels between top and bottom edges of the grid.
 	 */
 	public static void draw(Graphics2D g, int offsetX, int offsetY, int width, int height) {
-		for (int x = 0; x < GameSettings.GRID_WIDTH; x++) {
-			for (int y = 0; y < GameSettings.GRID_HEIGHT; y++) {
-				if (tiles[x][y] == null)
-					continue;
-				tiles[x][y].draw(g, offsetX + x * width / GameSettings.GRID_WIDTH,
-						offsetY + y * height / GameSettings.GRID_HEIGHT, width / GameSettings.GRID_WIDTH,
-						height / GameSettings.GRID_HEIGHT);
+		draw(GameState.getDefault(), g, offsetX, offsetY, width, height);
+	}
+
+	/**
+	 * Draws the grid of the given game. Every tile is copied from the tile atlas
+	 * with a single draw call.
+	 * 
+	 * @param state   The game.
+	 * @param g       Graphical context.
+	 * @param offsetX Distance in pixels between the left edge of the frame and the
+	 *                left edge of the grid.
+	 * @param offsetY Distance in pixels between the top edge of the frame and the
+	 *                top edge of the grid.
+	 * @param width   Distance in pixels between left and right edges of the grid.
+	 * @param height  Distance in pixels between top and bottom edges of the grid.
+	 */
+	public static void draw(GameState state, Graphics2D g, int offsetX, int offsetY, int width, int height) {
+		draw(state, g, offsetX, offsetY, width, height, -1);
+	}
+
+	/**
+	 * Draws the rows of the grid that changed after the given version of the
+	 * game. The rest of the grid is expected to be already drawn in the graphical
+	 * context.
+	 * 
+	 * @param state        The game.
+	 * @param g            Graphical context.
+	 * @param offsetX      Distance in pixels between the left edge of the frame
+	 *                     and the left edge of the grid.
+	 * @param offsetY      Distance in pixels between the top edge of the frame and
+	 *                     the top edge of the grid.
+	 * @param width        Distance in pixels between left and right edges of the
+	 *                     grid.
+	 * @param height       Distance in pixels between top and bottom edges of the
+	 *                     grid.
+	 * @param sinceVersion Version of the game that is already drawn, see
+	 *                     {@link game.GameState#getVersion()}. Negative value
+	 *                     draws the whole grid.
+	 * @return number of rows drawn.
+	 */
+	public static int draw(GameState state, Graphics2D g, int offsetX, int offsetY, int width, int height,
+			long sinceVersion) {
+		Board board = state.getBoard();
+		int gridWidth = board.getWidth();
+		int gridHeight = board.getHeight();
+		int drawn = 0;
+		for (int y = 0; y < gridHeight; y++) {
+			if (board.getRowVersion(y) <= sinceVersion)
+				continue;
+			for (int x = 0; x < gridWidth; x++) {
+				int spawnedTile = state.getSpawnedTileAt(x, y);
+				byte color = spawnedTile >= 0 ? state.getSpawned().getShape().getTileColor(spawnedTile)
+						: board.getColor(x, y);
+				atlas.draw(g, color, state.isTetrominoHover(x, y), offsetX + x * width / gridWidth,
+						offsetY + y * height / gridHeight, width / gridWidth, height / gridHeight);
+			}
+			drawn++;
+		}
+		return drawn;
+	}
+
+	/**
+	 * Draws the rows of the game snapshot that changed after the given version.
+	 * The rest of the grid is expected to be already drawn in the graphical
+	 * context.
+	 * 
+	 * @param snapshot     The game snapshot.
+	 * @param g            Graphical context.
+	 * @param offsetX      Distance in pixels between the left edge of the frame
+	 *                     and the left edge of the grid.
+	 * @param offsetY      Distance in pixels between the top edge of the frame and
+	 *                     the top edge of the grid.
+	 * @param width        Distance in pixels between left and right edges of the
+	 *                     grid.
+	 * @param height       Distance in pixels between top and bottom edges of the
+	 *                     grid.
+	 * @param sinceVersion Version of the game that is already drawn. Negative
+	 *                     value draws the whole grid.
+	 * @return number of rows drawn.
+	 */
+	public static int draw(GameSnapshot snapshot, Graphics2D g, int offsetX, int offsetY, int width, int height,
+			long sinceVersion) {
+		int gridWidth = snapshot.getWidth();
+		int gridHeight = snapshot.getHeight();
+		int drawn = 0;
+		for (int y = 0; y < gridHeight; y++) {
+			if (snapshot.getRowVersion(y) <= sinceVersion)
+				continue;
+			for (int x = 0; x < gridWidth; x++) {
+				atlas.draw(g, snapshot.getColor(x, y), snapshot.isTetrominoHover(x, y),
+						offsetX + x * width / gridWidth, offsetY + y * height / gridHeight, width / gridWidth,
+						height / gridHeight);
 			}
+			drawn++;
 		}
+		return drawn;
 	}
 }
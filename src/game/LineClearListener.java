@@ -0,0 +1,21 @@
+package game;
+
+/**
+ * Listener notified when full rows are removed from the board of a game, e.g.
+ * for animations or scoring.
+ * 
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.GameState#addLineClearListener(LineClearListener)
+ */
+public interface LineClearListener {
+	/**
+	 * Called after full rows were removed and before the points were added.
+	 * 
+	 * @param state The game.
+	 * @param rows  Indices the removed rows had before the removal, from the
+	 *              bottom up. The array is reused by the game and is only valid
+	 *              during the call.
+	 * @param count Number of removed rows.
+	 */
+	void rowsRemoved(GameState state, int[] rows, int count);
+}
@@ -0,0 +1,136 @@
+package game;
+
+import java.awt.Color;
+
+/**
+ * Registry of the tile colors used on the board. The board does not hold
+ * references to Color objects or tiles, it only stores the compact index of
+ * the color in the palette. Index 0 is reserved for empty tiles. All of the
+ * fields and methods are static.
+ * <p>
+ * The palette is immutable once a color is registered: registering a new color
+ * publishes new arrays, so reading the palette never locks or allocates. Every
+ * entry has two shared Tile flyweights, with and without the tetromino hover.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class Palette {
+	/**
+	 * Index used for empty tiles.
+	 */
+	public static final byte EMPTY = 0;
+
+	/**
+	 * Maximum number of colors the palette can hold, including the empty entry.
+	 */
+	public static final int MAX_COLORS = 256;
+
+	/**
+	 * Registered colors. The color at index i corresponds to the palette index i.
+	 */
+	private static volatile Color[] colors = { null };
+
+	/**
+	 * Shared tiles of the registered colors. The tile of palette index i is
+	 * stored at 2 * i, its hovered version at 2 * i + 1.
+	 */
+	private static volatile Tile[] tiles = { new Tile(true, null, false, true), new Tile(true, null, true, true) };
+
+	/**
+	 * Returns the palette index of the given color, registering the color if it
+	 * wasn't used before.
+	 *
+	 * @param color The color. null is mapped to {@link game.Palette#EMPTY}.
+	 * @return Palette index of the color.
+	 * @throws IllegalStateException when the palette is full.
+	 */
+	public static byte indexOf(Color color) {
+		if (color == null)
+			return EMPTY;
+		int index = find(colors, color);
+		if (index >= 0)
+			return (byte) index;
+		return register(color);
+	}
+
+	/**
+	 * Adds the color to the palette unless another thread did it first.
+	 *
+	 * @param color The color.
+	 * @return Palette index of the color.
+	 * @throws IllegalStateException when the palette is full.
+	 */
+	private static synchronized byte register(Color color) {
+		Color[] current = colors;
+		int index = find(current, color);
+		if (index >= 0)
+			return (byte) index;
+		if (current.length >= MAX_COLORS)
+			throw new IllegalStateException("Palette can't hold more than " + MAX_COLORS + " colors.");
+		index = current.length;
+		Color[] newColors = new Color[index + 1];
+		System.arraycopy(current, 0, newColors, 0, index);
+		newColors[index] = color;
+		Tile[] newTiles = new Tile[2 * (index + 1)];
+		System.arraycopy(tiles, 0, newTiles, 0, 2 * index);
+		newTiles[2 * index] = new Tile(false, color, false, true);
+		newTiles[2 * index + 1] = new Tile(false, color, true, true);
+		tiles = newTiles;
+		colors = newColors;
+		return (byte) index;
+	}
+
+	/**
+	 * Finds the color in the palette.
+	 *
+	 * @param colors Palette colors.
+	 * @param color  The color.
+	 * @return Index of the color or -1 if it isn't in the palette.
+	 */
+	private static int find(Color[] colors, Color color) {
+		for (int i = 1; i < colors.length; i++) {
+			if (color.equals(colors[i]))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the color stored under the given palette index.
+	 *
+	 * @param index Palette index.
+	 * @return The color or null for {@link game.Palette#EMPTY} and unused indices.
+	 */
+	public static Color getColor(int index) {
+		Color[] current = colors;
+		index &= 0xFF;
+		if (index >= current.length)
+			return null;
+		return current[index];
+	}
+
+	/**
+	 * Returns the shared tile of the palette entry. The tile can't be changed.
+	 *
+	 * @param index          Palette index.
+	 * @param tetrominoHover determines whether the hovered version of the tile
+	 *                       should be returned.
+	 * @return The shared tile, empty for {@link game.Palette#EMPTY} and unused
+	 *         indices.
+	 * @see game.Tile#isShared()
+	 */
+	public static Tile getTile(int index, boolean tetrominoHover) {
+		Tile[] current = tiles;
+		index &= 0xFF;
+		if (2 * index >= current.length)
+			index = EMPTY;
+		return current[2 * index + (tetrominoHover ? 1 : 0)];
+	}
+
+	/**
+	 * @return number of palette entries, including the empty entry
+	 */
+	public static int size() {
+		return colors.length;
+	}
+}
@@ -0,0 +1,82 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Triple buffer of game snapshots passing the game from the thread running it
+ * to a drawing thread without locks. The writer fills its back snapshot and
+ * swaps it with the middle one, the reader swaps its front snapshot with the
+ * middle one when a newer snapshot was published. Neither side ever waits for
+ * the other and no snapshot is allocated after the buffer is created. There
+ * can be one writer and one reader at a time.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.GameSnapshot
+ */
+public class SnapshotBuffer {
+	/**
+	 * Bit of {@link game.SnapshotBuffer#middle} set when the middle snapshot
+	 * hasn't been read yet.
+	 */
+	private static final int FRESH = 4;
+
+	/**
+	 * Mask of the snapshot index in {@link game.SnapshotBuffer#middle}.
+	 */
+	private static final int INDEX = 3;
+
+	/**
+	 * The three snapshots.
+	 */
+	private final GameSnapshot[] snapshots = new GameSnapshot[3];
+
+	/**
+	 * Index of the snapshot between the writer and the reader, with the
+	 * {@link game.SnapshotBuffer#FRESH} bit.
+	 */
+	private final AtomicInteger middle = new AtomicInteger(0);
+
+	/**
+	 * Index of the snapshot owned by the writer.
+	 */
+	private int back = 1;
+
+	/**
+	 * Index of the snapshot owned by the reader.
+	 */
+	private int front = 2;
+
+	/**
+	 * Creates a buffer of empty snapshots.
+	 *
+	 * @param width  Number of columns of the game's board.
+	 * @param height Number of rows of the game's board.
+	 */
+	public SnapshotBuffer(int width, int height) {
+		for (int i = 0; i < snapshots.length; i++)
+			snapshots[i] = new GameSnapshot(width, height);
+	}
+
+	/**
+	 * Copies the game into the back snapshot and publishes it. Called by the
+	 * writer only.
+	 *
+	 * @param state The game.
+	 */
+	public void publish(GameState state) {
+		snapshots[back].copyFrom(state);
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * Returns the newest published snapshot. The snapshot stays unchanged until
+	 * the next call. Called by the reader only.
+	 *
+	 * @return The snapshot.
+	 */
+	public GameSnapshot acquire() {
+		if ((middle.get() & FRESH) != 0)
+			front = middle.getAndSet(front) & INDEX;
+		return snapshots[front];
+	}
+}
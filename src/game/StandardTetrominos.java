@@ -0,0 +1,52 @@
+package game;
+
+import java.awt.Color;
+
+/**
+ * The seven standard tetrominos used by the game.
+ * 
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class StandardTetrominos {
+	/**
+	 * Creates the standard tetrominos.
+	 * 
+	 * @return The seven standard tetrominos in the same order every time.
+	 */
+	public static Tetromino[] create() {
+		return new Tetromino[] {
+				create(new int[] {0, 1, -1, 2}, new int[] {0, 0, 0, 0}, Color.red),
+				create(new int[] {0, 0, 1, -1}, new int[] {0, 1, 0, 0}, Color.gray),
+				create(new int[] {0, 1, 0, 1}, new int[] {0, 0, 1, 1}, Color.cyan),
+				create(new int[] {0, 1, -1, -1}, new int[] {0, 0, 0, 1}, Color.yellow),
+				create(new int[] {0, 1, -1, 1}, new int[] {0, 0, 0, 1}, Color.magenta),
+				create(new int[] {0, 1, -1, 0}, new int[] {0, 0, 1, 1}, Color.blue),
+				create(new int[] {0, 1, -1, 0}, new int[] {1, 1, 0, 0}, Color.green)
+		};
+	}
+
+	/**
+	 * Adds the standard tetrominos to the types that can be spawned in the game.
+	 * 
+	 * @param state The game.
+	 */
+	public static void addTo(GameState state) {
+		for (Tetromino t : create())
+			state.addTetrominoType(t);
+	}
+
+	/**
+	 * Creates a single colored tetromino.
+	 * 
+	 * @param x     X coordinates of the tiles.
+	 * @param y     Y coordinates of the tiles.
+	 * @param color Color of all the tiles.
+	 * @return The tetromino.
+	 */
+	private static Tetromino create(int[] x, int[] y, Color color) {
+		Tile[] tiles = new Tile[x.length];
+		for (int i = 0; i < tiles.length; i++)
+			tiles[i] = new Tile(false, color, false);
+		return new Tetromino(x, y, tiles);
+	}
+}
@@ -1,72 +1,107 @@
 package game;
 
-import java.util.ArrayList;
-
 /**
  * A class managing the grid tiles configurations referred to as the tetrominos.
+ * A tetromino is a single rotation state of a {@link game.TetrominoShape}, all
+ * of the rotation states are computed once when the shape is created so
+ * rotating and reading the tiles doesn't allocate anything.
  * 
  * @author ukasz Piekarski [wookashp98@gmail.com]
  */
 public class Tetromino {
 	/**
-	 * A list of x coordinates of corresponding tiles. 0 is the center with respect
-	 * to which the tetromino can be rotated.
+	 * Shape of the tetromino. 0 is the center with respect to which the tetromino
+	 * can be rotated.
+	 * 
+	 * @see game.TetrominoShape
 	 */
-	private ArrayList<Integer> blockConfigurationX;
+	private TetrominoShape shape;
 
 	/**
-	 * A list of y coordinates of corresponding tiles. 0 is the center with respect
-	 * to which the tetromino can be rotated.
+	 * Rotation state of the shape represented by this tetromino.
 	 */
-	private ArrayList<Integer> blockConfigurationY;
-
-	/**
-	 * A list of Tile objects of corresponding tiles.
-	 * 
-	 * @see game.Tile
-	 */
-	private ArrayList<Tile> blockConfigurationTile;
+	private int rotation;
 
 	/**
 	 * Creates a new tetromino from the given configuration.
 	 * 
-	 * @param blockConfigurationX    A value for
-	 *                               {@link game.Tetromino#blockConfigurationX}.
-	 * @param blockConfigurationY    A value for
-	 *                               {@link game.Tetromino#blockConfigurationY}.
-	 * @param blockConfigurationTile A value for
-	 *                               {@link game.Tetromino#blockConfigurationTile}.
+	 * @param blockConfigurationX    A list of x coordinates of corresponding tiles.
+	 * @param blockConfigurationY    A list of y coordinates of corresponding tiles.
+	 * @param blockConfigurationTile A list of Tile objects of corresponding tiles.
 	 */
 	public Tetromino(int[] blockConfigurationX, int[] blockConfigurationY, Tile[] blockConfigurationTile) {
-		this.blockConfigurationX = new ArrayList<Integer>();
-		this.blockConfigurationY = new ArrayList<Integer>();
-		this.blockConfigurationTile = new ArrayList<Tile>();
-		for (int i = 0; i < blockConfigurationTile.length; i++)
-			addTile(blockConfigurationX[i], blockConfigurationY[i], blockConfigurationTile[i]);
+		byte[] colors = new byte[blockConfigurationTile.length];
+		for (int i = 0; i < colors.length; i++)
+			colors[i] = Palette.indexOf(blockConfigurationTile[i].getColor());
+		this.shape = new TetrominoShape(blockConfigurationX, blockConfigurationY, colors, this);
 	}
 
 	/**
 	 * Creates a new empty tetromino.
 	 */
 	public Tetromino() {
-		this.blockConfigurationX = new ArrayList<Integer>();
-		this.blockConfigurationY = new ArrayList<Integer>();
-		this.blockConfigurationTile = new ArrayList<Tile>();
+		this(new int[0], new int[0], new Tile[0]);
 	}
 
 	/**
-	 * Gets the specific tile of the tetromino.
+	 * Creates a tetromino representing a rotation state of the shape.
+	 * 
+	 * @param shape    The shape.
+	 * @param rotation Rotation index.
+	 */
+	Tetromino(TetrominoShape shape, int rotation) {
+		this.shape = shape;
+		this.rotation = rotation;
+	}
+
+	/**
+	 * @return the shape
+	 */
+	public TetrominoShape getShape() {
+		return shape;
+	}
+
+	/**
+	 * @return the rotation index of the shape
+	 */
+	public int getRotation() {
+		return rotation;
+	}
+
+	/**
+	 * @return number of tiles of the tetromino
+	 */
+	public int getTileCount() {
+		return shape.getSize();
+	}
+
+	/**
+	 * Gets the specific tile of the tetromino. The tile is shared by the palette
+	 * and can't be changed.
 	 * 
 	 * @param id Index of the tile to retrieve.
 	 * @return A Tile object of the tetromino piece described at index
 	 *         <code>id</code>.
+	 * @see game.Palette#getTile(int, boolean)
 	 * @throws UndefinedTileException when there is no tile with index
 	 *                                <code>id</code>.
 	 */
 	public Tile getTile(int id) throws UndefinedTileException {
-		if (id < 0 || id >= blockConfigurationTile.size())
+		return Palette.getTile(getTileColor(id), false);
+	}
+
+	/**
+	 * Gets the palette index of the specific tetromino tile's color.
+	 * 
+	 * @param id Index of the tile.
+	 * @return Palette index of the tile's color.
+	 * @throws UndefinedTileException when there is no tile with index
+	 *                                <code>id</code>.
+	 */
+	public byte getTileColor(int id) throws UndefinedTileException {
+		if (id < 0 || id >= shape.getSize())
 			throw new UndefinedTileException();
-		return blockConfigurationTile.get(id).copy();
+		return shape.getTileColor(id);
 	}
 
 	/**
@@ -78,39 +113,49 @@ public class Tetromino {
 	 *                                <code>id</code>.
 	 */
 	public int getTileX(int id) throws UndefinedTileException {
-		if (id < 0 || id >= blockConfigurationX.size())
+		if (id < 0 || id >= shape.getSize())
 			throw new UndefinedTileException();
-		return blockConfigurationX.get(id);
+		return shape.getTileX(rotation, id);
 	}
 
 	/**
 	 * Gets the y coordinate of the specific tetromino tile.
 	 * 
 	 * @param id Index of the tile.
-	 * @return Tile's y coordinate or 0 if tile with index <code>id</code> doesn't
-	 *         exist.
+	 * @return Tile's y coordinate.
 	 * @throws UndefinedTileException when there is no tile with index
 	 *                                <code>id</code>.
 	 */
 	public int getTileY(int id) throws UndefinedTileException {
-		if (id < 0 || id >= blockConfigurationY.size())
+		if (id < 0 || id >= shape.getSize())
 			throw new UndefinedTileException();
-		return blockConfigurationY.get(id);
+		return shape.getTileY(rotation, id);
 	}
 
 	/**
 	 * Adds a new tile to the tetromino configuration with <code>x</code> and
-	 * <code>y</code> coordinates. If there was any tile with such coordinates the
-	 * new one overrides it.
+	 * <code>y</code> coordinates. The rotation states are recomputed, so the
+	 * tetromino no longer shares its shape with the other tetrominos.
 	 * 
 	 * @param x The x coordinate.
 	 * @param y The y coordinate.
 	 * @param t The tile object.
 	 */
 	public void addTile(int x, int y, Tile t) {
-		blockConfigurationX.add(x);
-		blockConfigurationY.add(y);
-		blockConfigurationTile.add(t.copy());
+		int size = shape.getSize();
+		int[] tilesX = new int[size + 1];
+		int[] tilesY = new int[size + 1];
+		byte[] colors = new byte[size + 1];
+		for (int i = 0; i < size; i++) {
+			tilesX[i] = shape.getTileX(rotation, i);
+			tilesY[i] = shape.getTileY(rotation, i);
+			colors[i] = shape.getTileColor(i);
+		}
+		tilesX[size] = x;
+		tilesY[size] = y;
+		colors[size] = Palette.indexOf(t.getColor());
+		shape = new TetrominoShape(tilesX, tilesY, colors, this);
+		rotation = 0;
 	}
 
 	/**
@@ -119,27 +164,16 @@ public class Tetromino {
 	 * @return A copy of the tetromino.
 	 */
 	public Tetromino copy() {
-		return new Tetromino(blockConfigurationX.stream().mapToInt(Integer::intValue).toArray(),
-				blockConfigurationY.stream().mapToInt(Integer::intValue).toArray(),
-				blockConfigurationTile.toArray(new Tile[blockConfigurationTile.size()]));
+		return new Tetromino(shape, rotation);
 	}
 
 	/**
-	 * Creates a rotated version of the tetromino.
+	 * Returns the rotated version of the tetromino. The rotation states are
+	 * precomputed, so no new object is created.
 	 * @param counterclockwise	determines the rotation direction.
 	 * @return	Rotated version of the tetromino.
 	 */
 	public Tetromino rotate(boolean counterclockwise) {
-		Tetromino t = new Tetromino();
-		for (int i = 0; i < blockConfigurationX.size(); i++) {
-			int x = blockConfigurationX.get(i);
-			int y = blockConfigurationY.get(i);
-			Tile tile = blockConfigurationTile.get(i);
-			if(counterclockwise)
-				t.addTile(y, -x, tile);
-			else
-				t.addTile(-y, x, tile);
-		}
-		return t;
+		return shape.getState(counterclockwise ? rotation + 1 : rotation - 1);
 	}
 }
@@ -0,0 +1,304 @@
+package game;
+
+import java.util.ArrayList;
+
+/**
+ * Immutable description of a tetromino shape with all of its four rotation
+ * states precomputed. Rotation state 0 is the configuration the shape was
+ * created with, every next state is the previous one rotated
+ * counterclockwise. Shapes that can be spawned are kept in a static registry.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Tetromino
+ */
+public class TetrominoShape {
+	/**
+	 * Number of rotation states of every shape.
+	 */
+	public static final int ROTATIONS = 4;
+
+	/**
+	 * Registered shapes. The shape at index i has the id i.
+	 */
+	private static ArrayList<TetrominoShape> registry = new ArrayList<>();
+
+	/**
+	 * Id of the shape in the registry or -1 if the shape isn't registered.
+	 */
+	private int id = -1;
+
+	/**
+	 * Number of tiles of the shape.
+	 */
+	private final int size;
+
+	/**
+	 * X coordinates of the tiles. The coordinate of tile i in rotation r is
+	 * stored at index r * size + i.
+	 */
+	private final int[] tilesX;
+
+	/**
+	 * Y coordinates of the tiles, laid out like {@link game.TetrominoShape#tilesX}.
+	 */
+	private final int[] tilesY;
+
+	/**
+	 * Palette indices of the tiles' colors. The colors don't depend on the
+	 * rotation.
+	 */
+	private final byte[] colors;
+
+	/**
+	 * Smallest x coordinate of every rotation.
+	 */
+	private final int[] minX = new int[ROTATIONS];
+
+	/**
+	 * Largest x coordinate of every rotation.
+	 */
+	private final int[] maxX = new int[ROTATIONS];
+
+	/**
+	 * Smallest y coordinate of every rotation.
+	 */
+	private final int[] minY = new int[ROTATIONS];
+
+	/**
+	 * Largest y coordinate of every rotation.
+	 */
+	private final int[] maxY = new int[ROTATIONS];
+
+	/**
+	 * Row masks of every rotation. Mask of row minY + j in rotation r is stored
+	 * at index r * rowStride + j and has bit x - minX set for every tile in that
+	 * row.
+	 */
+	private final int[] rowMasks;
+
+	/**
+	 * Largest number of rows of the rotations.
+	 */
+	private final int rowStride;
+
+	/**
+	 * Lowest tile of every column of every rotation. The largest y coordinate of
+	 * the tiles in column minX + j of rotation r is stored at index
+	 * r * columnStride + j.
+	 */
+	private final int[] columnBottoms;
+
+	/**
+	 * Largest number of columns of the rotations.
+	 */
+	private final int columnStride;
+
+	/**
+	 * Tetromino objects representing the rotation states.
+	 */
+	private final Tetromino[] states = new Tetromino[ROTATIONS];
+
+	/**
+	 * Creates a new shape and computes all of its rotation states.
+	 *
+	 * @param tilesX X coordinates of the tiles in rotation state 0.
+	 * @param tilesY Y coordinates of the tiles in rotation state 0.
+	 * @param colors Palette indices of the tiles' colors.
+	 * @param state0 Tetromino object to use for rotation state 0 or null to
+	 *               create a new one.
+	 */
+	TetrominoShape(int[] tilesX, int[] tilesY, byte[] colors, Tetromino state0) {
+		size = colors.length;
+		this.tilesX = new int[ROTATIONS * size];
+		this.tilesY = new int[ROTATIONS * size];
+		this.colors = colors.clone();
+		for (int i = 0; i < size; i++) {
+			this.tilesX[i] = tilesX[i];
+			this.tilesY[i] = tilesY[i];
+		}
+		for (int r = 1; r < ROTATIONS; r++) {
+			for (int i = 0; i < size; i++) {
+				this.tilesX[r * size + i] = this.tilesY[(r - 1) * size + i];
+				this.tilesY[r * size + i] = -this.tilesX[(r - 1) * size + i];
+			}
+		}
+		for (int r = 0; r < ROTATIONS; r++) {
+			if (size > 0) {
+				minX[r] = maxX[r] = this.tilesX[r * size];
+				minY[r] = maxY[r] = this.tilesY[r * size];
+			}
+			for (int i = 1; i < size; i++) {
+				minX[r] = Math.min(minX[r], this.tilesX[r * size + i]);
+				maxX[r] = Math.max(maxX[r], this.tilesX[r * size + i]);
+				minY[r] = Math.min(minY[r], this.tilesY[r * size + i]);
+				maxY[r] = Math.max(maxY[r], this.tilesY[r * size + i]);
+			}
+		}
+		int rows = 0;
+		int columns = 0;
+		for (int r = 0; r < ROTATIONS && size > 0; r++) {
+			rows = Math.max(rows, maxY[r] - minY[r] + 1);
+			columns = Math.max(columns, maxX[r] - minX[r] + 1);
+		}
+		rowStride = rows;
+		columnStride = columns;
+		rowMasks = new int[ROTATIONS * rowStride];
+		columnBottoms = new int[ROTATIONS * columnStride];
+		for (int r = 0; r < ROTATIONS; r++) {
+			for (int j = 0; j < columnStride; j++)
+				columnBottoms[r * columnStride + j] = Integer.MIN_VALUE;
+			for (int i = 0; i < size; i++) {
+				int x = this.tilesX[r * size + i] - minX[r];
+				int y = this.tilesY[r * size + i];
+				rowMasks[r * rowStride + y - minY[r]] |= 1 << x;
+				columnBottoms[r * columnStride + x] = Math.max(columnBottoms[r * columnStride + x], y);
+			}
+		}
+		states[0] = state0 == null ? new Tetromino(this, 0) : state0;
+		for (int r = 1; r < ROTATIONS; r++)
+			states[r] = new Tetromino(this, r);
+	}
+
+	/**
+	 * Adds the shape to the registry. Registering the same shape again has no
+	 * effect.
+	 *
+	 * @param shape The shape.
+	 * @return The registered shape.
+	 */
+	public static synchronized TetrominoShape register(TetrominoShape shape) {
+		if (shape.id < 0) {
+			shape.id = registry.size();
+			registry.add(shape);
+		}
+		return shape;
+	}
+
+	/**
+	 * Returns the registered shape.
+	 *
+	 * @param id Id of the shape.
+	 * @return The shape with the given id.
+	 */
+	public static synchronized TetrominoShape getShape(int id) {
+		return registry.get(id);
+	}
+
+	/**
+	 * @return number of registered shapes
+	 */
+	public static synchronized int getShapeCount() {
+		return registry.size();
+	}
+
+	/**
+	 * @return the id in the registry or -1 if the shape isn't registered
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return number of tiles of the shape
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the tetromino representing the rotation state.
+	 *
+	 * @param rotation Rotation index.
+	 * @return The tetromino.
+	 */
+	public Tetromino getState(int rotation) {
+		return states[rotation & (ROTATIONS - 1)];
+	}
+
+	/**
+	 * Returns the x coordinate of the tile in the given rotation.
+	 *
+	 * @param rotation Rotation index.
+	 * @param id       Index of the tile.
+	 * @return Tile's x coordinate.
+	 */
+	public int getTileX(int rotation, int id) {
+		return tilesX[rotation * size + id];
+	}
+
+	/**
+	 * Returns the y coordinate of the tile in the given rotation.
+	 *
+	 * @param rotation Rotation index.
+	 * @param id       Index of the tile.
+	 * @return Tile's y coordinate.
+	 */
+	public int getTileY(int rotation, int id) {
+		return tilesY[rotation * size + id];
+	}
+
+	/**
+	 * Returns the palette index of the tile's color.
+	 *
+	 * @param id Index of the tile.
+	 * @return Palette index.
+	 */
+	public byte getTileColor(int id) {
+		return colors[id];
+	}
+
+	/**
+	 * @param rotation Rotation index.
+	 * @return the smallest x coordinate of the rotation
+	 */
+	public int getMinX(int rotation) {
+		return minX[rotation];
+	}
+
+	/**
+	 * @param rotation Rotation index.
+	 * @return the largest x coordinate of the rotation
+	 */
+	public int getMaxX(int rotation) {
+		return maxX[rotation];
+	}
+
+	/**
+	 * @param rotation Rotation index.
+	 * @return the smallest y coordinate of the rotation
+	 */
+	public int getMinY(int rotation) {
+		return minY[rotation];
+	}
+
+	/**
+	 * @param rotation Rotation index.
+	 * @return the largest y coordinate of the rotation
+	 */
+	public int getMaxY(int rotation) {
+		return maxY[rotation];
+	}
+
+	/**
+	 * Returns the mask of the tiles in a row of the rotation.
+	 *
+	 * @param rotation Rotation index.
+	 * @param row      Row relative to {@link game.TetrominoShape#getMinY(int)}.
+	 * @return Mask with bit x - minX set for every tile in the row.
+	 */
+	public int getRowMask(int rotation, int row) {
+		return rowMasks[rotation * rowStride + row];
+	}
+
+	/**
+	 * Returns the lowest tile of a column of the rotation.
+	 *
+	 * @param rotation Rotation index.
+	 * @param column   Column relative to {@link game.TetrominoShape#getMinX(int)}.
+	 * @return The largest y coordinate of the tiles in the column or
+	 *         Integer.MIN_VALUE if the column has no tiles.
+	 */
+	public int getColumnBottom(int rotation, int column) {
+		return columnBottoms[rotation * columnStride + column];
+	}
+}
@@ -1,66 +1,30 @@
 package game;
 
-import java.awt.Dimension;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Random;
-
-import properties.GameSettings;
-
 /**
  * Class managing the part of the game where a new tetromino has to be spawned
- * at the top of the grid and has to be moved gradually down the grid.
+ * at the top of the grid and has to be moved gradually down the grid. All of
+ * the methods are static and operate on the default game.
  * 
  * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.GameState#getDefault()
  */
 public class TetrominoSpawner {
 	/**
-	 * A list of tetromino types that possibly can be spawned.
-	 */
-	private static ArrayList<Tetromino> availableTetrominos = new ArrayList<>();
-
-	/**
-	 * A queue of tetrominos to spawn.
-	 */
-	private static Queue<Tetromino> tetrominoQueue = new LinkedList<>();
-
-	/**
-	 * Random number generator.
-	 */
-	private static Random random = new Random();
-
-	/**
-	 * Currently spawned tetromino that is moving through the grid.
-	 */
-	public static Tetromino spawned;
-
-	/**
-	 * X coordinate of the spawned tetromino.
-	 */
-	private static int spawnedX;
-
-	/**
-	 * Y coordinate of the spawned tetromino.
-	 */
-	private static int spawnedY;
-
-	/**
-	 * Adds a new tetromino type that can be possibly spawned.
+	 * Adds a new tetromino type that can be possibly spawned. The shape of the
+	 * tetromino is registered in the shape registry.
 	 * 
 	 * @param t Tetromino
+	 * @see game.TetrominoShape#register(TetrominoShape)
 	 */
 	public static void addTetrominoType(Tetromino t) {
-		if (t == null)
-			return;
-		availableTetrominos.add(t.copy());
+		GameState.getDefault().addTetrominoType(t);
 	}
 
 	/**
 	 * Clears the possible tetromino types list.
 	 */
 	public static void clearTetrominoTypes() {
-		availableTetrominos.clear();
+		GameState.getDefault().clearTetrominoTypes();
 	}
 
 	/**
@@ -69,7 +33,18 @@ public class TetrominoSpawner {
 	 * @return true if there is tetromino spawned, false otherwise.
 	 */
 	public static boolean isAnySpawned() {
-		return !(spawned == null);
+		return GameState.getDefault().isAnySpawned();
+	}
+
+	/**
+	 * Returns the currently spawned tetromino that is moving through the grid. The
+	 * spawned tetromino is not a part of the grid until it is locked.
+	 * 
+	 * @return The spawned tetromino or null.
+	 * @see game.TetrominoSpawner#lockSpawned()
+	 */
+	public static Tetromino getSpawned() {
+		return GameState.getDefault().getSpawned();
 	}
 
 	/**
@@ -78,16 +53,29 @@ public class TetrominoSpawner {
 	 * @param seed seed
 	 */
 	public static void setSeed(long seed) {
-		random = new Random(seed);
+		GameState.getDefault().setSeed(seed);
 	}
 
 	/**
 	 * Adds a new tetromino into the queue to spawn.
 	 */
 	public static void generateNextTetromino() {
-		if (availableTetrominos.isEmpty())
-			return;
-		tetrominoQueue.add(availableTetrominos.get(random.nextInt(availableTetrominos.size())).copy());
+		GameState.getDefault().generateNextTetromino();
+	}
+
+	/**
+	 * Checks if the tetromino in the given rotation can be placed in the grid at
+	 * x, y. The grid is not modified.
+	 * 
+	 * @param piece    The tetromino. Only its shape is taken into account.
+	 * @param rotation Rotation index of the shape.
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 * @return true if all of the tetromino tiles lie inside the grid on empty
+	 *         tiles, false otherwise.
+	 */
+	public static boolean canPlace(Tetromino piece, int rotation, int x, int y) {
+		return GameState.getDefault().canPlace(piece, rotation, x, y);
 	}
 
 	/**
@@ -96,64 +84,7 @@ public class TetrominoSpawner {
 	 * @return true if the tetromino was successfully spawned, false otherwise.
 	 */
 	public static boolean spawnTetromino() {
-		if (tetrominoQueue.isEmpty())
-			return false;
-		int minH = 0, maxH = 0, minW = 0, maxW = 0;
-		Tetromino t = tetrominoQueue.poll();
-		int id = 0;
-		while (true) {
-			try {
-				int x = t.getTileX(id);
-				int y = t.getTileY(id);
-				if (id == 0) {
-					maxH = y;
-					minH = y;
-					maxW = x;
-					minW = x;
-				} else {
-					maxH = Math.max(maxH, y);
-					minH = Math.min(minH, y);
-					maxW = Math.max(maxW, x);
-					minW = Math.min(minW, x);
-				}
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		int offsetX, offsetY;
-		offsetX = (GameSettings.GRID_WIDTH - maxW - minW) / 2;
-		offsetY = -minH;
-		id = 0;
-		while (true) {
-			try {
-				int x = t.getTileX(id);
-				int y = t.getTileY(id);
-				Tile tile = Grid.getTile(x + offsetX, y + offsetY);
-				if (tile == null || !tile.isEmpty())
-					return false;
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		spawned = t;
-		spawnedX = offsetX;
-		spawnedY = offsetY;
-		id = 0;
-		while (true) {
-			try {
-				int x = t.getTileX(id);
-				int y = t.getTileY(id);
-				Tile tile = t.getTile(id);
-				Grid.getTile(x + offsetX, y + offsetY).fill(tile.getColor());
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		TetrominoSpawner.hover();
-		return true;
+		return GameState.getDefault().spawnTetromino();
 	}
 
 	/**
@@ -166,58 +97,7 @@ public class TetrominoSpawner {
 	 * @return true if tetromino was moved, false otherwise.
 	 */
 	public static boolean moveSpawned(int dx, int dy, boolean changeHover) {
-		int id = 0;
-		while (true) {
-			try {
-				int x = spawned.getTileX(id);
-				int y = spawned.getTileY(id);
-				Grid.setTile(x + spawnedX, y + spawnedY, new Tile(true, null, false));
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		id = 0;
-		while (true) {
-			try {
-				int x = spawned.getTileX(id);
-				int y = spawned.getTileY(id);
-				Tile tile = Grid.getTile(x + spawnedX + dx, y + spawnedY + dy);
-				if (tile == null || !tile.isEmpty()) {
-					id = 0;
-					while (true) {
-						try {
-							x = spawned.getTileX(id);
-							y = spawned.getTileY(id);
-							Grid.setTile(x + spawnedX, y + spawnedY, spawned.getTile(id).copy());
-							id++;
-						} catch (UndefinedTileException e) {
-							break;
-						}
-					}
-					return false;
-				}
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		spawnedX += dx;
-		spawnedY += dy;
-		id = 0;
-		while (true) {
-			try {
-				int x = spawned.getTileX(id);
-				int y = spawned.getTileY(id);
-				Grid.setTile(x + spawnedX, y + spawnedY, spawned.getTile(id).copy());
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		if (changeHover)
-			TetrominoSpawner.hover();
-		return true;
+		return GameState.getDefault().moveSpawned(dx, dy, changeHover);
 	}
 
 	/**
@@ -227,59 +107,7 @@ public class TetrominoSpawner {
 	 * @return true if tetromino was rotated, false otherwise.
 	 */
 	public static boolean rotateSpawned(boolean counterclockwise) {
-		if (spawned == null)
-			return false;
-		int id = 0;
-		while (true) {
-			try {
-				int x = spawned.getTileX(id);
-				int y = spawned.getTileY(id);
-				Grid.setTile(x + spawnedX, y + spawnedY, new Tile(true, null, false));
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		id = 0;
-		Tetromino rotated = spawned.rotate(counterclockwise);
-		while (true) {
-			try {
-				int x = rotated.getTileX(id);
-				int y = rotated.getTileY(id);
-				Tile tile = Grid.getTile(x + spawnedX, y + spawnedY);
-				if (tile == null || !tile.isEmpty()) {
-					id = 0;
-					while (true) {
-						try {
-							x = spawned.getTileX(id);
-							y = spawned.getTileY(id);
-							Grid.setTile(x + spawnedX, y + spawnedY, spawned.getTile(id).copy());
-							id++;
-						} catch (UndefinedTileException e) {
-							break;
-						}
-					}
-					return false;
-				}
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		spawned = rotated;
-		id = 0;
-		while (true) {
-			try {
-				int x = spawned.getTileX(id);
-				int y = spawned.getTileY(id);
-				Grid.setTile(x + spawnedX, y + spawnedY, spawned.getTile(id).copy());
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
-		TetrominoSpawner.hover();
-		return true;
+		return GameState.getDefault().rotateSpawned(counterclockwise);
 	}
 
 	/**
@@ -288,9 +116,7 @@ public class TetrominoSpawner {
 	 * @return true if tetromino was successfully moved, false otherwise.
 	 */
 	public static boolean moveLeft() {
-		if (spawned == null)
-			return false;
-		return moveSpawned(-1, 0, true);
+		return GameState.getDefault().moveLeft();
 	}
 
 	/**
@@ -299,9 +125,7 @@ public class TetrominoSpawner {
 	 * @return true if tetromino was successfully moved, false otherwise.
 	 */
 	public static boolean moveRight() {
-		if (spawned == null)
-			return false;
-		return moveSpawned(1, 0, true);
+		return GameState.getDefault().moveRight();
 	}
 
 	/**
@@ -313,9 +137,7 @@ public class TetrominoSpawner {
 	 * @return true if tetromino was successfully moved, false otherwise.
 	 */
 	public static boolean moveDown(boolean changeHover) {
-		if (spawned == null)
-			return false;
-		return moveSpawned(0, 1, changeHover);
+		return GameState.getDefault().moveDown(changeHover);
 	}
 
 	/**
@@ -325,32 +147,54 @@ public class TetrominoSpawner {
 	 *                    tetromino hover location.
 	 */
 	public static void skipDown(boolean changeHover) {
-		while (moveDown(changeHover))
-			;
+		GameState.getDefault().skipDown(changeHover);
+	}
+
+	/**
+	 * Writes the spawned tetromino tiles into the grid and removes the tetromino
+	 * from the spawner.
+	 */
+	public static void lockSpawned() {
+		GameState.getDefault().lockSpawned();
+	}
+
+	/**
+	 * Returns the index of the spawned tetromino tile lying at x, y.
+	 * 
+	 * @param x X coordinate.
+	 * @param y Y coordinate.
+	 * @return Index of the tile or -1 if no spawned tetromino tile lies at x, y.
+	 */
+	public static int getSpawnedTileAt(int x, int y) {
+		return GameState.getDefault().getSpawnedTileAt(x, y);
+	}
+
+	/**
+	 * @return the x coordinate of the spawned tetromino
+	 */
+	public static int getSpawnedX() {
+		return GameState.getDefault().getSpawnedX();
+	}
+
+	/**
+	 * @return the y coordinate of the spawned tetromino
+	 */
+	public static int getSpawnedY() {
+		return GameState.getDefault().getSpawnedY();
 	}
 
+	/**
+	 * @return the y coordinate at which the spawned tetromino would stop if it
+	 *         was moved all the way down
+	 */
+	public static int getHoverY() {
+		return GameState.getDefault().getHoverY();
+	}
+
+	/**
+	 * Marks the tiles onto which the spawned tetromino will eventually fall down.
+	 */
 	public static void hover() {
-		for (int y = 0; y < GameSettings.GRID_HEIGHT; y++) {
-			for (int x = 0; x < GameSettings.GRID_WIDTH; x++) {
-				Grid.getTile(x, y).setTetrominoHover(false);
-			}
-		}
-		if (spawned == null)
-			return;
-		int sy = spawnedY;
-		skipDown(false);
-		Dimension res = new Dimension(spawnedX, spawnedY);
-		moveSpawned(0, sy - spawnedY, false);
-		int id = 0;
-		while (true) {
-			try {
-				int x = spawned.getTileX(id);
-				int y = spawned.getTileY(id);
-				Grid.getTile(x + res.width, y + res.height).setTetrominoHover(true);
-				id++;
-			} catch (UndefinedTileException e) {
-				break;
-			}
-		}
+		GameState.getDefault().hover();
 	}
 }
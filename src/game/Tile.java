@@ -10,6 +10,26 @@ import java.awt.Graphics2D;
  * @author ukasz Piekarski [wookashp98@gmail.com]
  */
 public class Tile {
+	/**
+	 * Border color of an empty tile.
+	 */
+	private static final Color EMPTY_BORDER = new Color(85, 85, 85);
+
+	/**
+	 * Fill color of an empty tile.
+	 */
+	private static final Color EMPTY_FILL = new Color(45, 45, 45);
+
+	/**
+	 * Color of the light edge of a filled tile.
+	 */
+	private static final Color LIGHT_EDGE = new Color(210, 210, 210);
+
+	/**
+	 * Color of the dark edge of a filled tile.
+	 */
+	private static final Color DARK_EDGE = new Color(60, 60, 60);
+
 	/**
 	 * Determines whether or not the tile is empty i.e. does it allow tetrominos to
 	 * pass through.
@@ -27,6 +47,14 @@ public class Tile {
 	 */
 	private boolean tetrominoHover;
 
+	/**
+	 * Determines whether or not the tile is a flyweight shared by the palette,
+	 * shared tiles can't be changed.
+	 * 
+	 * @see game.Palette#getTile(int, boolean)
+	 */
+	private final boolean shared;
+
 	/**
 	 * Creates a new tile.
 	 * 
@@ -35,9 +63,22 @@ public class Tile {
 	 * @param tetrominoHover A value for {@link game.Tile#tetrominoHover}.
 	 */
 	public Tile(boolean isEmpty, Color color, boolean tetrominoHover) {
+		this(isEmpty, color, tetrominoHover, false);
+	}
+
+	/**
+	 * Creates a new tile.
+	 * 
+	 * @param isEmpty        A value for {@link game.Tile#isEmpty}.
+	 * @param color          A value for {@link game.Tile#color}.
+	 * @param tetrominoHover A value for {@link game.Tile#tetrominoHover}.
+	 * @param shared         A value for {@link game.Tile#shared}.
+	 */
+	Tile(boolean isEmpty, Color color, boolean tetrominoHover, boolean shared) {
 		this.isEmpty = isEmpty;
 		this.color = color;
 		this.tetrominoHover = tetrominoHover;
+		this.shared = shared;
 	}
 
 	/**
@@ -49,8 +90,11 @@ public class Tile {
 
 	/**
 	 * @param tetrominoHover the tetrominoHover to set
+	 * @throws UnsupportedOperationException when the tile is shared.
 	 */
 	public void setTetrominoHover(boolean tetrominoHover) {
+		if (shared)
+			throw new UnsupportedOperationException("Shared tiles can't be changed.");
 		this.tetrominoHover = tetrominoHover;
 	}
 
@@ -72,8 +116,11 @@ public class Tile {
 	 * Marks the tile as not empty and changes its color to <code>color</code>.
 	 * 
 	 * @param color New tile color.
+	 * @throws UnsupportedOperationException when the tile is shared.
 	 */
 	public void fill(Color color) {
+		if (shared)
+			throw new UnsupportedOperationException("Shared tiles can't be changed.");
 		this.color = color;
 		isEmpty = false;
 	}
@@ -89,15 +136,15 @@ public class Tile {
 	 */
 	public void draw(Graphics2D g, int offsetX, int offsetY, int width, int height) {
 		if (isEmpty) {
-			g.setColor(new Color(85, 85, 85));
+			g.setColor(EMPTY_BORDER);
 			g.drawRect(offsetX + 1, offsetY + 1, width - 2, height - 2);
-			g.setColor(new Color(45, 45, 45));
+			g.setColor(EMPTY_FILL);
 			g.fillRect(offsetX + 3, offsetY + 3, width - 4, height - 4);
 		}
 		else {
-			g.setColor(new Color(210, 210, 210));
+			g.setColor(LIGHT_EDGE);
 			g.drawRect(offsetX + 1, offsetY + 1, width - 4, height - 4);
-			g.setColor(new Color(60, 60, 60));
+			g.setColor(DARK_EDGE);
 			g.drawRect(offsetX + 2, offsetY + 2, width - 3, height - 3);
 			g.setColor(color);
 			g.fillRect(offsetX + 2, offsetY + 2, width - 4, height - 4);
@@ -109,7 +156,18 @@ public class Tile {
 	}
 
 	/**
-	 * Creates a new tile with the exact same fields' values.
+	 * Checks if the tile is a flyweight shared by the palette. Shared tiles can't
+	 * be changed, use {@link game.Tile#copy()} to get a tile that can.
+	 * 
+	 * @return the shared
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Creates a new tile with the exact same fields' values. The copy is never
+	 * shared.
 	 * 
 	 * @return A copy of the tile.
 	 */
@@ -0,0 +1,101 @@
+package game;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Image holding every tile variant pre-rendered at a single tile size. A tile
+ * is drawn by copying its part of the image, which replaces the several draw
+ * calls of {@link game.Tile#draw(Graphics2D, int, int, int, int)}. The image is
+ * rebuilt only when the tile size changes or new colors are registered in the
+ * palette. An atlas should be used by a single drawing thread.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Palette
+ */
+public class TileAtlas {
+	/**
+	 * Color of the pixels not covered by the tile drawing.
+	 */
+	private static final Color BACKGROUND = Color.black;
+
+	/**
+	 * The pre-rendered tiles. Tile of palette index i is drawn in column i, the
+	 * row 0 holds the tiles without the tetromino hover and row 1 the hovered
+	 * ones.
+	 */
+	private BufferedImage image;
+
+	/**
+	 * Views of the single tiles in {@link game.TileAtlas#image}. The view of
+	 * palette index i is stored at 2 * i, its hovered version at 2 * i + 1.
+	 */
+	private BufferedImage[] tiles;
+
+	/**
+	 * Width in pixels of a single tile in the image.
+	 */
+	private int tileWidth;
+
+	/**
+	 * Height in pixels of a single tile in the image.
+	 */
+	private int tileHeight;
+
+	/**
+	 * Number of palette entries in the image.
+	 */
+	private int paletteSize;
+
+	/**
+	 * Draws the tile.
+	 *
+	 * @param g              Graphical context.
+	 * @param paletteIndex   Palette index of the tile,
+	 *                       {@link game.Palette#EMPTY} for an empty tile.
+	 * @param tetrominoHover determines whether the tile is hovered by a
+	 *                       tetromino.
+	 * @param offsetX        The x coordinate of the tile's left-top corner in
+	 *                       pixels.
+	 * @param offsetY        The y coordinate of the tile's left-top corner in
+	 *                       pixels.
+	 * @param width          Width of the tile in pixels.
+	 * @param height         Height of the tile in pixels.
+	 */
+	public void draw(Graphics2D g, int paletteIndex, boolean tetrominoHover, int offsetX, int offsetY, int width,
+			int height) {
+		if (width <= 0 || height <= 0)
+			return;
+		paletteIndex &= 0xFF;
+		if (image == null || width != tileWidth || height != tileHeight || paletteIndex >= paletteSize)
+			rebuild(width, height);
+		g.drawImage(tiles[2 * paletteIndex + (tetrominoHover ? 1 : 0)], offsetX, offsetY, null);
+	}
+
+	/**
+	 * Renders all the tile variants of the current palette at the given size.
+	 *
+	 * @param width  Width of the tile in pixels.
+	 * @param height Height of the tile in pixels.
+	 */
+	private void rebuild(int width, int height) {
+		tileWidth = width;
+		tileHeight = height;
+		paletteSize = Palette.size();
+		image = new BufferedImage(width * paletteSize, height * 2, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(BACKGROUND);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		for (int i = 0; i < paletteSize; i++) {
+			Palette.getTile(i, false).draw(g, i * width, 0, width, height);
+			Palette.getTile(i, true).draw(g, i * width, height, width, height);
+		}
+		g.dispose();
+		tiles = new BufferedImage[2 * paletteSize];
+		for (int i = 0; i < paletteSize; i++) {
+			tiles[2 * i] = image.getSubimage(i * width, 0, width, height);
+			tiles[2 * i + 1] = image.getSubimage(i * width, height, width, height);
+		}
+	}
+}
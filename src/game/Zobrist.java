@@ -0,0 +1,99 @@
+package game;
+
+/**
+ * Zobrist keys: a random 64-bit key for every occupancy of every board row and
+ * every piece state. The hash of a position is the xor of the keys of its
+ * parts, so it's updated by xoring the keys that changed instead of hashing
+ * the whole position again. A row is keyed as a whole rather than tile by tile,
+ * so moving a row down when rows are removed costs the same however many tiles
+ * it has. The keys are derived from their coordinates by a mixing function, so
+ * they are the same in every run and for every board.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see game.Board#getHash()
+ */
+public final class Zobrist {
+	/**
+	 * Salt of the row keys.
+	 */
+	private static final long ROW = 0x243F6A8885A308D3L;
+
+	/**
+	 * Salt of the spawned tetromino keys.
+	 */
+	private static final long PIECE = 0x13198A2E03707344L;
+
+	/**
+	 * Salt of the queued tetromino keys.
+	 */
+	private static final long PREVIEW = 0xA4093822299F31D0L;
+
+	/**
+	 * Salt of the removed rows keys.
+	 */
+	private static final long LINES = 0x082EFA98EC4E6C89L;
+
+	/**
+	 * Not instantiable.
+	 */
+	private Zobrist() {
+	}
+
+	/**
+	 * Returns the key of a board row.
+	 *
+	 * @param y    Row index.
+	 * @param mask Occupancy mask of the row.
+	 * @return The key, 0 for an empty row.
+	 */
+	public static long row(int y, int mask) {
+		if (mask == 0)
+			return 0;
+		return mix(ROW + ((long) y << 32 | mask & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Returns the key of the spawned tetromino.
+	 *
+	 * @param shape    Shape of the tetromino.
+	 * @param rotation Rotation index.
+	 * @param x        X coordinate of the tetromino center.
+	 * @param y        Y coordinate of the tetromino center.
+	 * @return The key.
+	 */
+	public static long piece(TetrominoShape shape, int rotation, int x, int y) {
+		return mix(PIECE + ((long) shape.getId() << 40 | (long) rotation << 32 | (x & 0xFFFFL) << 16 | y & 0xFFFFL));
+	}
+
+	/**
+	 * Returns the key of a tetromino waiting in the queue.
+	 *
+	 * @param index Position in the queue.
+	 * @param shape Shape of the tetromino.
+	 * @return The key.
+	 */
+	public static long preview(int index, TetrominoShape shape) {
+		return mix(PREVIEW + ((long) index << 32 | shape.getId() & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * @param lines Number of removed rows.
+	 * @return key of the number of removed rows
+	 */
+	public static long lines(int lines) {
+		return mix(LINES + lines);
+	}
+
+	/**
+	 * Scrambles the bits of a number, the finalizer of the SplitMix64 generator.
+	 *
+	 * @param z The number.
+	 * @return The scrambled number.
+	 */
+	private static long mix(long z) {
+		z *= 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,255 @@
+package main;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.ImageCapabilities;
+import java.awt.Point;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+import game.GameSnapshot;
+import game.Grid;
+
+import static properties.GraphicsSettings.*;
+
+/**
+ * Canvas drawn actively by its own render thread. The canvas uses a buffer
+ * strategy with {@link properties.GraphicsSettings#BUFFER_COUNT} buffers,
+ * flipping the pages when the graphics device supports it and copying from
+ * accelerated volatile back buffers otherwise. The render thread wakes up
+ * {@link properties.GraphicsSettings#TARGET_FPS} times per second and draws a
+ * frame only when the game changed since the last one or when the system asked
+ * for a repaint. The game is read from the snapshots published by
+ * {@link main.GameManager}, so drawing never waits for the game loop.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class GameCanvas extends Canvas implements Runnable {
+	/**
+	 * Version of the serialized form.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Capabilities of the page flipping strategy, tried before the default one.
+	 */
+	private static final BufferCapabilities PAGE_FLIPPING = new BufferCapabilities(new ImageCapabilities(true),
+			new ImageCapabilities(true), BufferCapabilities.FlipContents.UNDEFINED);
+
+	/**
+	 * Window whose coordinates are used in the drawing, the canvas content is
+	 * laid out the same way as the passively painted window.
+	 */
+	private final Component window;
+
+	/**
+	 * Buffer strategy of the canvas, null until the rendering starts.
+	 */
+	private BufferStrategy strategy;
+
+	/**
+	 * Position of the canvas' left-top corner in the window.
+	 */
+	private Point offset;
+
+	/**
+	 * The render thread.
+	 */
+	private Thread thread;
+
+	/**
+	 * Determines whether the render thread should keep running.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Determines whether the next frame has to be drawn even if the game didn't
+	 * change.
+	 */
+	private volatile boolean redrawRequested = true;
+
+	/**
+	 * Version of the game in the last drawn frame.
+	 */
+	private long drawnVersion = -1;
+
+	/**
+	 * Points in the last drawn frame.
+	 */
+	private int drawnPoints;
+
+	/**
+	 * Moving average of the time between two iterations of the render loop in
+	 * nanoseconds.
+	 */
+	private volatile double frameNanos;
+
+	/**
+	 * Moving average of the time in nanoseconds the render thread sleeps longer
+	 * than requested.
+	 */
+	private double oversleepNanos;
+
+	/**
+	 * Creates the canvas.
+	 *
+	 * @param window Window containing the canvas.
+	 */
+	public GameCanvas(Component window) {
+		this.window = window;
+		setBackground(Color.black);
+	}
+
+	/**
+	 * Creates the buffer strategy and starts the render thread. The canvas has to
+	 * be displayable.
+	 *
+	 * @return true if the rendering started, false if the canvas can't be drawn
+	 *         actively.
+	 */
+	public boolean start() {
+		if (running)
+			return true;
+		if (!isDisplayable())
+			return false;
+		try {
+			createBufferStrategy(BUFFER_COUNT, PAGE_FLIPPING);
+		} catch (AWTException e) {
+			createBufferStrategy(BUFFER_COUNT);
+		}
+		strategy = getBufferStrategy();
+		if (strategy == null)
+			return false;
+		offset = SwingUtilities.convertPoint(this, 0, 0, window);
+		running = true;
+		thread = new Thread(this, "render");
+		thread.setDaemon(true);
+		thread.start();
+		return true;
+	}
+
+	/**
+	 * Stops the render thread and waits for it to finish.
+	 */
+	public void stop() {
+		running = false;
+		if (thread == null)
+			return;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	/**
+	 * @return moving average of the number of render loop iterations per second
+	 */
+	public double getFramesPerSecond() {
+		double nanos = frameNanos;
+		return nanos == 0 ? 0 : 1e9 / nanos;
+	}
+
+	/**
+	 * The render loop. Frames are scheduled at fixed intervals, a frame that is
+	 * late by more than a whole interval moves the schedule instead of being
+	 * followed by a burst of frames.
+	 */
+	@Override
+	public void run() {
+		long period = 1_000_000_000L / TARGET_FPS;
+		long next = System.nanoTime();
+		long last = next;
+		while (running) {
+			render();
+			long now = System.nanoTime();
+			frameNanos += (now - last - frameNanos) * FRAME_TIME_SMOOTHING;
+			last = now;
+			next += period;
+			if (now - next > period)
+				next = now;
+			sleepUntil(next);
+		}
+	}
+
+	/**
+	 * Sleeps until the given time. The thread is parked for the time reduced by
+	 * the average oversleep and yields for the rest of it.
+	 *
+	 * @param deadline Value of {@link java.lang.System#nanoTime()} to wake up at.
+	 */
+	private void sleepUntil(long deadline) {
+		long park = deadline - System.nanoTime() - (long) oversleepNanos;
+		if (park > 0) {
+			long parked = System.nanoTime();
+			LockSupport.parkNanos(park);
+			long oversleep = System.nanoTime() - parked - park;
+			oversleepNanos += (Math.max(0, oversleep) - oversleepNanos) * FRAME_TIME_SMOOTHING;
+		}
+		while (running && System.nanoTime() - deadline < 0)
+			Thread.yield();
+	}
+
+	/**
+	 * Draws and shows a frame if the game changed since the last one.
+	 */
+	private void render() {
+		GameSnapshot snapshot = GameManager.getInstance().getSnapshot();
+		if (!redrawRequested && snapshot.getVersion() == drawnVersion && snapshot.getPoints() == drawnPoints)
+			return;
+		redrawRequested = false;
+		do {
+			do {
+				Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+				draw(g, snapshot);
+				g.dispose();
+			} while (strategy.contentsRestored());
+			strategy.show();
+		} while (strategy.contentsLost());
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	/**
+	 * Draws the whole frame.
+	 *
+	 * @param g        Graphical context of the back buffer.
+	 * @param snapshot The game snapshot.
+	 */
+	private void draw(Graphics2D g, GameSnapshot snapshot) {
+		g.translate(-offset.x, -offset.y);
+		g.setColor(Color.black);
+		g.fillRect(0, 0, GAME_WINDOW_WIDTH, GAME_WINDOW_HEIGHT);
+		Grid.draw(snapshot, g, GAME_GRID_OFFSET_X, GAME_GRID_OFFSET_Y, GAME_GRID_WIDTH, GAME_GRID_HEIGHT, -1);
+		drawnVersion = snapshot.getVersion();
+		drawnPoints = snapshot.getPoints();
+		g.setColor(Color.white);
+		g.drawString("points: " + drawnPoints, gameFrame.POINTS_X, gameFrame.POINTS_Y);
+	}
+
+	/**
+	 * Requests a redraw in the next frame, the canvas is drawn only by the render
+	 * thread.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		redrawRequested = true;
+	}
+
+	/**
+	 * Requests a redraw in the next frame without clearing the canvas.
+	 */
+	@Override
+	public void update(Graphics g) {
+		paint(g);
+	}
+}
@@ -0,0 +1,114 @@
+package main;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed timestep loop running on its own thread. The time passed since the
+ * last iteration is added to an accumulator and a tick is performed for every
+ * whole tick period in it, so the number of ticks follows the wall clock no
+ * matter how late the thread wakes up. After a long stall at most
+ * {@link main.GameLoop#MAX_CATCH_UP_TICKS} ticks are performed at once and the
+ * rest of the time is dropped.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class GameLoop implements Runnable {
+	/**
+	 * Maximum number of ticks performed in a single iteration of the loop.
+	 */
+	public static final int MAX_CATCH_UP_TICKS = 10;
+
+	/**
+	 * Duration of a tick in nanoseconds.
+	 */
+	private final long tickNanos;
+
+	/**
+	 * Action performed on every tick.
+	 */
+	private final Runnable tick;
+
+	/**
+	 * The loop thread, null when the loop isn't running.
+	 */
+	private Thread thread;
+
+	/**
+	 * Determines whether the loop thread should keep running.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Creates a stopped loop.
+	 *
+	 * @param ticksPerSecond Number of ticks per second.
+	 * @param tick           Action performed on every tick.
+	 */
+	public GameLoop(int ticksPerSecond, Runnable tick) {
+		this.tickNanos = 1_000_000_000L / ticksPerSecond;
+		this.tick = tick;
+	}
+
+	/**
+	 * @return duration of a tick in nanoseconds
+	 */
+	public long getTickNanos() {
+		return tickNanos;
+	}
+
+	/**
+	 * @return true if the loop is running, false otherwise
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Starts the loop thread. The first tick is performed one tick period later.
+	 */
+	public synchronized void start() {
+		if (running)
+			return;
+		running = true;
+		thread = new Thread(this, "game loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the loop thread and waits for it to finish, unless called from the
+	 * loop thread itself.
+	 */
+	public synchronized void stop() {
+		if (!running)
+			return;
+		running = false;
+		LockSupport.unpark(thread);
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		thread = null;
+	}
+
+	@Override
+	public void run() {
+		long previous = System.nanoTime();
+		long accumulator = 0;
+		while (running) {
+			long now = System.nanoTime();
+			accumulator += now - previous;
+			previous = now;
+			if (accumulator > MAX_CATCH_UP_TICKS * tickNanos)
+				accumulator = MAX_CATCH_UP_TICKS * tickNanos;
+			while (accumulator >= tickNanos && running) {
+				tick.run();
+				accumulator -= tickNanos;
+			}
+			LockSupport.parkNanos(tickNanos - accumulator);
+		}
+	}
+}
@@ -1,105 +1,261 @@
 package main;
 
-import java.awt.Dimension;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-import javax.swing.Timer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import game.AutoShift;
+import game.Command;
+import game.CommandHandler;
+import game.CommandQueue;
+import game.GameSnapshot;
+import game.GameState;
 import game.Grid;
-import game.TetrominoSpawner;
+import game.SnapshotBuffer;
 import properties.GameSettings;
+import replay.ReplayHeader;
+import replay.ReplayPlayer;
+import replay.ReplayRecorder;
 
 /**
- * Class managing the course of the game.
+ * Class managing the course of the game displayed in the game window.
+ * The game itself is the default {@link game.GameState}, run by a {@link main.GameLoop}
+ * on its own thread at {@link properties.GameSettings#GAME_TICK_RATE} ticks per second.
+ * After every tick that changed the game a {@link game.GameSnapshot} is published for the
+ * game window, which reads it without locking the game. Player's commands are queued
+ * by {@link main.GameManager#submit(Command)} and applied at the start of the next tick,
+ * so the game is changed only by the game loop thread. Held movement keys are repeated by
+ * {@link game.AutoShift} using the timestamps of the key presses and releases.
+ * The game is seeded and the commands that moved the tetromino are recorded into a replay
+ * in {@link properties.GameSettings#REPLAY_DIRECTORY}.
  * Class is implemented in the singleton convention.
  * @author ukasz Piekarski [wookashp98@gmail.com]
  */
-public class GameManager implements ActionListener {
+public class GameManager {
 	/**
-	 * Singleton
+	 * The game being played.
 	 */
-	private static GameManager instance = null;
-	
+	private GameState state = GameState.getDefault();
+
 	/**
-	 * Number of player's points acquired in the current game.
+	 * Holder of the singleton. The singleton is created when the holder class is
+	 * initialized, once and safely for all threads, by the first call to
+	 * {@link main.GameManager#getInstance()}.
 	 */
-	private int points = 0;
+	private static class Holder {
+		/**
+		 * Singleton
+		 */
+		private static final GameManager INSTANCE = new GameManager();
+	}
 
 	/**
 	 * The static method for global class object access.
+	 * The first call creates the game, so the tetromino types must be registered before it.
 	 * @return	The singleton.
 	 */
 	public static GameManager getInstance() {
-		if (instance == null)
-			instance = new GameManager();
-		return instance;
+		return Holder.INSTANCE;
 	}
 
 	/**
-	 * Timer triggering the singleton when the new game step has to be performed.
+	 * Loop performing the game ticks.
 	 */
-	private Timer gameTimer;
+	private GameLoop gameLoop;
+
+	/**
+	 * Snapshots of the game passed to the game window.
+	 */
+	private SnapshotBuffer snapshots;
+
+	/**
+	 * Player's commands waiting for the next tick.
+	 */
+	private CommandQueue commands = new CommandQueue(GameSettings.COMMAND_QUEUE_CAPACITY);
+
+	/**
+	 * Applies the drained commands to the game.
+	 */
+	private CommandHandler executor = this::execute;
+
+	/**
+	 * Repeats the moves of the held keys.
+	 */
+	private AutoShift autoShift = new AutoShift(GameSettings.AUTO_SHIFT_DELAY_MICROS,
+			GameSettings.AUTO_REPEAT_RATE_MICROS, GameSettings.SOFT_DROP_RATE_MICROS);
+
+	/**
+	 * Time between pressing a key and the move of the tetromino.
+	 */
+	private LatencyStats inputLatency = new LatencyStats();
+
+	/**
+	 * Records the game into a replay file, null when the game isn't recorded.
+	 */
+	private ReplayRecorder recorder;
+
+	/**
+	 * Version of the game in the last published snapshot.
+	 */
+	private long publishedVersion;
+
+	/**
+	 * Points in the last published snapshot.
+	 */
+	private int publishedPoints;
 
 	/**
 	 * Creates a new GameManager object. Notice that this is the only constructor 
 	 * and it is private therefore there cannot be any other object of this class besides the singleton.
 	 */
 	private GameManager() {
-		gameTimer = new Timer(GameSettings.GAME_TEMPO, this);
+		state.setGravityTicks(GameSettings.GAME_TEMPO * GameSettings.GAME_TICK_RATE / 1000);
+		long seed = System.nanoTime();
+		state.setSeed(seed);
+		startRecording(seed);
+		gameLoop = new GameLoop(GameSettings.GAME_TICK_RATE, this::tick);
+		snapshots = new SnapshotBuffer(state.getBoard().getWidth(), state.getBoard().getHeight());
 		Grid.initTiles();
+		publish();
 	}
 
 	/**
-	 * Checks if the GameManager notifying timer is running.
-	 * @return true if timer is stopped, false otherwise.
+	 * Checks if the game loop is running.
+	 * @return true if the loop is stopped, false otherwise.
 	 */
 	public boolean isPaused() {
-		return !gameTimer.isRunning();
+		return !gameLoop.isRunning();
 	}
 
 	/**
-	 * Stops the GameManager notifying timer.
+	 * Stops the game loop.
 	 */
 	public void pauseGame() {
-		if (gameTimer.isRunning())
-			gameTimer.stop();
+		gameLoop.stop();
 	}
 
 	/**
-	 * Starts the GameManager notifying timer.
+	 * Starts the game loop.
 	 */
 	public void resumeGame() {
-		if (!gameTimer.isRunning())
-			gameTimer.start();
+		gameLoop.start();
 	}
 	
-	public void gameOver() {
-		System.out.println("you lost!");
-		points = 0;
-	}
-
-	@Override
-	public void actionPerformed(ActionEvent e) {
-		if(TetrominoSpawner.isAnySpawned()) {
-			if (TetrominoSpawner.moveDown(true)) {
-				System.out.println("Tetromino moved down.");
-			}
-			else {
-				TetrominoSpawner.spawned = null;
-				System.out.println("Tetromino stopped.");
-				points += Math.pow(4, Grid.removeFullRows());
-				System.out.println("points: "+points);
-			}
+	/**
+	 * Starts recording the game into a new replay file. The replay is finished when the game
+	 * is lost or the application exits.
+	 * @param seed	Seed of the game.
+	 */
+	private void startRecording(long seed) {
+		if (GameSettings.REPLAY_DIRECTORY == null)
+			return;
+		try {
+			Path directory = Paths.get(GameSettings.REPLAY_DIRECTORY);
+			Files.createDirectories(directory);
+			Path file = directory.resolve("replay-" + System.currentTimeMillis() + ReplayPlayer.EXTENSION);
+			recorder = ReplayRecorder.create(file, new ReplayHeader(seed, state.getBoard().getWidth(),
+					state.getBoard().getHeight(), state.getGravityTicks()));
+		} catch (IOException e) {
+			System.out.println("replay not recorded: " + e.getMessage());
+			return;
 		}
-		if(!TetrominoSpawner.isAnySpawned()) {
-			TetrominoSpawner.generateNextTetromino();
-			if (!TetrominoSpawner.spawnTetromino())
-				gameOver();
-			else
-				System.out.println("New tetromino spawned.");
-			
+		state.addCommandListener(recorder);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			pauseGame();
+			finishRecording();
+		}));
+	}
+
+	/**
+	 * Writes the end of the replay and closes its file.
+	 */
+	private synchronized void finishRecording() {
+		if (recorder == null)
+			return;
+		state.removeCommandListener(recorder);
+		try {
+			recorder.finish(state);
+			recorder.close();
+		} catch (IOException e) {
+			System.out.println("replay not saved: " + e.getMessage());
 		}
+		recorder = null;
+	}
+
+	/**
+	 * Reports the lost game and the input latency statistics, finishes the replay,
+	 * then resets the points.
+	 */
+	public void gameOver() {
+		finishRecording();
+		System.out.println("you lost!");
+		System.out.println("input latency: " + inputLatency);
+		System.out.println(String.format("auto repeat: %d moves, lag mean %.1f us, max %.1f us",
+				autoShift.getRepeats(), autoShift.getMeanLagNanos() / 1e3, autoShift.getMaxLagNanos() / 1e3));
+		state.setPoints(0);
+	}
+
+	/**
+	 * Performs a single game tick and publishes the game if it changed.
+	 * Called by the game loop thread.
+	 */
+	private void tick() {
+		commands.drain(executor);
+		autoShift.update(state, System.nanoTime());
+		int points = state.getPoints();
+		if (!state.tick())
+			gameOver();
+		else if (state.getPoints() != points)
+			System.out.println("points: " + state.getPoints());
+		if (state.getVersion() != publishedVersion || state.getPoints() != publishedPoints)
+			publish();
+	}
+
+	/**
+	 * Applies a drained command to the game and records its latency if the
+	 * tetromino moved.
+	 * @param command	The command.
+	 * @param timestampNanos	Time at which the command was submitted.
+	 */
+	private void execute(Command command, long timestampNanos) {
+		if (autoShift.handle(state, command, timestampNanos))
+			inputLatency.record(System.nanoTime() - timestampNanos);
+	}
+
+	/**
+	 * Queues the player's command to be applied at the start of the next tick.
+	 * Must always be called by the same thread, e.g. the event dispatch thread.
+	 * @param command	The command.
+	 * @return false if the command was dropped because too many commands are waiting, true otherwise.
+	 */
+	public boolean submit(Command command) {
+		return commands.offer(command, System.nanoTime());
+	}
+
+	/**
+	 * @return statistics of the time between pressing a key and the move of the tetromino
+	 */
+	public LatencyStats getInputLatency() {
+		return inputLatency;
+	}
+
+	/**
+	 * Publishes a snapshot of the game.
+	 */
+	private void publish() {
+		snapshots.publish(state);
+		publishedVersion = state.getVersion();
+		publishedPoints = state.getPoints();
+	}
+
+	/**
+	 * Returns the newest snapshot of the game. The snapshot stays unchanged until
+	 * the next call, which must be made by the same thread.
+	 * @return the snapshot
+	 */
+	public GameSnapshot getSnapshot() {
+		return snapshots.acquire();
 	}
 
 	/**
@@ -107,7 +263,7 @@ public class GameManager implements ActionListener {
 	 * @return the points
 	 */
 	public int getPoints() {
-		return points;
+		return state.getPoints();
 	}
 
 }
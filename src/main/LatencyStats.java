@@ -0,0 +1,97 @@
+package main;
+
+/**
+ * Statistics of measured latencies: count, mean, maximum and a histogram with
+ * power of two buckets used for approximate percentiles. Recording doesn't
+ * allocate. The statistics are recorded by a single thread, other threads may
+ * read slightly stale values.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class LatencyStats {
+	/**
+	 * Number of latencies in bucket i, which holds the latencies between 2^i and
+	 * 2^(i+1) - 1 nanoseconds, bucket 0 holds the zero latencies too.
+	 */
+	private final long[] buckets = new long[64];
+
+	/**
+	 * Number of recorded latencies.
+	 */
+	private volatile long count;
+
+	/**
+	 * Sum of the recorded latencies in nanoseconds.
+	 */
+	private volatile long totalNanos;
+
+	/**
+	 * The greatest recorded latency in nanoseconds.
+	 */
+	private volatile long maxNanos;
+
+	/**
+	 * Records a latency. Negative latencies are recorded as zero.
+	 *
+	 * @param nanos The latency in nanoseconds.
+	 */
+	public void record(long nanos) {
+		nanos = Math.max(0, nanos);
+		buckets[63 - Long.numberOfLeadingZeros(nanos | 1)]++;
+		totalNanos += nanos;
+		if (nanos > maxNanos)
+			maxNanos = nanos;
+		count++;
+	}
+
+	/**
+	 * @return number of recorded latencies
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * @return mean of the recorded latencies in nanoseconds, 0 if there are none
+	 */
+	public double getMeanNanos() {
+		long n = count;
+		return n == 0 ? 0 : (double) totalNanos / n;
+	}
+
+	/**
+	 * @return the greatest recorded latency in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * Returns an upper bound of the latency percentile.
+	 *
+	 * @param percentile Percentile between 0 and 100.
+	 * @return Upper edge of the histogram bucket holding the percentile in
+	 *         nanoseconds, at most the maximum latency, or 0 if there are no
+	 *         latencies.
+	 */
+	public long getPercentileNanos(double percentile) {
+		long n = count;
+		if (n == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank)
+				return Math.min(maxNanos, (2L << i) - 1);
+		}
+		return maxNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d samples, mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us", getCount(),
+				getMeanNanos() / 1e3, getPercentileNanos(50) / 1e3, getPercentileNanos(99) / 1e3,
+				getMaxNanos() / 1e3);
+	}
+}
@@ -1,10 +1,7 @@
 package main;
 
-import java.awt.Color;
-
-import game.Tetromino;
-import game.TetrominoSpawner;
-import game.Tile;
+import game.GameState;
+import game.StandardTetrominos;
 
 /**
  * Main function class of a basic tetris game.
@@ -17,63 +14,9 @@ public class Main {
 	 * @param args	command line arguments.
 	 */
 	public static void main(String[] args) {
+		StandardTetrominos.addTo(GameState.getDefault());
+		GameManager manager = GameManager.getInstance();
 		new gameFrame(); 
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 1, -1, 2}, new int[] {0, 0, 0, 0},
-					new Tile[] {
-							new Tile(false, Color.red, false),
-							new Tile(false, Color.red, false),
-							new Tile(false, Color.red, false),
-							new Tile(false, Color.red, false)
-					}));
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 0, 1, -1}, new int[] {0, 1, 0, 0}, 
-					new Tile[] {
-							new Tile(false, Color.gray, false),
-							new Tile(false, Color.gray, false),
-							new Tile(false, Color.gray, false),
-							new Tile(false, Color.gray, false)
-					}));
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 1, 0, 1}, new int[] {0, 0, 1, 1},
-					new Tile[] {
-							new Tile(false, Color.cyan, false),
-							new Tile(false, Color.cyan, false),
-							new Tile(false, Color.cyan, false),
-							new Tile(false, Color.cyan, false)
-					}));
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 1, -1, -1}, new int[] {0, 0, 0, 1},
-					new Tile[] {
-							new Tile(false, Color.yellow, false),
-							new Tile(false, Color.yellow, false),
-							new Tile(false, Color.yellow, false),
-							new Tile(false, Color.yellow, false)
-					}));
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 1, -1, 1}, new int[] {0, 0, 0, 1},
-					new Tile[] {
-							new Tile(false, Color.magenta, false),
-							new Tile(false, Color.magenta, false),
-							new Tile(false, Color.magenta, false),
-							new Tile(false, Color.magenta, false)
-					}));
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 1, -1, 0}, new int[] {0, 0, 1, 1},
-					new Tile[] {
-							new Tile(false, Color.blue, false),
-							new Tile(false, Color.blue, false),
-							new Tile(false, Color.blue, false),
-							new Tile(false, Color.blue, false)
-					}));
-		TetrominoSpawner.addTetrominoType(
-				new Tetromino(new int[] {0, 1, -1, 0}, new int[] {1, 1, 0, 0},
-					new Tile[] {
-							new Tile(false, Color.green, false),
-							new Tile(false, Color.green, false),
-							new Tile(false, Color.green, false),
-							new Tile(false, Color.green, false)
-					}));
-		GameManager.getInstance().resumeGame();
+		manager.resumeGame();
 	}
 }
@@ -1,8 +1,10 @@
 package main;
 
 import java.awt.Color;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
@@ -12,72 +14,199 @@ import java.awt.image.BufferedImage;
 import javax.swing.JFrame;
 import javax.swing.Timer;
 
+import game.Command;
+import game.GameSnapshot;
 import game.Grid;
-import game.TetrominoSpawner;
 
 import static properties.GameSettings.*;
 
 import static properties.GraphicsSettings.*;
 
 /**
- * Class managing the main game window.
+ * Class managing the main game window. The window content is kept in a buffer
+ * that is updated only where the game changed: rows of the grid stamped with a
+ * newer version than the one already drawn and the points text when the points
+ * change. When nothing changed, the frame is not repainted at all. The game is
+ * read from the snapshots published by {@link main.GameManager}. With
+ * {@link properties.GraphicsSettings#ACTIVE_RENDERING} the window holds a
+ * {@link main.GameCanvas} drawn by its own render thread instead.
  * @author ukasz Piekarski [wookashp98@gmail.com]
  */
 public class gameFrame extends JFrame implements ActionListener, KeyListener{
 	
+	/**
+	 * Left edge of the points text.
+	 */
+	static final int POINTS_X = 100;
+
+	/**
+	 * Baseline of the points text.
+	 */
+	static final int POINTS_Y = 100;
+
+	/**
+	 * Content of the window.
+	 */
 	private BufferedImage buffer;
+
+	/**
+	 * Version of the game drawn in the buffer, negative if the buffer has to be
+	 * drawn from scratch.
+	 */
+	private long drawnVersion = -1;
+
+	/**
+	 * Points drawn in the buffer.
+	 */
+	private int drawnPoints;
+
+	/**
+	 * Actively drawn canvas, null when the window is painted passively.
+	 */
+	private GameCanvas canvas;
 	
 	/**
-	 * Sets up the frame and starts the timer used for refreshing the graphics in the frame.
+	 * Sets up the frame and starts either the render thread of the canvas or,
+	 * when it can't be used, the timer used for refreshing the graphics in the frame.
 	 */
 	public gameFrame() {
 		this.setSize(GAME_WINDOW_WIDTH, GAME_WINDOW_HEIGHT);
 		this.setResizable(false);
-		this.setVisible(true);
 		this.setDefaultCloseOperation(EXIT_ON_CLOSE);
 		this.addKeyListener(this);
+		if (ACTIVE_RENDERING && !GraphicsEnvironment.isHeadless()) {
+			canvas = new GameCanvas(this);
+			canvas.addKeyListener(this);
+			this.add(canvas);
+		}
+		this.setVisible(true);
+		if (canvas != null) {
+			if (canvas.start()) {
+				canvas.requestFocus();
+				return;
+			}
+			this.remove(canvas);
+			canvas = null;
+		}
 		buffer = new BufferedImage(GAME_WINDOW_WIDTH, GAME_WINDOW_HEIGHT, BufferedImage.TYPE_INT_RGB);
 		new Timer(GAME_TARGET_FRAME_DELAY, this).start();
 	}
 	
 	@Override
 	public void paint(Graphics g) {
-		Graphics bg = buffer.getGraphics();
-		bg.setColor(Color.black);
-		bg.fillRect(0, 0, GAME_WINDOW_WIDTH, GAME_WINDOW_HEIGHT);
-		
-		Grid.draw((Graphics2D)bg, GAME_GRID_OFFSET_X, GAME_GRID_OFFSET_Y, GAME_GRID_WIDTH, GAME_GRID_HEIGHT);
-		bg.drawString("points: " + GameManager.getInstance().getPoints(), 100, 100);
-		g.drawImage(buffer, 0, 0, null);
+		if (buffer == null)
+			super.paint(g);
+		else
+			g.drawImage(buffer, 0, 0, null);
 	}
 
+	/**
+	 * Draws the changes of the game into the buffer and repaints the changed
+	 * parts of the window.
+	 */
 	@Override
 	public void actionPerformed(ActionEvent arg0) {
-		repaint();
+		GameSnapshot snapshot = GameManager.getInstance().getSnapshot();
+		long version = snapshot.getVersion();
+		int points = snapshot.getPoints();
+		if (version == drawnVersion && points == drawnPoints)
+			return;
+		Graphics2D bg = buffer.createGraphics();
+		if (drawnVersion < 0) {
+			bg.setColor(Color.black);
+			bg.fillRect(0, 0, GAME_WINDOW_WIDTH, GAME_WINDOW_HEIGHT);
+			Grid.draw(snapshot, bg, GAME_GRID_OFFSET_X, GAME_GRID_OFFSET_Y, GAME_GRID_WIDTH, GAME_GRID_HEIGHT, -1);
+			drawPoints(bg, points);
+			repaint();
+		} else {
+			if (version != drawnVersion)
+				repaintRows(snapshot);
+			Grid.draw(snapshot, bg, GAME_GRID_OFFSET_X, GAME_GRID_OFFSET_Y, GAME_GRID_WIDTH, GAME_GRID_HEIGHT,
+					drawnVersion);
+			if (points != drawnPoints)
+				drawPoints(bg, points);
+		}
+		bg.dispose();
+		drawnVersion = version;
+		drawnPoints = points;
+	}
+
+	/**
+	 * Requests a repaint of the rows of the grid that changed after the drawn
+	 * version.
+	 *
+	 * @param snapshot Snapshot of the game.
+	 */
+	private void repaintRows(GameSnapshot snapshot) {
+		int top = -1, bottom = -1;
+		for (int y = 0; y < snapshot.getHeight(); y++) {
+			if (snapshot.getRowVersion(y) > drawnVersion) {
+				if (top < 0)
+					top = y;
+				bottom = y;
+			}
+		}
+		if (top < 0)
+			return;
+		int y0 = GAME_GRID_OFFSET_Y + top * GAME_GRID_HEIGHT / snapshot.getHeight();
+		int y1 = GAME_GRID_OFFSET_Y + (bottom + 1) * GAME_GRID_HEIGHT / snapshot.getHeight();
+		repaint(GAME_GRID_OFFSET_X, y0, GAME_GRID_WIDTH, y1 - y0);
+	}
+
+	/**
+	 * Draws the points text into the buffer, replacing the previous text, and
+	 * requests a repaint of it.
+	 *
+	 * @param bg     Graphical context of the buffer.
+	 * @param points The points.
+	 */
+	private void drawPoints(Graphics2D bg, int points) {
+		FontMetrics metrics = bg.getFontMetrics();
+		int top = POINTS_Y - metrics.getAscent();
+		int width = GAME_GRID_OFFSET_X - POINTS_X;
+		bg.setColor(Color.black);
+		bg.fillRect(POINTS_X, top, width, metrics.getHeight());
+		bg.setColor(Color.white);
+		bg.drawString("points: " + points, POINTS_X, POINTS_Y);
+		repaint(POINTS_X, top, width, metrics.getHeight());
 	}
 
+	/**
+	 * Submits the player's command of the pressed key to the game.
+	 */
 	@Override
 	public void keyPressed(KeyEvent e) {
 		if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-			TetrominoSpawner.moveLeft();
+			GameManager.getInstance().submit(Command.MOVE_LEFT);
 		}
 		if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-			TetrominoSpawner.moveRight();
+			GameManager.getInstance().submit(Command.MOVE_RIGHT);
 		}
 		if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-			TetrominoSpawner.moveDown(true);
+			GameManager.getInstance().submit(Command.MOVE_DOWN);
 		}
 		if (e.getKeyCode() == KeyEvent.VK_SPACE) {
-			TetrominoSpawner.skipDown(true);
+			GameManager.getInstance().submit(Command.DROP);
 		}
 		if (e.getKeyCode() == KeyEvent.VK_UP) {
-			TetrominoSpawner.rotateSpawned(true);
+			GameManager.getInstance().submit(Command.ROTATE_CCW);
 		}
 	}
 
+	/**
+	 * Submits the release of a held movement key to the game.
+	 */
 	@Override
 	public void keyReleased(KeyEvent e) {
-		
+		if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+			GameManager.getInstance().submit(Command.RELEASE_LEFT);
+		}
+		if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+			GameManager.getInstance().submit(Command.RELEASE_RIGHT);
+		}
+		if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+			GameManager.getInstance().submit(Command.RELEASE_DOWN);
+		}
 	}
 
 	@Override
@@ -24,4 +24,39 @@ public class GameSettings {
 	 * Time in milliseconds of each game step.
 	 */
 	public static final int GAME_TEMPO = 600;
+	
+	/**
+	 * Number of game ticks per second. Game steps are performed every
+	 * GAME_TEMPO * GAME_TICK_RATE / 1000 ticks.
+	 */
+	public static final int GAME_TICK_RATE = 60;
+	
+	/**
+	 * Maximum number of player's commands waiting for the next game tick.
+	 */
+	public static final int COMMAND_QUEUE_CAPACITY = 64;
+	
+	/**
+	 * Delay in microseconds between pressing the left or right key and the first
+	 * repeated move.
+	 */
+	public static final long AUTO_SHIFT_DELAY_MICROS = 167_000;
+	
+	/**
+	 * Time in microseconds between two repeated moves of a held left or right
+	 * key, 0 moves the tetromino all the way at once.
+	 */
+	public static final long AUTO_REPEAT_RATE_MICROS = 33_000;
+	
+	/**
+	 * Time in microseconds between two moves down of a held down key, 0 moves the
+	 * tetromino all the way down at once.
+	 */
+	public static final long SOFT_DROP_RATE_MICROS = 50_000;
+	
+	/**
+	 * Directory the played games are recorded to as replays, null disables the
+	 * recording.
+	 */
+	public static final String REPLAY_DIRECTORY = "replays";
 }
@@ -34,4 +34,27 @@ public class GraphicsSettings {
 	 * Grid left-top corner y coordinate relative to the game window.
 	 */
 	public static final int GAME_GRID_OFFSET_Y = 100;
+	
+	/**
+	 * Determines whether the game window is drawn by its own render thread on a
+	 * page flipped canvas. When false, or when the canvas can't be created, the
+	 * window is repainted passively by a Swing timer.
+	 */
+	public static final boolean ACTIVE_RENDERING = true;
+	
+	/**
+	 * Number of frames per second the render thread aims for.
+	 */
+	public static final int TARGET_FPS = 60;
+	
+	/**
+	 * Number of buffers of the canvas, 2 for double and 3 for triple buffering.
+	 */
+	public static final int BUFFER_COUNT = 3;
+	
+	/**
+	 * Weight of the newest sample in the moving averages of the frame time and
+	 * of the sleep overshoot, between 0 and 1.
+	 */
+	public static final double FRAME_TIME_SMOOTHING = 0.1;
 }
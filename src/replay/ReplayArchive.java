@@ -0,0 +1,350 @@
+package replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Read access to a replay archive. An archive is a pair of files: the data
+ * file holds the replays back to back and the index file holds a
+ * {@link replay.ReplayArchive#ENTRY_SIZE} byte entry for every replay, after a
+ * header of the same size. An entry holds the game id, the offset and length of
+ * the replay in the data file and the points, rows and tetrominos of the game,
+ * so the games can be filtered without reading the replays. Both files are
+ * memory mapped, a replay is opened as a slice of the mapped data file without
+ * copying it onto the heap. The archive shows the entries that existed when it
+ * was opened.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see replay.ReplayArchiveWriter
+ */
+public class ReplayArchive implements Closeable {
+	/**
+	 * Magic number at the start of the index file, "TRIX" in ASCII.
+	 */
+	public static final int INDEX_MAGIC = 0x54524958;
+
+	/**
+	 * Version of the index format.
+	 */
+	public static final int INDEX_VERSION = 1;
+
+	/**
+	 * Size in bytes of the index header and of every index entry.
+	 */
+	public static final int ENTRY_SIZE = 32;
+
+	/**
+	 * Offset of the game id in an index entry.
+	 */
+	static final int GAME_ID = 0;
+
+	/**
+	 * Offset of the replay's offset in the data file in an index entry.
+	 */
+	static final int OFFSET = 8;
+
+	/**
+	 * Offset of the replay's length in an index entry.
+	 */
+	static final int LENGTH = 16;
+
+	/**
+	 * Offset of the game's points in an index entry.
+	 */
+	static final int POINTS = 20;
+
+	/**
+	 * Offset of the game's removed rows in an index entry.
+	 */
+	static final int LINES = 24;
+
+	/**
+	 * Offset of the game's spawned tetrominos in an index entry.
+	 */
+	static final int PIECES = 28;
+
+	/**
+	 * Size in bytes of a single mapping of the data file.
+	 */
+	private static final long SEGMENT_SIZE = 1L << 30;
+
+	/**
+	 * Channel of the data file.
+	 */
+	private final FileChannel data;
+
+	/**
+	 * The mapped index file.
+	 */
+	private final MappedByteBuffer index;
+
+	/**
+	 * The mapped data file, split into segments of
+	 * {@link replay.ReplayArchive#SEGMENT_SIZE} bytes.
+	 */
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Number of entries.
+	 */
+	private final int size;
+
+	/**
+	 * Opens an archive for reading.
+	 *
+	 * @param base Path of the archive without the extension, the files are
+	 *             <code>base.data</code> and <code>base.index</code>.
+	 * @throws IOException when the files can't be mapped or the index is not
+	 *                     supported.
+	 */
+	public ReplayArchive(Path base) throws IOException {
+		try (FileChannel indexChannel = FileChannel.open(indexPath(base), StandardOpenOption.READ)) {
+			long indexSize = indexChannel.size();
+			if (indexSize < ENTRY_SIZE || indexSize / ENTRY_SIZE - 1 > Integer.MAX_VALUE / ENTRY_SIZE)
+				throw new ReplayFormatException("Unsupported replay archive index size " + indexSize + ".");
+			size = (int) (indexSize / ENTRY_SIZE - 1);
+			index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, (size + 1L) * ENTRY_SIZE);
+		}
+		checkHeader(index);
+		data = FileChannel.open(dataPath(base), StandardOpenOption.READ);
+		long dataSize = data.size();
+		segments = new MappedByteBuffer[(int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+		for (int i = 0; i < segments.length; i++) {
+			long start = i * SEGMENT_SIZE;
+			segments[i] = data.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, dataSize - start));
+		}
+	}
+
+	/**
+	 * Checks the header of the index.
+	 *
+	 * @param index Buffer holding the index.
+	 * @throws ReplayFormatException when the header is not supported.
+	 */
+	static void checkHeader(ByteBuffer index) throws ReplayFormatException {
+		if (index.getInt(0) != INDEX_MAGIC)
+			throw new ReplayFormatException("Not a replay archive index.");
+		if (index.getInt(4) != INDEX_VERSION)
+			throw new ReplayFormatException("Unsupported replay archive version " + index.getInt(4) + ".");
+	}
+
+	/**
+	 * @param base Path of the archive without the extension.
+	 * @return path of the data file
+	 */
+	static Path dataPath(Path base) {
+		return base.resolveSibling(base.getFileName() + ".data");
+	}
+
+	/**
+	 * @param base Path of the archive without the extension.
+	 * @return path of the index file
+	 */
+	static Path indexPath(Path base) {
+		return base.resolveSibling(base.getFileName() + ".index");
+	}
+
+	/**
+	 * @return number of replays in the archive
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the position of the entry's field in the index.
+	 *
+	 * @param entry Index of the entry.
+	 * @param field Offset of the field in the entry.
+	 * @return The position.
+	 * @throws IndexOutOfBoundsException when there's no such entry.
+	 */
+	private int position(int entry, int field) {
+		if (entry < 0 || entry >= size)
+			throw new IndexOutOfBoundsException("Entry " + entry + " out of " + size + ".");
+		return (entry + 1) * ENTRY_SIZE + field;
+	}
+
+	/**
+	 * @param entry Index of the entry.
+	 * @return id of the game
+	 */
+	public long getGameId(int entry) {
+		return index.getLong(position(entry, GAME_ID));
+	}
+
+	/**
+	 * @param entry Index of the entry.
+	 * @return offset of the replay in the data file
+	 */
+	public long getOffset(int entry) {
+		return index.getLong(position(entry, OFFSET));
+	}
+
+	/**
+	 * @param entry Index of the entry.
+	 * @return length of the replay in bytes
+	 */
+	public int getLength(int entry) {
+		return index.getInt(position(entry, LENGTH));
+	}
+
+	/**
+	 * @param entry Index of the entry.
+	 * @return points of the game
+	 */
+	public int getPoints(int entry) {
+		return index.getInt(position(entry, POINTS));
+	}
+
+	/**
+	 * @param entry Index of the entry.
+	 * @return number of rows removed in the game
+	 */
+	public int getLines(int entry) {
+		return index.getInt(position(entry, LINES));
+	}
+
+	/**
+	 * @param entry Index of the entry.
+	 * @return number of tetrominos spawned in the game
+	 */
+	public int getPieces(int entry) {
+		return index.getInt(position(entry, PIECES));
+	}
+
+	/**
+	 * Returns the entries of the games with points in the given range, read from
+	 * the index only.
+	 *
+	 * @param minPoints The smallest points.
+	 * @param maxPoints The greatest points.
+	 * @return Stream of the entry indices in ascending order.
+	 */
+	public IntStream entriesWithPoints(int minPoints, int maxPoints) {
+		return IntStream.range(0, size).filter(i -> {
+			int points = getPoints(i);
+			return points >= minPoints && points <= maxPoints;
+		});
+	}
+
+	/**
+	 * Returns the replay data. The replay lying in a single segment of the mapped
+	 * data file is a slice of it, otherwise it's mapped on its own.
+	 *
+	 * @param entry Index of the entry.
+	 * @return Read-only buffer holding the replay.
+	 * @throws IOException when the replay lies outside of the data file or can't
+	 *                     be mapped.
+	 */
+	public ByteBuffer getReplay(int entry) throws IOException {
+		long offset = getOffset(entry);
+		int length = getLength(entry);
+		if (offset < 0 || length < 0 || offset + length > data.size())
+			throw new ReplayFormatException("Entry " + entry + " lies outside of the data file.");
+		if (length == 0)
+			return ByteBuffer.allocate(0).asReadOnlyBuffer();
+		int segment = (int) (offset / SEGMENT_SIZE);
+		if (segment == (offset + length - 1) / SEGMENT_SIZE) {
+			ByteBuffer buffer = segments[segment].duplicate();
+			int start = (int) (offset - segment * SEGMENT_SIZE);
+			buffer.position(start).limit(start + length);
+			return buffer.slice();
+		}
+		return data.map(FileChannel.MapMode.READ_ONLY, offset, length);
+	}
+
+	/**
+	 * Opens the replay for reading.
+	 *
+	 * @param entry Index of the entry.
+	 * @return Reader of the replay.
+	 * @throws IOException when the replay can't be read or its header is not
+	 *                     supported.
+	 */
+	public ReplayReader openReplay(int entry) throws IOException {
+		return new ReplayReader(getReplay(entry));
+	}
+
+	@Override
+	public void close() throws IOException {
+		data.close();
+	}
+
+	/**
+	 * Manages an archive. Commands:
+	 * <ul>
+	 * <li><code>append archive files...</code> appends replay files or
+	 * directories with replay files, the game id is the entry index,</li>
+	 * <li><code>verify archive [minPoints]</code> plays back the games with at
+	 * least the given points and checks their results,</li>
+	 * <li><code>list archive [minPoints]</code> prints the index entries.</li>
+	 * </ul>
+	 *
+	 * @param args The command and its arguments.
+	 * @throws IOException when the archive can't be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: append|verify|list archive [files...|minPoints]");
+			return;
+		}
+		Path base = Paths.get(args[1]);
+		if (args[0].equals("append")) {
+			ArrayList<Path> files = new ArrayList<>();
+			for (int i = 2; i < args.length; i++) {
+				Path path = Paths.get(args[i]);
+				if (Files.isDirectory(path)) {
+					try (Stream<Path> list = Files.list(path)) {
+						list.filter(p -> p.toString().endsWith(ReplayPlayer.EXTENSION)).sorted().forEach(files::add);
+					}
+				} else {
+					files.add(path);
+				}
+			}
+			try (ReplayArchiveWriter writer = ReplayArchiveWriter.open(base)) {
+				for (Path file : files)
+					writer.append(writer.size(), ByteBuffer.wrap(Files.readAllBytes(file)));
+				System.out.println(files.size() + " replays appended, " + writer.size() + " in the archive");
+			}
+			return;
+		}
+		int minPoints = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MIN_VALUE;
+		try (ReplayArchive archive = new ReplayArchive(base)) {
+			if (args[0].equals("list")) {
+				archive.entriesWithPoints(minPoints, Integer.MAX_VALUE)
+						.forEach(i -> System.out.println(String.format("game %d: %d points, %d lines, %d pieces, %d bytes",
+								archive.getGameId(i), archive.getPoints(i), archive.getLines(i), archive.getPieces(i),
+								archive.getLength(i))));
+				return;
+			}
+			int[] entries = archive.entriesWithPoints(minPoints, Integer.MAX_VALUE).toArray();
+			int failed = 0;
+			long start = System.nanoTime();
+			for (int i : entries) {
+				try {
+					if (!ReplayPlayer.verify(archive.openReplay(i))) {
+						failed++;
+						System.out.println("game " + archive.getGameId(i) + ": result differs from the recorded one");
+					}
+				} catch (IOException e) {
+					failed++;
+					System.out.println("game " + archive.getGameId(i) + ": " + e.getMessage());
+				}
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("%d replays, %d failed, %.1f replays/s", entries.length, failed,
+					entries.length / seconds));
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends replays to a {@link replay.ReplayArchive}. Every replay is written to
+ * the end of the data file first and its index entry afterwards, so an entry
+ * never refers to data that was not written. Data written without its entry,
+ * e.g. when the game was killed, is cut off when the archive is opened again.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class ReplayArchiveWriter implements Closeable {
+	/**
+	 * Channel of the data file.
+	 */
+	private final FileChannel data;
+
+	/**
+	 * Channel of the index file.
+	 */
+	private final FileChannel index;
+
+	/**
+	 * Buffer of a single index entry.
+	 */
+	private final ByteBuffer entry = ByteBuffer.allocate(ReplayArchive.ENTRY_SIZE);
+
+	/**
+	 * Size of the data file in bytes.
+	 */
+	private long dataSize;
+
+	/**
+	 * Number of entries.
+	 */
+	private int size;
+
+	/**
+	 * Creates the writer.
+	 *
+	 * @param data  Channel of the data file.
+	 * @param index Channel of the index file.
+	 * @throws IOException when the files can't be read, the index is not
+	 *                     supported or is missing while the data file isn't
+	 *                     empty.
+	 */
+	private ReplayArchiveWriter(FileChannel data, FileChannel index) throws IOException {
+		this.data = data;
+		this.index = index;
+		if (index.size() < ReplayArchive.ENTRY_SIZE) {
+			if (data.size() > 0)
+				throw new ReplayFormatException("Replay archive data file has no index.");
+			entry.putInt(ReplayArchive.INDEX_MAGIC).putInt(ReplayArchive.INDEX_VERSION).clear();
+			write(index, entry, 0);
+			index.truncate(ReplayArchive.ENTRY_SIZE);
+			data.truncate(0);
+			return;
+		}
+		read(index, 0);
+		ReplayArchive.checkHeader(entry);
+		size = (int) (index.size() / ReplayArchive.ENTRY_SIZE - 1);
+		index.truncate((size + 1L) * ReplayArchive.ENTRY_SIZE);
+		if (size > 0) {
+			read(index, (long) size * ReplayArchive.ENTRY_SIZE);
+			dataSize = entry.getLong(ReplayArchive.OFFSET) + entry.getInt(ReplayArchive.LENGTH);
+		}
+		if (data.size() < dataSize)
+			throw new ReplayFormatException("Replay archive data file is shorter than its index.");
+		data.truncate(dataSize);
+	}
+
+	/**
+	 * Opens an archive for appending, a missing archive is created.
+	 *
+	 * @param base Path of the archive without the extension.
+	 * @return The writer.
+	 * @throws IOException when the files can't be opened, the index is not
+	 *                     supported or is missing while the data file isn't
+	 *                     empty.
+	 */
+	public static ReplayArchiveWriter open(Path base) throws IOException {
+		FileChannel data = FileChannel.open(ReplayArchive.dataPath(base), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			FileChannel index = FileChannel.open(ReplayArchive.indexPath(base), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			try {
+				return new ReplayArchiveWriter(data, index);
+			} catch (IOException e) {
+				index.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			data.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return number of replays in the archive
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Appends a replay. The replay is read to its final event first, to check it
+	 * and to take the results of the game for the index.
+	 *
+	 * @param gameId Id of the game.
+	 * @param replay Buffer holding the replay between its position and limit, the
+	 *               buffer is not modified.
+	 * @return Index of the new entry.
+	 * @throws IOException when the replay is malformed or unfinished or can't be
+	 *                     written.
+	 */
+	public int append(long gameId, ByteBuffer replay) throws IOException {
+		ReplayReader reader = new ReplayReader(replay);
+		while (reader.next())
+			;
+		int length = replay.remaining();
+		write(data, replay.duplicate(), dataSize);
+		entry.clear();
+		entry.putLong(gameId).putLong(dataSize).putInt(length).putInt(reader.getPoints()).putInt(reader.getLines())
+				.putInt(reader.getPieces()).clear();
+		write(index, entry, (size + 1L) * ReplayArchive.ENTRY_SIZE);
+		dataSize += length;
+		return size++;
+	}
+
+	/**
+	 * Forces the written replays onto the storage device.
+	 *
+	 * @throws IOException when the files can't be synchronized.
+	 */
+	public void force() throws IOException {
+		data.force(false);
+		index.force(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			data.close();
+		} finally {
+			index.close();
+		}
+	}
+
+	/**
+	 * Reads an index entry into {@link replay.ReplayArchiveWriter#entry}.
+	 *
+	 * @param channel  The channel.
+	 * @param position Position of the entry.
+	 * @throws IOException when the entry can't be read.
+	 */
+	private void read(FileChannel channel, long position) throws IOException {
+		entry.clear();
+		while (entry.hasRemaining()) {
+			int read = channel.read(entry, position + entry.position());
+			if (read < 0)
+				throw new ReplayFormatException("Truncated replay archive index.");
+		}
+		entry.clear();
+	}
+
+	/**
+	 * Writes the whole buffer at the given position.
+	 *
+	 * @param channel  The channel.
+	 * @param buffer   The buffer.
+	 * @param position Position in the channel.
+	 * @throws IOException when the buffer can't be written.
+	 */
+	private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer, position);
+	}
+}
@@ -0,0 +1,25 @@
+package replay;
+
+import java.io.IOException;
+
+/**
+ * Exception raised when replay data is malformed, truncated or doesn't match
+ * the engine playing it back.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class ReplayFormatException extends IOException {
+	/**
+	 * Version of the serialized form.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates the exception.
+	 *
+	 * @param message Description of the problem.
+	 */
+	public ReplayFormatException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,161 @@
+package replay;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import game.GameState;
+
+/**
+ * Header of a replay: everything needed to start the recorded game again. The
+ * tetromino types are not stored, replays are always played with the
+ * {@link game.StandardTetrominos}.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class ReplayHeader {
+	/**
+	 * Magic number at the start of every replay, "TRP1" in ASCII.
+	 */
+	public static final int MAGIC = 0x54525031;
+
+	/**
+	 * Version of the replay format.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int SIZE = 24;
+
+	/**
+	 * Version of the game rules the replay was recorded with.
+	 */
+	private final int engineVersion;
+
+	/**
+	 * Seed of the game's random number generator.
+	 */
+	private final long seed;
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private final int width;
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private final int height;
+
+	/**
+	 * Number of ticks between two game steps.
+	 */
+	private final int gravityTicks;
+
+	/**
+	 * Creates the header of a game recorded with the current engine.
+	 *
+	 * @param seed         Seed of the game's random number generator.
+	 * @param width        Number of columns of the board.
+	 * @param height       Number of rows of the board.
+	 * @param gravityTicks Number of ticks between two game steps.
+	 */
+	public ReplayHeader(long seed, int width, int height, int gravityTicks) {
+		this(GameState.ENGINE_VERSION, seed, width, height, gravityTicks);
+	}
+
+	/**
+	 * Creates the header.
+	 *
+	 * @param engineVersion Version of the game rules.
+	 * @param seed          Seed of the game's random number generator.
+	 * @param width         Number of columns of the board.
+	 * @param height        Number of rows of the board.
+	 * @param gravityTicks  Number of ticks between two game steps.
+	 */
+	private ReplayHeader(int engineVersion, long seed, int width, int height, int gravityTicks) {
+		this.engineVersion = engineVersion;
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+		this.gravityTicks = gravityTicks;
+	}
+
+	/**
+	 * Writes the header at the buffer's position.
+	 *
+	 * @param buffer Buffer with at least {@link replay.ReplayHeader#SIZE} bytes
+	 *               remaining.
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(MAGIC);
+		buffer.putShort((short) FORMAT_VERSION);
+		buffer.putShort((short) engineVersion);
+		buffer.putLong(seed);
+		buffer.putShort((short) width);
+		buffer.putShort((short) height);
+		buffer.putInt(gravityTicks);
+	}
+
+	/**
+	 * Reads a header from the buffer's position.
+	 *
+	 * @param buffer The buffer.
+	 * @return The header.
+	 * @throws ReplayFormatException when the buffer doesn't start with a
+	 *                               supported header.
+	 */
+	public static ReplayHeader read(ByteBuffer buffer) throws ReplayFormatException {
+		try {
+			if (buffer.getInt() != MAGIC)
+				throw new ReplayFormatException("Not a replay.");
+			int formatVersion = buffer.getShort();
+			if (formatVersion != FORMAT_VERSION)
+				throw new ReplayFormatException("Unsupported replay format version " + formatVersion + ".");
+			int engineVersion = buffer.getShort();
+			long seed = buffer.getLong();
+			int width = buffer.getShort();
+			int height = buffer.getShort();
+			int gravityTicks = buffer.getInt();
+			return new ReplayHeader(engineVersion, seed, width, height, gravityTicks);
+		} catch (BufferUnderflowException e) {
+			throw new ReplayFormatException("Truncated replay header.");
+		}
+	}
+
+	/**
+	 * @return the version of the game rules the replay was recorded with
+	 */
+	public int getEngineVersion() {
+		return engineVersion;
+	}
+
+	/**
+	 * @return the seed of the game's random number generator
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return the number of columns of the board
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the number of rows of the board
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the number of ticks between two game steps
+	 */
+	public int getGravityTicks() {
+		return gravityTicks;
+	}
+}
@@ -0,0 +1,131 @@
+package replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+import game.GameState;
+import game.StandardTetrominos;
+
+/**
+ * Plays replays back without the game window, as fast as the engine allows.
+ * The game is started from the replay header and every recorded command is
+ * executed at its tick, so the same engine reproduces the recorded game
+ * exactly.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class ReplayPlayer {
+	/**
+	 * Extension of the replay files.
+	 */
+	public static final String EXTENSION = ".tetr";
+
+	/**
+	 * Creates the game recorded in the replay, before any tick.
+	 *
+	 * @param header Header of the replay.
+	 * @return The game.
+	 * @throws ReplayFormatException when the replay was recorded with another
+	 *                               version of the game rules.
+	 */
+	public static GameState start(ReplayHeader header) throws ReplayFormatException {
+		if (header.getEngineVersion() != GameState.ENGINE_VERSION)
+			throw new ReplayFormatException("Replay recorded with engine version " + header.getEngineVersion()
+					+ ", current version is " + GameState.ENGINE_VERSION + ".");
+		GameState state = new GameState(header.getWidth(), header.getHeight());
+		StandardTetrominos.addTo(state);
+		state.setSeed(header.getSeed());
+		state.setGravityTicks(header.getGravityTicks());
+		return state;
+	}
+
+	/**
+	 * Plays the whole replay.
+	 *
+	 * @param reader Reader positioned before the first event.
+	 * @return The game after the last recorded tick.
+	 * @throws ReplayFormatException when the replay is malformed or a recorded
+	 *                               command doesn't move the tetromino, i.e. the
+	 *                               engine doesn't reproduce the game.
+	 */
+	public static GameState play(ReplayReader reader) throws ReplayFormatException {
+		GameState state = start(reader.getHeader());
+		while (reader.next()) {
+			advance(state, reader.getTick());
+			if (!state.execute(reader.getCommand()))
+				throw new ReplayFormatException(
+						"Command " + reader.getCommand() + " at tick " + reader.getTick() + " has no effect.");
+		}
+		advance(state, reader.getTick());
+		return state;
+	}
+
+	/**
+	 * Plays the whole replay and checks the result of the game.
+	 *
+	 * @param reader Reader positioned before the first event.
+	 * @return true if the points, rows and tetrominos match the recorded ones,
+	 *         false otherwise.
+	 * @throws ReplayFormatException when the replay is malformed or doesn't
+	 *                               match the engine.
+	 */
+	public static boolean verify(ReplayReader reader) throws ReplayFormatException {
+		GameState state = play(reader);
+		return state.getPoints() == reader.getPoints() && state.getLines() == reader.getLines()
+				&& state.getPieces() == reader.getPieces();
+	}
+
+	/**
+	 * Performs the game ticks up to the given one.
+	 *
+	 * @param state The game.
+	 * @param tick  Number of ticks the game should have performed.
+	 */
+	private static void advance(GameState state, long tick) {
+		while (state.getTicks() < tick)
+			state.tick();
+	}
+
+	/**
+	 * Verifies replay files and prints the results.
+	 *
+	 * @param args Replay files or directories with replay files.
+	 * @throws IOException when a directory can't be listed.
+	 */
+	public static void main(String[] args) throws IOException {
+		ArrayList<Path> files = new ArrayList<>();
+		for (String arg : args) {
+			Path path = Paths.get(arg);
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> list = Files.list(path)) {
+					list.filter(p -> p.toString().endsWith(EXTENSION)).sorted().forEach(files::add);
+				}
+			} else {
+				files.add(path);
+			}
+		}
+		int failed = 0;
+		long ticks = 0;
+		long start = System.nanoTime();
+		for (Path file : files) {
+			try {
+				ReplayReader reader = ReplayReader.open(file);
+				if (!verify(reader)) {
+					failed++;
+					System.out.println(file + ": result differs from the recorded one");
+				}
+				ticks += reader.getTick();
+			} catch (IOException e) {
+				failed++;
+				System.out.println(file + ": " + e.getMessage());
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d replays, %d failed, %.1f replays/s, %.0f ticks/s", files.size(), failed,
+				files.size() / seconds, ticks / seconds));
+	}
+}
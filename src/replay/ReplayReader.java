@@ -0,0 +1,198 @@
+package replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import game.Command;
+
+/**
+ * Reads the events of a replay written by {@link replay.ReplayRecorder} one by
+ * one. The reader works on a buffer holding the replay, so it can read a file
+ * loaded onto the heap as well as a slice of a memory mapped archive.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class ReplayReader {
+	/**
+	 * Number of the game commands, ordinals at or above it are invalid.
+	 */
+	private static final int COMMANDS = Command.values().length;
+
+	/**
+	 * The replay data, positioned at the next event.
+	 */
+	private final ByteBuffer data;
+
+	/**
+	 * Header of the replay.
+	 */
+	private final ReplayHeader header;
+
+	/**
+	 * Tick of the current event.
+	 */
+	private long tick;
+
+	/**
+	 * Command of the current event.
+	 */
+	private Command command;
+
+	/**
+	 * Determines whether the final event was read.
+	 */
+	private boolean finished;
+
+	/**
+	 * Recorded points of the finished game.
+	 */
+	private int points;
+
+	/**
+	 * Recorded rows removed in the finished game.
+	 */
+	private int lines;
+
+	/**
+	 * Recorded tetrominos spawned in the finished game.
+	 */
+	private int pieces;
+
+	/**
+	 * Creates a reader of the replay between the buffer's position and limit. The
+	 * buffer itself is not modified.
+	 *
+	 * @param replay The replay data.
+	 * @throws ReplayFormatException when the replay header is not supported.
+	 */
+	public ReplayReader(ByteBuffer replay) throws ReplayFormatException {
+		data = replay.slice();
+		header = ReplayHeader.read(data);
+	}
+
+	/**
+	 * Creates a reader of a replay file. The whole file is loaded into memory.
+	 *
+	 * @param path Path of the file.
+	 * @return The reader.
+	 * @throws IOException when the file can't be read or the replay header is not
+	 *                     supported.
+	 */
+	public static ReplayReader open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0)
+					break;
+			}
+			buffer.flip();
+			return new ReplayReader(buffer);
+		}
+	}
+
+	/**
+	 * @return the header of the replay
+	 */
+	public ReplayHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * Reads the next event.
+	 *
+	 * @return true if a command was read, false if the final event was read.
+	 * @throws ReplayFormatException when the data is malformed or ends before the
+	 *                               final event.
+	 */
+	public boolean next() throws ReplayFormatException {
+		if (finished)
+			return false;
+		try {
+			tick += getVarLong(data);
+			int ordinal = data.get() & 0xFF;
+			if (ordinal == ReplayRecorder.END) {
+				finished = true;
+				command = null;
+				points = (int) getVarLong(data);
+				lines = (int) getVarLong(data);
+				pieces = (int) getVarLong(data);
+				return false;
+			}
+			if (ordinal >= COMMANDS)
+				throw new ReplayFormatException("Unknown command " + ordinal + " at tick " + tick + ".");
+			command = Command.get(ordinal);
+			return true;
+		} catch (BufferUnderflowException e) {
+			throw new ReplayFormatException("Replay ends before its final event.");
+		}
+	}
+
+	/**
+	 * @return the tick of the current event, the last tick of the game after the
+	 *         final event
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * @return the command of the current event, null after the final event
+	 */
+	public Command getCommand() {
+		return command;
+	}
+
+	/**
+	 * @return true if the final event was read, false otherwise
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return the recorded points of the finished game, valid after the final
+	 *         event
+	 */
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return the recorded rows removed in the finished game, valid after the
+	 *         final event
+	 */
+	public int getLines() {
+		return lines;
+	}
+
+	/**
+	 * @return the recorded tetrominos spawned in the finished game, valid after
+	 *         the final event
+	 */
+	public int getPieces() {
+		return pieces;
+	}
+
+	/**
+	 * Reads a value written by
+	 * {@link replay.ReplayRecorder#putVarLong(ByteBuffer, long)}.
+	 *
+	 * @param buffer The buffer.
+	 * @return The value.
+	 * @throws ReplayFormatException when the value is longer than 64 bits.
+	 */
+	static long getVarLong(ByteBuffer buffer) throws ReplayFormatException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new ReplayFormatException("Malformed varint.");
+	}
+}
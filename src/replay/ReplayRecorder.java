@@ -0,0 +1,182 @@
+package replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import game.Command;
+import game.CommandListener;
+import game.GameState;
+
+/**
+ * Records the commands executed in a game into a replay. A replay is the
+ * {@link replay.ReplayHeader} followed by the events. Every event is the number
+ * of ticks since the previous event as a varint and the ordinal of the command
+ * as a single byte. The last event has the {@link replay.ReplayRecorder#END}
+ * byte instead of a command and is followed by the points, rows and tetrominos
+ * of the finished game as varints, so playback can be verified. The data is
+ * collected in a direct buffer and written to the channel whenever the buffer
+ * fills up.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see replay.ReplayReader
+ */
+public class ReplayRecorder implements CommandListener, Closeable {
+	/**
+	 * Byte marking the last event of a replay.
+	 */
+	public static final int END = 0xFF;
+
+	/**
+	 * Size of the buffer in bytes.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * Maximum size in bytes of a single event including the final results.
+	 */
+	private static final int MAX_EVENT_SIZE = 32;
+
+	/**
+	 * Channel the replay is written to.
+	 */
+	private final WritableByteChannel channel;
+
+	/**
+	 * Buffer of the data not written yet.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Tick of the last recorded event.
+	 */
+	private long lastTick;
+
+	/**
+	 * Determines whether the final event was written.
+	 */
+	private boolean finished;
+
+	/**
+	 * First error of writing during the game, reported by the next method that
+	 * can throw it.
+	 */
+	private IOException error;
+
+	/**
+	 * Creates the recorder and writes the header.
+	 *
+	 * @param channel Channel the replay is written to.
+	 * @param header  Header of the replay.
+	 */
+	public ReplayRecorder(WritableByteChannel channel, ReplayHeader header) {
+		this.channel = channel;
+		header.write(buffer);
+	}
+
+	/**
+	 * Creates a recorder writing to a new file.
+	 *
+	 * @param path   Path of the file, an existing file is overwritten.
+	 * @param header Header of the replay.
+	 * @return The recorder.
+	 * @throws IOException when the file can't be opened.
+	 */
+	public static ReplayRecorder create(Path path, ReplayHeader header) throws IOException {
+		return new ReplayRecorder(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING), header);
+	}
+
+	/**
+	 * Records the command at the current tick of the game.
+	 */
+	@Override
+	public void commandExecuted(GameState state, Command command) {
+		if (finished || error != null)
+			return;
+		long tick = state.getTicks();
+		ensureRemaining();
+		putVarLong(buffer, tick - lastTick);
+		buffer.put((byte) command.ordinal());
+		lastTick = tick;
+	}
+
+	/**
+	 * Records the end of the game and writes all of the buffered data. Further
+	 * commands are not recorded.
+	 *
+	 * @param state The finished game.
+	 * @throws IOException when the replay couldn't be written.
+	 */
+	public void finish(GameState state) throws IOException {
+		if (finished)
+			return;
+		finished = true;
+		if (error == null) {
+			ensureRemaining();
+			putVarLong(buffer, state.getTicks() - lastTick);
+			buffer.put((byte) END);
+			putVarLong(buffer, state.getPoints());
+			putVarLong(buffer, state.getLines());
+			putVarLong(buffer, state.getPieces());
+			flush();
+		}
+		if (error != null)
+			throw error;
+	}
+
+	/**
+	 * Writes the buffered data and closes the channel. The replay has no final
+	 * event unless {@link replay.ReplayRecorder#finish(GameState)} was called.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (error == null)
+			flush();
+		channel.close();
+		if (error != null)
+			throw error;
+	}
+
+	/**
+	 * Makes room for an event in the buffer.
+	 */
+	private void ensureRemaining() {
+		if (buffer.remaining() < MAX_EVENT_SIZE)
+			flush();
+	}
+
+	/**
+	 * Writes the buffered data to the channel. An error is kept in
+	 * {@link replay.ReplayRecorder#error}.
+	 */
+	private void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} catch (IOException e) {
+			error = e;
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes a non-negative value in 7 bit groups, least significant first, with
+	 * the highest bit set in every byte except the last one.
+	 *
+	 * @param buffer The buffer.
+	 * @param value  The value.
+	 */
+	static void putVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+}
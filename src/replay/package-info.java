@@ -0,0 +1,5 @@
+/**
+ * Package containing classes recording games as replays and playing them back.
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+package replay;
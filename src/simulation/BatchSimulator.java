@@ -0,0 +1,240 @@
+package simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import game.GameState;
+import game.StandardTetrominos;
+import game.Tetromino;
+import properties.GameSettings;
+
+/**
+ * Runs many games without the game window, in parallel on a fork-join pool.
+ * Every game is seeded with its own seed derived from the base seed, so a batch
+ * gives the same results no matter how many threads run it.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class BatchSimulator {
+	/**
+	 * Number of games simulated by a single task without splitting it further.
+	 */
+	private static final int GAMES_PER_TASK = 16;
+
+	/**
+	 * Creates the policy for every simulated game.
+	 */
+	private final Supplier<? extends Policy> policyFactory;
+
+	/**
+	 * Number of games to simulate.
+	 */
+	private final int games;
+
+	/**
+	 * Seed from which the seeds of the games are derived.
+	 */
+	private final long baseSeed;
+
+	/**
+	 * Tetromino types that can be spawned in the games.
+	 */
+	private Tetromino[] tetrominoTypes = StandardTetrominos.create();
+
+	/**
+	 * Number of columns of the board.
+	 */
+	private int width = GameSettings.GRID_WIDTH;
+
+	/**
+	 * Number of rows of the board.
+	 */
+	private int height = GameSettings.GRID_HEIGHT;
+
+	/**
+	 * Number of spawned tetrominos after which a game is stopped even if it isn't
+	 * lost.
+	 */
+	private int maxPieces = Integer.MAX_VALUE;
+
+	/**
+	 * Creates a new simulator.
+	 *
+	 * @param policyFactory Creates the policy for every simulated game.
+	 * @param games         Number of games to simulate.
+	 * @param baseSeed      Seed from which the seeds of the games are derived.
+	 */
+	public BatchSimulator(Supplier<? extends Policy> policyFactory, int games, long baseSeed) {
+		this.policyFactory = policyFactory;
+		this.games = games;
+		this.baseSeed = baseSeed;
+	}
+
+	/**
+	 * @param tetrominoTypes the tetromino types that can be spawned in the games
+	 */
+	public void setTetrominoTypes(Tetromino[] tetrominoTypes) {
+		this.tetrominoTypes = tetrominoTypes.clone();
+	}
+
+	/**
+	 * Changes the board size of the games.
+	 *
+	 * @param width  Number of columns of the board.
+	 * @param height Number of rows of the board.
+	 */
+	public void setBoardSize(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @param maxPieces number of spawned tetrominos after which a game is stopped
+	 */
+	public void setMaxPieces(int maxPieces) {
+		this.maxPieces = maxPieces;
+	}
+
+	/**
+	 * Returns the seed of a single game.
+	 *
+	 * @param baseSeed Seed of the batch.
+	 * @param game     Index of the game in the batch.
+	 * @return Seed for {@link game.GameState#setSeed(long)}.
+	 */
+	public static long gameSeed(long baseSeed, int game) {
+		long z = baseSeed + (game + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Simulates the games on the common fork-join pool.
+	 *
+	 * @return The aggregated results.
+	 */
+	public SimulationResult run() {
+		return run(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Simulates the games on the given pool.
+	 *
+	 * @param pool The pool.
+	 * @return The aggregated results.
+	 */
+	public SimulationResult run(ForkJoinPool pool) {
+		int[] points = new int[games];
+		int[] lines = new int[games];
+		int[] pieces = new int[games];
+		long start = System.nanoTime();
+		pool.invoke(new GamesTask(0, games, points, lines, pieces));
+		return new SimulationResult(points, lines, pieces, System.nanoTime() - start);
+	}
+
+	/**
+	 * Simulates a single game.
+	 *
+	 * @param seed Seed of the game.
+	 * @return The finished game.
+	 */
+	public GameState simulate(long seed) {
+		GameState state = new GameState(width, height);
+		for (Tetromino t : tetrominoTypes)
+			state.addTetrominoType(t);
+		state.setSeed(seed);
+		Policy policy = policyFactory.get();
+		policy.start(state, seed);
+		do {
+			policy.act(state);
+		} while (state.step() && state.getPieces() < maxPieces);
+		return state;
+	}
+
+	/**
+	 * Task simulating a range of games, split in halves until the range is small
+	 * enough.
+	 */
+	private class GamesTask extends RecursiveAction {
+		/**
+		 * Version of the serialized form.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Index of the first game.
+		 */
+		private final int from;
+
+		/**
+		 * Index after the last game.
+		 */
+		private final int to;
+
+		/**
+		 * Points of every game in the batch.
+		 */
+		private final int[] points;
+
+		/**
+		 * Rows removed in every game in the batch.
+		 */
+		private final int[] lines;
+
+		/**
+		 * Tetrominos spawned in every game in the batch.
+		 */
+		private final int[] pieces;
+
+		/**
+		 * Creates the task.
+		 *
+		 * @param from   Index of the first game.
+		 * @param to     Index after the last game.
+		 * @param points Points of every game in the batch.
+		 * @param lines  Rows removed in every game in the batch.
+		 * @param pieces Tetrominos spawned in every game in the batch.
+		 */
+		GamesTask(int from, int to, int[] points, int[] lines, int[] pieces) {
+			this.from = from;
+			this.to = to;
+			this.points = points;
+			this.lines = lines;
+			this.pieces = pieces;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				for (int game = from; game < to; game++) {
+					GameState state = simulate(gameSeed(baseSeed, game));
+					points[game] = state.getPoints();
+					lines[game] = state.getLines();
+					pieces[game] = state.getPieces();
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new GamesTask(from, middle, points, lines, pieces),
+					new GamesTask(middle, to, points, lines, pieces));
+		}
+	}
+
+	/**
+	 * Simulates a batch of games played by {@link simulation.RandomPolicy} and
+	 * prints the results.
+	 *
+	 * @param args Number of games, base seed and number of threads. All are
+	 *             optional.
+	 */
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		System.out.println(new BatchSimulator(RandomPolicy::new, games, seed).run(pool));
+		pool.shutdown();
+	}
+}
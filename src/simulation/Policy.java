@@ -0,0 +1,28 @@
+package simulation;
+
+import game.GameState;
+
+/**
+ * Strategy producing the player's input in a simulated game. A policy object is
+ * used by a single game at a time.
+ * 
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public interface Policy {
+	/**
+	 * Called once before the first step of a game.
+	 * 
+	 * @param state The game.
+	 * @param seed  Seed the policy may use for its own random decisions.
+	 */
+	default void start(GameState state, long seed) {
+	}
+
+	/**
+	 * Called before every game step. The policy moves the spawned tetromino the
+	 * same way the player would.
+	 * 
+	 * @param state The game.
+	 */
+	void act(GameState state);
+}
@@ -0,0 +1,45 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import game.GameState;
+
+/**
+ * Policy choosing a random rotation and column for every spawned tetromino and
+ * dropping it there.
+ * 
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class RandomPolicy implements Policy {
+	/**
+	 * Random number generator.
+	 */
+	private SplittableRandom random = new SplittableRandom();
+
+	/**
+	 * Number of the spawned tetromino the last decision was made for.
+	 */
+	private int decidedFor;
+
+	@Override
+	public void start(GameState state, long seed) {
+		random = new SplittableRandom(seed);
+		decidedFor = 0;
+	}
+
+	@Override
+	public void act(GameState state) {
+		if (!state.isAnySpawned() || state.getPieces() == decidedFor)
+			return;
+		int rotations = random.nextInt(4);
+		for (int i = 0; i < rotations; i++)
+			state.rotateSpawned(true);
+		int dx = random.nextInt(state.getBoard().getWidth()) - state.getSpawnedX();
+		while (dx < 0 && state.moveSpawned(-1, 0, false))
+			dx++;
+		while (dx > 0 && state.moveSpawned(1, 0, false))
+			dx--;
+		state.skipDown(false);
+		decidedFor = state.getPieces();
+	}
+}
@@ -0,0 +1,152 @@
+package simulation;
+
+import java.util.Arrays;
+
+/**
+ * Aggregated results of a batch of simulated games.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ * @see simulation.BatchSimulator
+ */
+public class SimulationResult {
+	/**
+	 * Points of every game, sorted in ascending order.
+	 */
+	private final int[] sortedPoints;
+
+	/**
+	 * Total number of rows removed in all the games.
+	 */
+	private final long totalLines;
+
+	/**
+	 * Total number of tetrominos spawned in all the games.
+	 */
+	private final long totalPieces;
+
+	/**
+	 * Total number of points acquired in all the games.
+	 */
+	private final long totalPoints;
+
+	/**
+	 * Wall clock time of the batch in nanoseconds.
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Creates the result from the per game values.
+	 *
+	 * @param points       Points of every game.
+	 * @param lines        Rows removed in every game.
+	 * @param pieces       Tetrominos spawned in every game.
+	 * @param elapsedNanos Wall clock time of the batch in nanoseconds.
+	 */
+	public SimulationResult(int[] points, int[] lines, int[] pieces, long elapsedNanos) {
+		this.sortedPoints = points.clone();
+		Arrays.sort(sortedPoints);
+		this.totalLines = sum(lines);
+		this.totalPieces = sum(pieces);
+		this.totalPoints = sum(points);
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Sums the values.
+	 *
+	 * @param values The values.
+	 * @return Sum of the values.
+	 */
+	private static long sum(int[] values) {
+		long sum = 0;
+		for (int v : values)
+			sum += v;
+		return sum;
+	}
+
+	/**
+	 * @return number of games
+	 */
+	public int getGames() {
+		return sortedPoints.length;
+	}
+
+	/**
+	 * @return total number of rows removed in all the games
+	 */
+	public long getTotalLines() {
+		return totalLines;
+	}
+
+	/**
+	 * @return total number of tetrominos spawned in all the games
+	 */
+	public long getTotalPieces() {
+		return totalPieces;
+	}
+
+	/**
+	 * @return average number of points per game
+	 */
+	public double getMeanPoints() {
+		return getGames() == 0 ? 0 : (double) totalPoints / getGames();
+	}
+
+	/**
+	 * @return average number of rows removed per game
+	 */
+	public double getMeanLines() {
+		return getGames() == 0 ? 0 : (double) totalLines / getGames();
+	}
+
+	/**
+	 * @return average number of tetrominos spawned per game
+	 */
+	public double getMeanPieces() {
+		return getGames() == 0 ? 0 : (double) totalPieces / getGames();
+	}
+
+	/**
+	 * Returns the points percentile.
+	 *
+	 * @param percentile Percentile between 0 and 100.
+	 * @return The smallest number of points not exceeded by the given percentage
+	 *         of games or 0 if there were no games.
+	 */
+	public int getPointsPercentile(double percentile) {
+		if (sortedPoints.length == 0)
+			return 0;
+		int index = (int) Math.ceil(percentile / 100 * sortedPoints.length) - 1;
+		return sortedPoints[Math.max(0, Math.min(sortedPoints.length - 1, index))];
+	}
+
+	/**
+	 * @return wall clock time of the batch in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return number of games simulated per second
+	 */
+	public double getGamesPerSecond() {
+		return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * @return number of tetrominos spawned per second
+	 */
+	public double getPiecesPerSecond() {
+		return elapsedNanos == 0 ? 0 : totalPieces * 1e9 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"games: %d, lines: %d (%.2f per game), pieces: %.2f per game, points: mean %.2f, min %d, p50 %d, p90 %d, p99 %d, max %d, %.1f games/s, %.1f pieces/s",
+				getGames(), totalLines, getMeanLines(), getMeanPieces(), getMeanPoints(), getPointsPercentile(0),
+				getPointsPercentile(50), getPointsPercentile(90), getPointsPercentile(99), getPointsPercentile(100),
+				getGamesPerSecond(), getPiecesPerSecond());
+	}
+}
@@ -0,0 +1,565 @@
+package simulation;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import game.Board;
+import game.Command;
+import game.GameState;
+import game.StandardTetrominos;
+import game.Tetromino;
+import game.TetrominoShape;
+import properties.GameSettings;
+
+/**
+ * Many independent games stepped in lockstep for an external trainer. Every
+ * step takes one action per game: nothing, or one of the player's commands.
+ * It applies the action and performs one game tick. The observations are
+ * written straight into a buffer supplied by the caller, e.g. a direct buffer
+ * in memory shared with the trainer. Every game has a fixed-size record at
+ * <code>index * getObservationSize()</code>:
+ * <ul>
+ * <li>{@link simulation.VecEnv#OFFSET_POINTS}: int, points gained in the
+ * step</li>
+ * <li>{@link simulation.VecEnv#OFFSET_LINES}: int, rows removed in the
+ * step</li>
+ * <li>{@link simulation.VecEnv#OFFSET_DONE}: byte, 1 if the game was lost in
+ * the step</li>
+ * <li>{@link simulation.VecEnv#OFFSET_PIECE}: byte, index of the spawned
+ * tetromino in {@link game.StandardTetrominos#create()}, -1 if none</li>
+ * <li>{@link simulation.VecEnv#OFFSET_ROTATION}: byte, its rotation index</li>
+ * <li>{@link simulation.VecEnv#OFFSET_NEXT}: byte, index of the next
+ * tetromino</li>
+ * <li>{@link simulation.VecEnv#OFFSET_X}, {@link simulation.VecEnv#OFFSET_Y}:
+ * shorts, position of the spawned tetromino's center</li>
+ * <li>{@link simulation.VecEnv#OFFSET_CELLS}: width * height bytes, row by
+ * row, 1 for an occupied tile of the board, without the spawned
+ * tetromino</li>
+ * </ul>
+ * Numbers are written in the buffer's byte order. Only the rows of the board
+ * that changed since the previous step are written again, so the caller
+ * mustn't modify the buffer.
+ * <p>
+ * A lost game is started again right away with the next seed of its
+ * sequence, its record shows the new game with the done flag set. The games
+ * are split into shards stepped in parallel on a fork-join pool, the calling
+ * thread steps the first shard and then parks until the last shard is done.
+ * The tasks are created once and reused and the caller doesn't join them, so
+ * a step doesn't allocate.
+ *
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+public class VecEnv {
+	/**
+	 * Action doing nothing.
+	 */
+	public static final int ACTION_NONE = 0;
+
+	/**
+	 * Action moving the tetromino left.
+	 */
+	public static final int ACTION_LEFT = 1;
+
+	/**
+	 * Action moving the tetromino right.
+	 */
+	public static final int ACTION_RIGHT = 2;
+
+	/**
+	 * Action moving the tetromino one tile down.
+	 */
+	public static final int ACTION_DOWN = 3;
+
+	/**
+	 * Action moving the tetromino all the way down.
+	 */
+	public static final int ACTION_DROP = 4;
+
+	/**
+	 * Action rotating the tetromino counterclockwise.
+	 */
+	public static final int ACTION_ROTATE_CCW = 5;
+
+	/**
+	 * Action rotating the tetromino clockwise.
+	 */
+	public static final int ACTION_ROTATE_CW = 6;
+
+	/**
+	 * Number of actions.
+	 */
+	public static final int ACTION_COUNT = 7;
+
+	/**
+	 * Offset of the points gained in the step.
+	 */
+	public static final int OFFSET_POINTS = 0;
+
+	/**
+	 * Offset of the rows removed in the step.
+	 */
+	public static final int OFFSET_LINES = 4;
+
+	/**
+	 * Offset of the done flag.
+	 */
+	public static final int OFFSET_DONE = 8;
+
+	/**
+	 * Offset of the index of the spawned tetromino.
+	 */
+	public static final int OFFSET_PIECE = 9;
+
+	/**
+	 * Offset of the rotation index of the spawned tetromino.
+	 */
+	public static final int OFFSET_ROTATION = 10;
+
+	/**
+	 * Offset of the index of the next tetromino.
+	 */
+	public static final int OFFSET_NEXT = 11;
+
+	/**
+	 * Offset of the x coordinate of the spawned tetromino.
+	 */
+	public static final int OFFSET_X = 12;
+
+	/**
+	 * Offset of the y coordinate of the spawned tetromino.
+	 */
+	public static final int OFFSET_Y = 14;
+
+	/**
+	 * Offset of the tiles of the board.
+	 */
+	public static final int OFFSET_CELLS = 16;
+
+	/**
+	 * Commands of the actions, indexed by the action.
+	 */
+	private static final Command[] COMMANDS = { null, Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.MOVE_DOWN,
+			Command.DROP, Command.ROTATE_CCW, Command.ROTATE_CW };
+
+	/**
+	 * Number of shards per thread of the pool.
+	 */
+	private static final int SHARDS_PER_THREAD = 4;
+
+	/**
+	 * The games.
+	 */
+	private final GameState[] games;
+
+	/**
+	 * Game every game is copied from when it starts.
+	 */
+	private final GameState template;
+
+	/**
+	 * Shapes of the tetromino types, indexed as in the observations.
+	 */
+	private final TetrominoShape[] shapes;
+
+	/**
+	 * Seeds of the first game of every game sequence.
+	 */
+	private final long[] seeds;
+
+	/**
+	 * Number of games lost in every game sequence.
+	 */
+	private final int[] episodes;
+
+	/**
+	 * Board version written into the observation of every game, -1 if none.
+	 */
+	private final long[] writtenVersions;
+
+	/**
+	 * Buffer receiving the observations.
+	 */
+	private final ByteBuffer observations;
+
+	/**
+	 * Size of the observation of a single game.
+	 */
+	private final int observationSize;
+
+	/**
+	 * Pool the shards are stepped on.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Tasks stepping the shards.
+	 */
+	private final ShardTask[] shards;
+
+	/**
+	 * Number of shards not finished yet in the current step.
+	 */
+	private final AtomicInteger pending = new AtomicInteger();
+
+	/**
+	 * Thread waiting for the shards.
+	 */
+	private volatile Thread waiter;
+
+	/**
+	 * Exception thrown by a shard in the current step or null.
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Actions of the current step, null while the games are being reset.
+	 */
+	private int[] actions;
+
+	/**
+	 * Set once the games were reset.
+	 */
+	private boolean started;
+
+	/**
+	 * Creates the games on the standard board, stepped on the common pool.
+	 *
+	 * @param count        Number of games.
+	 * @param observations Buffer receiving the observations, with at least
+	 *                     <code>count * getObservationSize()</code> bytes.
+	 */
+	public VecEnv(int count, ByteBuffer observations) {
+		this(count, GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT, observations, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates the games.
+	 *
+	 * @param count        Number of games.
+	 * @param width        Number of columns of the boards.
+	 * @param height       Number of rows of the boards.
+	 * @param observations Buffer receiving the observations, with at least
+	 *                     <code>count * getObservationSize(width, height)</code>
+	 *                     bytes.
+	 * @param pool         Pool the games are stepped on.
+	 * @throws IllegalArgumentException when the buffer is too small.
+	 */
+	public VecEnv(int count, int width, int height, ByteBuffer observations, ForkJoinPool pool) {
+		observationSize = getObservationSize(width, height);
+		if (observations.capacity() < (long) count * observationSize)
+			throw new IllegalArgumentException("Observations need " + (long) count * observationSize + " bytes.");
+		this.observations = observations;
+		this.pool = pool;
+		template = new GameState(width, height);
+		Tetromino[] types = StandardTetrominos.create();
+		shapes = new TetrominoShape[types.length];
+		for (int i = 0; i < types.length; i++) {
+			template.addTetrominoType(types[i]);
+			shapes[i] = types[i].getShape();
+		}
+		template.setPreviews(1);
+		games = new GameState[count];
+		for (int i = 0; i < count; i++)
+			games[i] = new GameState(width, height);
+		seeds = new long[count];
+		episodes = new int[count];
+		writtenVersions = new long[count];
+		int shardCount = Math.max(1, Math.min(count, pool.getParallelism() * SHARDS_PER_THREAD));
+		shards = new ShardTask[shardCount];
+		for (int i = 0; i < shardCount; i++)
+			shards[i] = new ShardTask((int) ((long) count * i / shardCount), (int) ((long) count * (i + 1) / shardCount));
+	}
+
+	/**
+	 * Returns the size of the observation of a single game.
+	 *
+	 * @param width  Number of columns of the board.
+	 * @param height Number of rows of the board.
+	 * @return Number of bytes, a multiple of 8.
+	 */
+	public static int getObservationSize(int width, int height) {
+		return (OFFSET_CELLS + width * height + 7) & ~7;
+	}
+
+	/**
+	 * @return size of the observation of a single game in bytes
+	 */
+	public int getObservationSize() {
+		return observationSize;
+	}
+
+	/**
+	 * @return number of games
+	 */
+	public int size() {
+		return games.length;
+	}
+
+	/**
+	 * Returns a game, e.g. to inspect it. It mustn't be modified.
+	 *
+	 * @param index Index of the game.
+	 * @return The game.
+	 */
+	public GameState getGame(int index) {
+		return games[index];
+	}
+
+	/**
+	 * Sets the number of ticks between two game steps of all of the games,
+	 * applied when a game starts.
+	 *
+	 * @param gravityTicks Number of ticks, at least 1.
+	 */
+	public void setGravityTicks(int gravityTicks) {
+		template.setGravityTicks(gravityTicks);
+	}
+
+	/**
+	 * Starts all of the games again and writes their observations.
+	 *
+	 * @param seeds Seed of every game. A game lost later is started with
+	 *              {@link simulation.BatchSimulator#gameSeed(long, int)} of its
+	 *              seed and the number of games it lost.
+	 * @throws IllegalArgumentException when the number of seeds is wrong.
+	 */
+	public void reset(long[] seeds) {
+		if (seeds.length != games.length)
+			throw new IllegalArgumentException("Expected " + games.length + " seeds, got " + seeds.length);
+		System.arraycopy(seeds, 0, this.seeds, 0, seeds.length);
+		actions = null;
+		run();
+		started = true;
+	}
+
+	/**
+	 * Applies an action to every game, performs a tick and writes the
+	 * observations.
+	 *
+	 * @param actions Action of every game, one of the <code>ACTION_</code>
+	 *                constants.
+	 * @throws IllegalArgumentException when the number of actions is wrong or an
+	 *                                  action is unknown.
+	 * @throws IllegalStateException    when the games weren't reset yet.
+	 */
+	public void step(int[] actions) {
+		if (!started)
+			throw new IllegalStateException("The games weren't reset.");
+		if (actions.length != games.length)
+			throw new IllegalArgumentException("Expected " + games.length + " actions, got " + actions.length);
+		for (int action : actions) {
+			if (action < 0 || action >= ACTION_COUNT)
+				throw new IllegalArgumentException("Unknown action " + action);
+		}
+		this.actions = actions;
+		run();
+		this.actions = null;
+	}
+
+	/**
+	 * Steps or resets all of the shards, the first one in the calling thread and
+	 * the others on the pool.
+	 *
+	 * @throws IllegalStateException when a shard failed.
+	 */
+	private void run() {
+		failure = null;
+		waiter = Thread.currentThread();
+		pending.set(shards.length);
+		for (int i = 1; i < shards.length; i++)
+			pool.execute(shards[i]);
+		shards[0].exec();
+		while (pending.get() > 0)
+			LockSupport.park(this);
+		waiter = null;
+		if (failure != null)
+			throw new IllegalStateException("Stepping the games failed.", failure);
+	}
+
+	/**
+	 * Starts a game with the next seed of its sequence.
+	 *
+	 * @param index Index of the game.
+	 */
+	private void start(int index) {
+		GameState game = games[index];
+		game.copyFrom(template);
+		game.setSeed(episodes[index] == 0 ? seeds[index] : BatchSimulator.gameSeed(seeds[index], episodes[index]));
+		game.step();
+		writtenVersions[index] = -1;
+	}
+
+	/**
+	 * Applies the action to a game and performs a tick.
+	 *
+	 * @param index Index of the game.
+	 */
+	private void step(int index) {
+		GameState game = games[index];
+		int points = game.getPoints();
+		int lines = game.getLines();
+		int action = actions[index];
+		if (action != ACTION_NONE)
+			game.execute(COMMANDS[action]);
+		boolean lost = !game.tick();
+		points = game.getPoints() - points;
+		lines = game.getLines() - lines;
+		if (lost) {
+			episodes[index]++;
+			start(index);
+		}
+		write(index, points, lines, lost);
+	}
+
+	/**
+	 * Writes the observation of a game.
+	 *
+	 * @param index  Index of the game.
+	 * @param points Points gained in the step.
+	 * @param lines  Rows removed in the step.
+	 * @param done   Whether the game was lost in the step.
+	 */
+	private void write(int index, int points, int lines, boolean done) {
+		GameState game = games[index];
+		int base = index * observationSize;
+		observations.putInt(base + OFFSET_POINTS, points);
+		observations.putInt(base + OFFSET_LINES, lines);
+		observations.put(base + OFFSET_DONE, (byte) (done ? 1 : 0));
+		Tetromino spawned = game.getSpawned();
+		observations.put(base + OFFSET_PIECE, (byte) (spawned == null ? -1 : indexOf(spawned)));
+		observations.put(base + OFFSET_ROTATION, (byte) (spawned == null ? 0 : spawned.getRotation()));
+		Tetromino next = game.peekQueue(0);
+		observations.put(base + OFFSET_NEXT, (byte) (next == null ? -1 : indexOf(next)));
+		observations.putShort(base + OFFSET_X, (short) game.getSpawnedX());
+		observations.putShort(base + OFFSET_Y, (short) game.getSpawnedY());
+		Board board = game.getBoard();
+		int width = board.getWidth();
+		long written = writtenVersions[index];
+		for (int y = 0; y < board.getHeight(); y++) {
+			if (board.getRowVersion(y) <= written)
+				continue;
+			int row = board.getRow(y);
+			int cell = base + OFFSET_CELLS + y * width;
+			for (int x = 0; x < width; x++)
+				observations.put(cell + x, (byte) (row >>> x & 1));
+		}
+		writtenVersions[index] = board.getVersion();
+	}
+
+	/**
+	 * @param t The tetromino.
+	 * @return index of its shape in {@link simulation.VecEnv#shapes}
+	 */
+	private int indexOf(Tetromino t) {
+		TetrominoShape shape = t.getShape();
+		for (int i = 0; i < shapes.length; i++) {
+			if (shapes[i] == shape)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Task stepping or resetting a range of the games.
+	 */
+	private class ShardTask extends ForkJoinTask<Void> {
+		/**
+		 * Version of the serialized form.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Index of the first game.
+		 */
+		private final int from;
+
+		/**
+		 * Index after the last game.
+		 */
+		private final int to;
+
+		/**
+		 * Creates the task.
+		 *
+		 * @param from Index of the first game.
+		 * @param to   Index after the last game.
+		 */
+		ShardTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void getRawResult() {
+			return null;
+		}
+
+		@Override
+		protected void setRawResult(Void value) {
+		}
+
+		/**
+		 * Steps or resets the games of the shard. Returns false, so the pool never
+		 * marks the task as done and it can be submitted again in the next step.
+		 */
+		@Override
+		protected boolean exec() {
+			try {
+				for (int i = from; i < to; i++) {
+					if (actions != null) {
+						step(i);
+					} else {
+						episodes[i] = 0;
+						start(i);
+						write(i, 0, 0, false);
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				failure = e;
+			} finally {
+				if (pending.decrementAndGet() == 0)
+					LockSupport.unpark(waiter);
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Steps games with random actions and prints the steps per second.
+	 *
+	 * @param args Number of games, number of steps and number of threads. All
+	 *             are optional.
+	 */
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		ByteBuffer observations = ByteBuffer.allocateDirect(count * getObservationSize(GameSettings.GRID_WIDTH,
+				GameSettings.GRID_HEIGHT));
+		VecEnv env = new VecEnv(count, GameSettings.GRID_WIDTH, GameSettings.GRID_HEIGHT, observations, pool);
+		long[] seeds = new long[count];
+		for (int i = 0; i < count; i++)
+			seeds[i] = i;
+		env.reset(seeds);
+		SplittableRandom random = new SplittableRandom(0);
+		int[] actions = new int[count];
+		long done = 0;
+		long start = System.nanoTime();
+		for (int s = 0; s < steps; s++) {
+			for (int i = 0; i < count; i++)
+				actions[i] = random.nextInt(ACTION_COUNT);
+			env.step(actions);
+			for (int i = 0; i < count; i++)
+				done += observations.get(i * env.getObservationSize() + OFFSET_DONE);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d games, %d steps, %d games lost, %.0f steps/s", count, steps, done,
+				(double) count * steps / seconds));
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,5 @@
+/**
+ * Package containing classes running games without the game window.
+ * @author ukasz Piekarski [wookashp98@gmail.com]
+ */
+package simulation;
\ No newline at end of file